@@ -1,5 +1,6 @@
 plugins {
     id("java")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 configurations {
@@ -15,6 +16,23 @@ repositories {
     mavenCentral()
 }
 
+// Os fontes da aplicação ficam em src/Main/java (com M maiúsculo)
+sourceSets {
+    main {
+        java.srcDir("src/Main/java")
+    }
+}
+
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(21))
+    }
+}
+
+tasks.withType<JavaCompile> {
+    options.encoding = "UTF-8"
+}
+
 dependencies {
 
     compileOnly("org.projectlombok:lombok")
@@ -23,8 +41,22 @@ dependencies {
 
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
+
+// Benchmarks em src/jmh/java: ./gradlew jmh
+// Mede vazão e tempo médio, com a taxa de alocação reportada pelo profiler de GC
+jmh {
+    jmhVersion.set("1.37")
+    benchmarkMode.set(listOf("thrpt", "avgt"))
+    timeUnit.set("us")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    profilers.add("gc")
+    resultFormat.set("JSON")
+}
@@ -1,14 +1,32 @@
+import api.BankHttpServer;
+import api.BatchRunner;
+import api.CommandDispatcher;
+import api.StatementExporter;
 import exception.*;
-import model.BankService;
+import metrics.Metrics;
 import model.InvestmentWallet;
-import model.MoneyAudit;
+import model.MoneyFormatter;
+import persistence.SnapshotManager;
+import persistence.TransactionLog;
+import persistence.WriteAheadLog;
 import repository.AccountRepository;
 import repository.InvestmentRepository;
-
-import java.time.LocalDateTime;
-import java.time.OffsetDateTime;
+import repository.LedgerProcessor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static java.time.format.DateTimeFormatter.ISO_DATE_TIME;
 
@@ -18,15 +36,52 @@ import static java.time.format.DateTimeFormatter.ISO_DATE_TIME;
  */
 public class Main {
 
+    /**
+     * Log de transações, habilitado pela propriedade de sistema {@code pixbank.wal}
+     * com o caminho do arquivo de log.
+     */
+    private final static TransactionLog transactionLog = openTransactionLog();
+
     /**
      * Repositório de contas bancárias.
      */
-    private final static AccountRepository accountRepository = new AccountRepository();
+    private final static AccountRepository accountRepository = new AccountRepository(transactionLog);
 
     /**
      * Repositório de investimentos.
      */
-    private final static InvestmentRepository investmentRepository = new InvestmentRepository();
+    private final static InvestmentRepository investmentRepository =
+            new InvestmentRepository(transactionLog, accountRepository.getTransactionEngine());
+
+    /**
+     * Processador de comandos com escritor único, habilitado pela propriedade de sistema
+     * {@code pixbank.ledger=ring}. Quando ausente, as operações são aplicadas diretamente pelos repositórios.
+     */
+    private final static LedgerProcessor ledgerProcessor = "ring".equals(System.getProperty("pixbank.ledger"))
+            ? new LedgerProcessor(accountRepository, investmentRepository, transactionLog)
+            : null;
+
+    /**
+     * Gerenciador de snapshots, usado apenas quando o log de transações está habilitado.
+     * O snapshot é gravado ao lado do log, com a extensão {@code .snapshot}.
+     */
+    private final static SnapshotManager snapshotManager = recover();
+
+    /**
+     * Intervalo, em segundos, entre snapshots periódicos, configurável pela propriedade
+     * {@code pixbank.snapshot.interval}.
+     */
+    private final static long snapshotInterval = Long.getLong("pixbank.snapshot.interval", 60);
+
+    /**
+     * Agenda dos snapshots periódicos, usada em todos os modos de execução enquanto o log estiver habilitado.
+     */
+    private final static ScheduledExecutorService snapshotScheduler = scheduleSnapshots();
+
+    /**
+     * Formatador das datas do histórico no extrato, criado uma única vez.
+     */
+    private static final DateTimeFormatter HISTORY_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
 
     /**
      * Scanner para entrada de dados do usuário.
@@ -39,6 +94,17 @@ public class Main {
      * @param args Argumentos da linha de comando (não utilizados).
      */
     public static void main(String[] args) {
+        Metrics.registerMBeans();
+        var batchFile = System.getProperty("pixbank.batch");
+        if (batchFile != null) {
+            runBatch(Path.of(batchFile));
+            return;
+        }
+        var httpPort = Integer.getInteger("pixbank.http.port");
+        if (httpPort != null) {
+            serveHttp(httpPort);
+            return;
+        }
         System.out.println("\n============ MENU PIX BANK ============\n");
         while (true){
             System.out.println("Selecione a opcao desejada");
@@ -57,6 +123,8 @@ public class Main {
             System.out.println("13 - Listar tipos de investimento");
             System.out.println("14 - Listar todas as carteiras de investimento");
             System.out.println("15 - Sair do sistema");
+            System.out.println("16 - Exibir metricas das operacoes");
+            System.out.println("17 - Exportar extratos (CSV/JSON)");
 
             var option= scanner.nextInt();
             switch (option){
@@ -74,13 +142,184 @@ public class Main {
                 case 12 -> consultWalletInvestment();
                 case 13 -> listTypeInvestment();
                 case 14 -> listWalletInvestment();
-                case 15 -> System.exit(0);
+                case 15 -> {
+                    shutdown();
+                    System.exit(0);
+                }
+                case 16 -> System.out.println("\n" + Metrics.dump());
+                case 17 -> exportStatements();
                 default -> System.out.println("Opção inválida");
 
             }
         }
     }
 
+    /**
+     * Atende os comandos pela interface HTTP/JSON em vez do menu, até o encerramento do processo.
+     * Ao encerrar, o servidor é fechado antes de {@link #shutdown()}.
+     *
+     * @param port Porta local configurada pela propriedade {@code pixbank.http.port}
+     */
+    private static void serveHttp(final int port) {
+        try {
+            var server = new BankHttpServer(port,
+                    new CommandDispatcher(accountRepository, investmentRepository, ledgerProcessor));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                shutdown();
+            }));
+            server.start();
+            System.out.println("PIX Bank atendendo em http://localhost:" + server.getPort() + "/");
+        } catch (IOException e) {
+            System.err.println("Erro ao iniciar o servidor HTTP: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Executa um arquivo de comandos (CSV ou JSON por linha) em vez do menu e encerra.
+     * Os resultados vão para o arquivo da propriedade {@code pixbank.batch.out} ou, sem ela,
+     * para a saída padrão; o total de comandos aplicados e rejeitados vai para a saída de erros.
+     *
+     * @param input Arquivo de comandos configurado pela propriedade {@code pixbank.batch}
+     */
+    private static void runBatch(final Path input) {
+        var outPath = System.getProperty("pixbank.batch.out");
+        var runner = new BatchRunner(new CommandDispatcher(accountRepository, investmentRepository, ledgerProcessor));
+        long start = System.nanoTime();
+        try (var in = Files.newBufferedReader(input);
+             var out = outPath != null
+                     ? Files.newBufferedWriter(Path.of(outPath))
+                     : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)) {
+            var summary = runner.run(in, out);
+            out.flush();
+            System.err.println("Lote concluido: " + summary.executed() + " comando(s) aplicado(s), " +
+                    summary.failed() + " rejeitado(s) em " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException e) {
+            System.err.println("Erro ao processar o lote: " + e.getMessage());
+        } finally {
+            shutdown();
+        }
+    }
+
+    /**
+     * Abre o log de transações configurado pela propriedade {@code pixbank.wal}.
+     * Sem a propriedade, o estado é mantido apenas em memória. Se o log configurado não puder ser aberto,
+     * o programa é encerrado, pois continuar apenas em memória perderia as operações confirmadas.
+     *
+     * @return O log de transações
+     */
+    private static TransactionLog openTransactionLog() {
+        var path = System.getProperty("pixbank.wal");
+        if (path == null || path.isBlank()) {
+            return TransactionLog.NONE;
+        }
+        try {
+            // No modo de escritor único, o processador sincroniza o log uma vez por lote de comandos;
+            // no modo de lote por arquivo, o log é sincronizado ao final, no fechamento
+            boolean ring = "ring".equals(System.getProperty("pixbank.ledger"));
+            boolean batch = System.getProperty("pixbank.batch") != null;
+            return new WriteAheadLog(Path.of(path), !ring && !batch, 0);
+        } catch (IOException e) {
+            System.err.println("Erro ao abrir o log de transacoes: " + e.getMessage());
+            System.err.println("Nenhuma operacao foi aplicada; encerrando.");
+            System.exit(1);
+            return TransactionLog.NONE;
+        }
+    }
+
+    /**
+     * Recupera o estado salvo a partir do último snapshot e do log de transações.
+     * Um registro final incompleto é descartado pela recuperação, que trunca o log no último registro válido.
+     * Qualquer outra falha encerra o programa sem alterar os arquivos, pois continuar acrescentaria
+     * novos registros a um log que não corresponde ao estado em memória.
+     *
+     * @return O gerenciador de snapshots, ou {@code null} se o log não estiver habilitado
+     */
+    private static SnapshotManager recover() {
+        var path = System.getProperty("pixbank.wal");
+        if (transactionLog == TransactionLog.NONE) {
+            return null;
+        }
+        var logPath = Path.of(path);
+        var manager = new SnapshotManager(logPath.resolveSibling(logPath.getFileName() + ".snapshot"), logPath);
+        try {
+            manager.recover(accountRepository, investmentRepository);
+            System.out.println("Estado recuperado: " + accountRepository.list().size() + " conta(s), " +
+                    investmentRepository.listWallets().size() + " carteira(s) de investimento");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Erro ao recuperar o estado salvo: " + e.getMessage());
+            System.err.println("O log de transacoes e o snapshot nao foram alterados; encerrando.");
+            System.exit(1);
+        }
+        return manager;
+    }
+
+    /**
+     * Agenda a gravação de um snapshot a cada {@link #snapshotInterval} segundos, se o log estiver habilitado.
+     * O snapshot aguarda as operações em andamento, inclusive as do servidor HTTP e do processador de comandos.
+     *
+     * @return A agenda dos snapshots, ou {@code null} se o log não estiver habilitado
+     */
+    private static ScheduledExecutorService scheduleSnapshots() {
+        if (snapshotManager == null) {
+            return null;
+        }
+        var scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            var thread = new Thread(task, "snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(Main::snapshot, snapshotInterval, snapshotInterval, TimeUnit.SECONDS);
+        return scheduler;
+    }
+
+    /**
+     * Grava um snapshot do estado atual, se o log de transações estiver habilitado.
+     */
+    private static synchronized void snapshot() {
+        if (snapshotManager == null) {
+            return;
+        }
+        try {
+            snapshotManager.snapshot(accountRepository, investmentRepository, transactionLog);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Erro ao gravar o snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Encerra o processamento: fecha o processador de comandos, interrompe os snapshots periódicos,
+     * grava o snapshot final e fecha o log de transações.
+     */
+    private static void shutdown() {
+        if (ledgerProcessor != null) {
+            ledgerProcessor.close();
+        }
+        if (snapshotScheduler != null) {
+            snapshotScheduler.close();
+        }
+        snapshot();
+        transactionLog.close();
+    }
+
+    /**
+     * Aguarda a conclusão de um comando publicado no processador de comandos,
+     * relançando a exceção que o rejeitou para que seja tratada como na execução direta.
+     *
+     * @param completion Resultado do comando
+     * @return O resultado do comando
+     */
+    private static <T> T await(final CompletableFuture<T> completion) {
+        try {
+            return completion.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
     /**
      * Cria uma nova conta bancária com chaves PIX.
      */
@@ -132,9 +371,9 @@ public class Main {
                 }
             }
 
-            // Formatando a descrição do depósito inicial com o valor
-            String depositDescription = "Depósito inicial: R$" + (amount / 100) + "," + String.format("%02d", amount % 100);
-            var wallet = accountRepository.create(pix, amount, depositDescription);
+            var wallet = ledgerProcessor != null
+                    ? await(ledgerProcessor.create(pix, amount))
+                    : accountRepository.create(pix, amount);
             System.out.println("\n--------------- Conta criada com sucesso ---------------\n" + wallet + "\n");
 
         } catch (IllegalArgumentException e) {
@@ -181,9 +420,11 @@ public class Main {
                 return;
             }
 
-            // Formatando a descrição do depósito
-            String depositDescription = "Depósito de: R$" + (amount / 100) + "," + String.format("%02d", amount % 100);
-            accountRepository.deposit(pix, amount, depositDescription);
+            if (ledgerProcessor != null) {
+                await(ledgerProcessor.deposit(pix, amount));
+            } else {
+                accountRepository.deposit(pix, amount);
+            }
             System.out.println("\n--------------- Depósito realizado com sucesso ---------------\n");
 
         } catch (AccountNotFoundException ex) {
@@ -228,7 +469,11 @@ public class Main {
             }
 
             try {
-                accountRepository.withdraw(pix, amount);
+                if (ledgerProcessor != null) {
+                    await(ledgerProcessor.withdraw(pix, amount));
+                } else {
+                    accountRepository.withdraw(pix, amount);
+                }
                 System.out.println("\n--------------- Saque realizado com sucesso ---------------\n");
             } catch (NoFundsEnoughException | AccountNotFoundException ex) {
                 System.out.println(ex.getMessage());
@@ -278,9 +523,12 @@ public class Main {
                 return;
             }
 
-            // Formatando a descrição da transferência
-            String transfDescription = " R$" + (amount / 100) + "," + String.format("%02d", amount % 100);
-            accountRepository.transferMoney(source, target, amount, transfDescription);
+            if (ledgerProcessor != null) {
+                await(ledgerProcessor.transfer(source, target, amount));
+            } else {
+                accountRepository.transferMoney(source, target, amount);
+            }
+            System.out.println("\n---------------Transferencia Realizada com Sucesso---------------\n");
 
 
         } catch (AccountNotFoundException ex) {
@@ -311,11 +559,13 @@ public class Main {
             if (accounts.isEmpty()) {
                 System.out.println("Nenhuma conta cadastrada.");
             } else {
+                // Um único buffer é reutilizado para montar a linha de cada conta
+                var line = new StringBuilder(128);
                 accounts.forEach(account -> {
-                    String formattedBalance = "R$" + (account.getBalance() / 100) +
-                            "," + String.format("%02d", account.getBalance() % 100);
-                    System.out.printf("AccountWallet{pix=%s, balance=%s}%n",
-                            account.getPix(), formattedBalance);
+                    line.setLength(0);
+                    line.append("AccountWallet{pix=").append(account.getPix()).append(", balance=");
+                    MoneyFormatter.append(line, account.getBalance()).append('}');
+                    System.out.println(line);
                 });
             }
 
@@ -367,11 +617,12 @@ public class Main {
                 var account = accountRepository.findByPix(pix);
                 var investment = investmentRepository.findById(investmentId);
 
-                var investmentWallet = investmentRepository.initInvestment(account, investmentId);
+                var investmentWallet = ledgerProcessor != null
+                        ? await(ledgerProcessor.openWallet(pix, investmentId))
+                        : investmentRepository.initInvestment(account, investmentId);
 
                 // Formatação mantida mas seguindo o padrão de mensagens
-                String formattedValue = "R$" + (investment.initialFunds() / 100) + "," +
-                        String.format("%02d", investment.initialFunds() % 100);
+                String formattedValue = MoneyFormatter.format(investment.initialFunds());
 
                 System.out.println("\n--------------- Operação realizada com sucesso ---------------");
                 System.out.println("Tipo: Criação de Carteira de Investimento");
@@ -380,16 +631,6 @@ public class Main {
                 System.out.println("Valor Inicial: " + formattedValue);
                 System.out.println("------------------------------------------------------------\n");
 
-                // Histórico (mantido da versão original)
-                String description = "Carteira investimento ID " + investmentId +
-                        " - Valor inicial: " + formattedValue;
-                account.getFinancialTransactions().add(new MoneyAudit(
-                        UUID.randomUUID(),
-                        BankService.ACCOUNT,
-                        description,
-                        OffsetDateTime.now()
-                ));
-
             } catch (AccountNotFoundException e) {
                 System.out.println("Erro: " + e.getMessage()); // Padrão: println igual ao withdraw
             } catch (AccountWithInvestmentException e) {
@@ -471,9 +712,11 @@ public class Main {
             }
 
             try {
-                var investment = investmentRepository.create(tax, initialFunds, String.join(";", nomes));
+                var investment = ledgerProcessor != null
+                        ? await(ledgerProcessor.createInvestment(tax, initialFunds, String.join(";", nomes)))
+                        : investmentRepository.create(tax, initialFunds, String.join(";", nomes));
                 // Formatando o valor para exibição
-                String formattedValue = "R$" + (initialFunds / 100) + "," + String.format("%02d", initialFunds % 100);
+                String formattedValue = MoneyFormatter.format(initialFunds);
 
                 System.out.println("\n--------------- Investimento criado com sucesso ---------------");
                 System.out.println("ID: " + investment.id());
@@ -529,21 +772,23 @@ public class Main {
 
             try {
                 // Padrão: operação principal em bloco try separado
-                String description = "Aporte em Investimento de: R$" +
-                        (amount / 100) + "," +
-                        String.format("%02d", amount % 100);
-
-                investmentRepository.deposit(pix, amount, description);
+                if (ledgerProcessor != null) {
+                    await(ledgerProcessor.invest(pix, amount));
+                } else {
+                    investmentRepository.deposit(pix, amount);
+                }
 
                 System.out.println("\n--------------- Investimento realizado com sucesso ---------------");
                 System.out.println("Conta PIX: " + pix);
-                System.out.println("Valor: R$" + (amount / 100) + "," + String.format("%02d", amount % 100));
+                System.out.println("Valor: " + MoneyFormatter.format(amount));
                 System.out.println("------------------------------------------------------------------\n");
 
             } catch (WalletNotFoundException e) {
                 System.out.println("Erro: " + e.getMessage());
             } catch (AccountNotFoundException e) {
                 System.out.println("Erro: " + e.getMessage());
+            } catch (NoFundsEnoughException e) {
+                System.out.println("Erro: " + e.getMessage());
             }
 
         } catch (Exception e) {
@@ -588,18 +833,16 @@ public class Main {
             }
 
             try {
-                // Formatação mantida mas seguindo o padrão
-                String description = "Resgate de investimento: R$" +
-                        (amount / 100) + "," +
-                        String.format("%02d", amount % 100);
-
-                investmentRepository.withdraw(pix, amount, description);
+                if (ledgerProcessor != null) {
+                    await(ledgerProcessor.rescue(pix, amount));
+                } else {
+                    investmentRepository.withdraw(pix, amount);
+                }
 
                 // Mensagem de sucesso padronizada
                 System.out.println("\n--------------- Resgate realizado com sucesso ---------------");
                 System.out.println("Conta: " + pix);
-                System.out.println("Valor resgatado: R$" + (amount / 100) + "," +
-                        String.format("%02d", amount % 100));
+                System.out.println("Valor resgatado: " + MoneyFormatter.format(amount));
                 System.out.println("------------------------------------------------------------\n");
 
             } catch (NoFundsEnoughException | AccountNotFoundException ex) {
@@ -638,11 +881,15 @@ public class Main {
 
             try {
                 // Operação principal
-                investmentRepository.updateAmount();
+                var summary = ledgerProcessor != null
+                        ? await(ledgerProcessor.updateYield())
+                        : investmentRepository.updateAmount();
 
                 // Mensagem de sucesso padronizada
                 System.out.println("\n--------------- Rendimentos atualizados com sucesso ---------------");
-                System.out.println("Data: " + LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE));
+                System.out.println("Data: " + summary.appliedAt().format(DateTimeFormatter.ISO_LOCAL_DATE));
+                System.out.println("Carteiras atualizadas: " + summary.wallets());
+                System.out.println("Total de rendimentos: " + MoneyFormatter.format(summary.totalPaid()));
                 System.out.println("----------------------------------------------------------------\n");
 
             } catch (Exception ex) {
@@ -690,12 +937,8 @@ public class Main {
                         System.out.println("Conta PIX: " + wallet.getAccount().getPix().get(0));
                         System.out.println("Investimento: " + wallet.getInvestment().nome());
                         System.out.println("Taxa: " + wallet.getInvestment().tax() + "%");
-                        System.out.println("Saldo Investido: R$" +
-                                (wallet.getFunds() / 100) + "," +
-                                String.format("%02d", wallet.getFunds() % 100));
-                        System.out.println("Saldo Disponível: R$" +
-                                (wallet.getAccount().getFunds() / 100) + "," +
-                                String.format("%02d", wallet.getAccount().getFunds() % 100));
+                        System.out.println("Saldo Investido: " + MoneyFormatter.format(wallet.getFunds()));
+                        System.out.println("Saldo Disponível: " + MoneyFormatter.format(wallet.getAccount().getFunds()));
                         System.out.println("--------------------------------------------------");
                     });
                 }
@@ -746,8 +989,7 @@ public class Main {
                         System.out.println("ID: " + investment.id());
                         System.out.println("Nome: " + investment.nome());
                         System.out.println("Taxa: " + investment.tax() + "%");
-                        System.out.println("Valor Mínimo: R$" + (investment.initialFunds() / 100) + "," +
-                                String.format("%02d", investment.initialFunds() % 100));
+                        System.out.println("Valor Mínimo: " + MoneyFormatter.format(investment.initialFunds()));
                         System.out.println("--------------------------------------------------------");
                     });
                 }
@@ -798,11 +1040,8 @@ public class Main {
                         System.out.println("Conta PIX: " + wallet.getAccount().getPix().get(0));
                         System.out.println("Tipo de Investimento: " + wallet.getInvestment().nome());
                         System.out.println("Taxa: " + wallet.getInvestment().tax() + "%");
-                        System.out.println("Saldo Investido: R$" + (wallet.getFunds() / 100) + "," +
-                                String.format("%02d", wallet.getFunds() % 100));
-                        System.out.println("Saldo Disponível: R$" +
-                                (wallet.getAccount().getFunds() / 100) + "," +
-                                String.format("%02d", wallet.getAccount().getFunds() % 100));
+                        System.out.println("Saldo Investido: " + MoneyFormatter.format(wallet.getFunds()));
+                        System.out.println("Saldo Disponível: " + MoneyFormatter.format(wallet.getAccount().getFunds()));
                         System.out.println("--------------------------------------------------");
                     });
                 }
@@ -846,7 +1085,7 @@ public class Main {
                     System.out.println("Histórico:");
                     System.out.println("------------------------------------------------");
                     transactions.forEach(t -> System.out.println(
-                            t.createdAt().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")) + " | " +
+                            t.createdAt().format(HISTORY_DATE) + " | " +
                                     t.description()
                     ));
                 }
@@ -855,7 +1094,7 @@ public class Main {
 
                 System.out.println("\n=== EXTRATO BANCÁRIO ===");
                 System.out.println("Chave PIX: " + pix);
-                System.out.println("Saldo atual: R$" + (account.getFunds() / 100) + "," + String.format("%02d", account.getFunds() % 100));
+                System.out.println("Saldo atual: " + MoneyFormatter.format(account.getFunds()));
                 System.out.println("-------------------------");
                 System.out.println("Histórico de Transações:");
                 System.out.println("-------------------------");
@@ -867,6 +1106,16 @@ public class Main {
                     System.out.println("-------------------------");
                 });
 
+                // Resumo dos últimos meses, calculado a partir dos agregados mensais da conta
+                var currentMonth = YearMonth.now();
+                System.out.println("Resumo mensal:");
+                account.getAggregates().monthly(currentMonth.minusMonths(11), currentMonth).forEach(month ->
+                        System.out.println(YearMonth.from(month.start()) +
+                                " | Entradas: " + MoneyFormatter.format(month.credits()) +
+                                " | Saidas: " + MoneyFormatter.format(month.debits()) +
+                                " | Saldo final: " + MoneyFormatter.format(month.closingBalance())));
+                System.out.println("-------------------------");
+
             } catch (AccountNotFoundException ex) {
                 System.out.println(ex.getMessage());
             } catch (Exception ex) {
@@ -877,4 +1126,42 @@ public class Main {
             System.out.println("Erro inesperado: " + ex.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Exporta o extrato de uma conta, ou de todas as contas e carteiras, para um arquivo.
+     * O formato é deduzido pela extensão do arquivo: {@code .json} ou {@code .ndjson} para JSON, os demais CSV.
+     */
+    private static void exportStatements() {
+        try {
+            System.out.println("Informe a chave pix da conta (ou deixe em branco para exportar todas):");
+            if (scanner.hasNextLine()) {
+                scanner.nextLine(); // Consumir a quebra de linha pendente
+            }
+            var pix = scanner.nextLine().trim();
+
+            System.out.println("Informe o arquivo de destino (ex.: extrato.csv ou extrato.json):");
+            var file = scanner.nextLine().trim();
+            if (file.isEmpty()) {
+                System.out.println("Erro: O arquivo de destino não pode estar vazio.");
+                return;
+            }
+
+            var path = Path.of(file);
+            var format = StatementExporter.Format.of(path);
+            var exporter = new StatementExporter(accountRepository, investmentRepository);
+            long start = System.nanoTime();
+            long exported = pix.isEmpty()
+                    ? exporter.exportAll(format, path)
+                    : exporter.exportAccount(pix, format, path);
+            System.out.println(exported + " registro(s) exportado(s) para " + path.toAbsolutePath() +
+                    " em " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        } catch (AccountNotFoundException ex) {
+            System.out.println(ex.getMessage());
+        } catch (IOException ex) {
+            System.out.println("Erro ao gravar o arquivo de exportação: " + ex.getMessage());
+        } catch (Exception ex) {
+            System.out.println("Erro inesperado: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import exception.AccountNotFoundException;
+import exception.AccountWithInvestmentException;
+import exception.InvestmentNotFoundException;
+import exception.NoFundsEnoughException;
+import exception.PixInUseException;
+import exception.WalletNotFoundException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Interface HTTP/JSON local do sistema bancário, sobre o servidor HTTP do JDK.
+ * <p>
+ * Cada requisição é atendida em uma thread virtual própria, de modo que clientes lentos ou
+ * operações que aguardam a gravação do log não ocupam threads da plataforma. O comando é o
+ * caminho da requisição ({@code POST /transfer}) e os campos vêm no corpo, como objeto JSON
+ * plano, ou na query string. A execução é delegada ao {@link CommandDispatcher}.
+ * </p>
+ */
+public class BankHttpServer implements AutoCloseable {
+
+    /**
+     * Tipo de conteúdo das respostas.
+     */
+    private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+
+    /**
+     * Servidor HTTP do JDK.
+     */
+    private final HttpServer server;
+
+    /**
+     * Executor com uma thread virtual por requisição.
+     */
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Despachante dos comandos recebidos.
+     */
+    private final CommandDispatcher dispatcher;
+
+    /**
+     * Cria o servidor, ainda sem aceitar conexões.
+     *
+     * @param port Porta local; 0 escolhe uma porta livre
+     * @param dispatcher Despachante dos comandos recebidos
+     * @throws IOException Se a porta não puder ser aberta
+     */
+    public BankHttpServer(final int port, final CommandDispatcher dispatcher) throws IOException {
+        this.dispatcher = dispatcher;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Começa a aceitar requisições.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Retorna a porta em que o servidor atende.
+     *
+     * @return Porta local
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Para de aceitar requisições e aguarda, por até um segundo, as que estão em andamento.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.close();
+    }
+
+    /**
+     * Atende uma requisição: lê os campos, executa o comando e escreve a resposta JSON.
+     */
+    private void handle(final HttpExchange exchange) throws IOException {
+        int status;
+        String body;
+        try (exchange) {
+            try {
+                var operation = exchange.getRequestURI().getPath().substring(1);
+                var fields = fieldsOf(exchange);
+                body = dispatcher.execute(operation, fields);
+                status = 200;
+            } catch (RuntimeException e) {
+                body = CommandDispatcher.failure(e);
+                status = statusOf(e);
+            }
+            var bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+
+    /**
+     * Reúne os campos da query string e do corpo da requisição; os do corpo prevalecem.
+     */
+    private static Map<String, Object> fieldsOf(final HttpExchange exchange) throws IOException {
+        var fields = new LinkedHashMap<String, Object>();
+        var query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (var pair : query.split("&")) {
+                int separator = pair.indexOf('=');
+                if (separator > 0) {
+                    fields.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        var body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        if (!body.isBlank()) {
+            fields.putAll(FlatJson.parse(body));
+        }
+        return fields;
+    }
+
+    /**
+     * Converte a exceção que rejeitou um comando no código de status HTTP correspondente.
+     */
+    private static int statusOf(final RuntimeException error) {
+        if (error instanceof AccountNotFoundException || error instanceof WalletNotFoundException
+                || error instanceof InvestmentNotFoundException || error instanceof UnsupportedOperationException) {
+            return 404;
+        }
+        if (error instanceof PixInUseException || error instanceof AccountWithInvestmentException) {
+            return 409;
+        }
+        if (error instanceof NoFundsEnoughException) {
+            return 422;
+        }
+        if (error instanceof IllegalArgumentException) {
+            return 400;
+        }
+        return 500;
+    }
+}
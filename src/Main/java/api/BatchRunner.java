@@ -0,0 +1,115 @@
+package api;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Executa um arquivo de comandos sem interação, uma linha por comando.
+ * <p>
+ * Cada linha pode ser um objeto JSON com o nome do comando no campo {@code op}
+ * ({@code {"op":"transfer","source":"a","target":"b","amount":100}}) ou uma linha CSV com o nome
+ * do comando seguido dos campos na ordem de {@link CommandDispatcher#parametersOf(String)}
+ * ({@code transfer,a,b,100}). No CSV, listas de chaves PIX são separadas por ';' e o último campo
+ * recebe o restante da linha, inclusive vírgulas. Linhas em branco e iniciadas por '#' são ignoradas.
+ * </p>
+ * <p>
+ * Para cada comando é escrita uma linha JSON com o número da linha de origem e o resultado.
+ * Um comando rejeitado não interrompe o lote.
+ * </p>
+ */
+public class BatchRunner {
+
+    /**
+     * Despachante dos comandos lidos.
+     */
+    private final CommandDispatcher dispatcher;
+
+    /**
+     * Cria o executor de lotes.
+     *
+     * @param dispatcher Despachante dos comandos lidos
+     */
+    public BatchRunner(final CommandDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Resultado da execução de um arquivo de comandos.
+     *
+     * @param executed Quantidade de comandos aplicados
+     * @param failed Quantidade de comandos rejeitados
+     */
+    public record Summary(long executed, long failed) {
+    }
+
+    /**
+     * Executa todos os comandos da entrada, escrevendo um resultado por comando na saída.
+     * A saída não é descarregada aqui; cabe a quem a abriu fechá-la.
+     *
+     * @param in Entrada com os comandos
+     * @param out Saída dos resultados
+     * @return Quantidade de comandos aplicados e rejeitados
+     * @throws IOException Se houver erro de leitura ou escrita
+     */
+    public Summary run(final BufferedReader in, final Writer out) throws IOException {
+        long executed = 0;
+        long failed = 0;
+        long lineNumber = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            String result;
+            try {
+                result = execute(line);
+                executed++;
+            } catch (RuntimeException e) {
+                result = CommandDispatcher.failure(e);
+                failed++;
+            }
+            out.write("{\"line\":");
+            out.write(Long.toString(lineNumber));
+            out.write(',');
+            out.write(result, 1, result.length() - 1);
+            out.write('\n');
+        }
+        return new Summary(executed, failed);
+    }
+
+    /**
+     * Interpreta uma linha, em JSON ou CSV, e executa o comando.
+     */
+    private String execute(final String line) {
+        if (line.charAt(0) == '{') {
+            var fields = FlatJson.parse(line);
+            var operation = fields.remove("op");
+            if (operation == null) {
+                throw new IllegalArgumentException("Campo obrigatorio ausente: op");
+            }
+            return dispatcher.execute(operation.toString(), fields);
+        }
+        int end = line.indexOf(',');
+        var operation = (end < 0 ? line : line.substring(0, end)).strip();
+        return dispatcher.execute(operation, csvFields(operation, line, end));
+    }
+
+    /**
+     * Associa os campos posicionais de uma linha CSV aos nomes dos campos do comando.
+     */
+    private static Map<String, Object> csvFields(final String operation, final String line, int end) {
+        var names = CommandDispatcher.parametersOf(operation);
+        var fields = new HashMap<String, Object>(names.size() * 2);
+        for (int i = 0; i < names.size() && end >= 0; i++) {
+            int start = end + 1;
+            end = i == names.size() - 1 ? -1 : line.indexOf(',', start);
+            fields.put(names.get(i), (end < 0 ? line.substring(start) : line.substring(start, end)).strip());
+        }
+        return fields;
+    }
+}
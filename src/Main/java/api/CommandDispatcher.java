@@ -0,0 +1,363 @@
+package api;
+
+import metrics.Metrics;
+import model.AccountWallet;
+import model.HistoryPage;
+import model.InvestmentWallet;
+import model.PeriodTotals;
+import repository.AccountRepository;
+import repository.InvestmentRepository;
+import repository.LedgerProcessor;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Executa comandos bancários identificados por nome, com os parâmetros em um mapa de campos,
+ * e produz a resposta em JSON. É a camada comum às interfaces sem menu (HTTP e lote),
+ * que chamam as mesmas operações dos repositórios usadas pelo menu.
+ * <p>
+ * Quando um processador de comandos com escritor único é informado, as operações que alteram
+ * saldos são publicadas nele; caso contrário, são aplicadas diretamente pelos repositórios.
+ * </p>
+ */
+public class CommandDispatcher {
+
+    /**
+     * Nomes dos campos de cada comando, na ordem em que aparecem nos formatos posicionais (CSV).
+     */
+    private static final Map<String, List<String>> PARAMETERS = Map.ofEntries(
+            Map.entry("create_account", List.of("pix", "amount")),
+            Map.entry("deposit", List.of("pix", "amount")),
+            Map.entry("withdraw", List.of("pix", "amount")),
+            Map.entry("transfer", List.of("source", "target", "amount")),
+            Map.entry("invest", List.of("pix", "amount")),
+            Map.entry("rescue", List.of("pix", "amount")),
+            Map.entry("create_investment", List.of("tax", "initialFunds", "name")),
+            Map.entry("open_wallet", List.of("pix", "investmentId")),
+            Map.entry("balance", List.of("pix")),
+            Map.entry("history", List.of("pix", "limit", "from", "to", "token")),
+            Map.entry("statement", List.of("pix", "period", "from", "to")),
+            Map.entry("update_yield", List.of()),
+            Map.entry("metrics", List.of()));
+
+    /**
+     * Repositório de contas bancárias.
+     */
+    private final AccountRepository accounts;
+
+    /**
+     * Repositório de investimentos.
+     */
+    private final InvestmentRepository investments;
+
+    /**
+     * Processador de comandos com escritor único, ou {@code null} para a execução direta.
+     */
+    private final LedgerProcessor ledger;
+
+    /**
+     * Cria o despachante de comandos.
+     *
+     * @param accounts Repositório de contas bancárias
+     * @param investments Repositório de investimentos
+     * @param ledger Processador de comandos com escritor único, ou {@code null} para a execução direta
+     */
+    public CommandDispatcher(final AccountRepository accounts, final InvestmentRepository investments,
+                             final LedgerProcessor ledger) {
+        this.accounts = accounts;
+        this.investments = investments;
+        this.ledger = ledger;
+    }
+
+    /**
+     * Executa um comando.
+     * Comandos aceitos e seus campos:
+     * <ul>
+     *     <li>{@code create_account}: {@code pix} (lista ou chaves separadas por ';'), {@code amount}</li>
+     *     <li>{@code deposit}, {@code withdraw}, {@code invest}, {@code rescue}: {@code pix}, {@code amount}</li>
+     *     <li>{@code transfer}: {@code source}, {@code target}, {@code amount}</li>
+     *     <li>{@code create_investment}: {@code tax}, {@code initialFunds}, {@code name}</li>
+     *     <li>{@code open_wallet}: {@code pix}, {@code investmentId}</li>
+     *     <li>{@code balance}: {@code pix}</li>
+     *     <li>{@code history}: {@code pix}, {@code limit}, e opcionalmente {@code from} e {@code to}
+     *     (ISO-8601) e {@code token}, recebido na página anterior</li>
+     *     <li>{@code statement}: {@code pix}, {@code period} ({@code daily} ou {@code monthly}),
+     *     {@code from} e {@code to} (datas {@code 2024-01-31} ou meses {@code 2024-01}, inclusivos)</li>
+     *     <li>{@code update_yield}: sem campos</li>
+     *     <li>{@code metrics}: sem campos; retorna o relatório de métricas em texto no campo {@code dump}</li>
+     * </ul>
+     *
+     * @param operation Nome do comando
+     * @param fields Campos do comando; números podem vir como {@link Long} ou como texto
+     * @return Resposta de sucesso em JSON, no formato {@code {"ok":true,...}}
+     * @throws UnsupportedOperationException Se o comando não existir
+     * @throws IllegalArgumentException Se algum campo estiver ausente ou inválido
+     */
+    public String execute(final String operation, final Map<String, Object> fields) {
+        var out = new StringBuilder(64).append("{\"ok\":true");
+        switch (operation) {
+            case "create_account" -> {
+                var pix = keys(fields, "pix");
+                long amount = number(fields, "amount");
+                var wallet = ledger != null ? await(ledger.create(pix, amount)) : accounts.create(pix, amount);
+                appendAccount(out, wallet);
+            }
+            case "deposit" -> {
+                var pix = text(fields, "pix");
+                long amount = number(fields, "amount");
+                if (ledger != null) {
+                    await(ledger.deposit(pix, amount));
+                } else {
+                    accounts.deposit(pix, amount);
+                }
+            }
+            case "withdraw" -> {
+                var pix = text(fields, "pix");
+                long amount = number(fields, "amount");
+                long withdrawn = ledger != null ? await(ledger.withdraw(pix, amount)) : accounts.withdraw(pix, amount);
+                out.append(",\"amount\":").append(withdrawn);
+            }
+            case "transfer" -> {
+                var source = text(fields, "source");
+                var target = text(fields, "target");
+                long amount = number(fields, "amount");
+                if (ledger != null) {
+                    await(ledger.transfer(source, target, amount));
+                } else {
+                    accounts.transferMoney(source, target, amount);
+                }
+            }
+            case "invest" -> {
+                var pix = text(fields, "pix");
+                long amount = number(fields, "amount");
+                appendWallet(out, ledger != null ? await(ledger.invest(pix, amount)) : investments.deposit(pix, amount));
+            }
+            case "rescue" -> {
+                var pix = text(fields, "pix");
+                long amount = number(fields, "amount");
+                appendWallet(out, ledger != null ? await(ledger.rescue(pix, amount)) : investments.withdraw(pix, amount));
+            }
+            case "create_investment" -> {
+                long tax = number(fields, "tax");
+                long initialFunds = number(fields, "initialFunds");
+                var name = text(fields, "name");
+                var investment = ledger != null
+                        ? await(ledger.createInvestment(tax, initialFunds, name))
+                        : investments.create(tax, initialFunds, name);
+                out.append(",\"id\":").append(investment.id());
+            }
+            case "open_wallet" -> {
+                var pix = text(fields, "pix");
+                long investmentId = number(fields, "investmentId");
+                appendWallet(out, ledger != null
+                        ? await(ledger.openWallet(pix, investmentId))
+                        : investments.initInvestment(accounts.findByPix(pix), investmentId));
+            }
+            case "balance" -> appendAccount(out, accounts.findByPix(text(fields, "pix")));
+            case "history" -> {
+                var page = accounts.getHistoryPage(text(fields, "pix"), time(fields, "from"), time(fields, "to"),
+                        Math.toIntExact(number(fields, "limit")), optionalText(fields, "token"));
+                appendPage(out, page);
+            }
+            case "statement" -> {
+                var aggregates = accounts.findByPix(text(fields, "pix")).getAggregates();
+                var period = text(fields, "period");
+                try {
+                    var totals = switch (period) {
+                        case "daily" -> aggregates.daily(LocalDate.parse(text(fields, "from")),
+                                LocalDate.parse(text(fields, "to")));
+                        case "monthly" -> aggregates.monthly(YearMonth.parse(text(fields, "from")),
+                                YearMonth.parse(text(fields, "to")));
+                        default -> throw new IllegalArgumentException("Periodo invalido: " + period);
+                    };
+                    appendTotals(out, totals);
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException("Periodo invalido: " + e.getParsedString());
+                }
+            }
+            case "update_yield" -> {
+                var summary = ledger != null ? await(ledger.updateYield()) : investments.updateAmount();
+                out.append(",\"batchId\":");
+                FlatJson.quote(out, summary.batchId().toString());
+                out.append(",\"wallets\":").append(summary.wallets())
+                        .append(",\"totalPaid\":").append(summary.totalPaid());
+            }
+            case "metrics" -> {
+                out.append(",\"dump\":");
+                FlatJson.quote(out, Metrics.dump());
+            }
+            default -> throw new UnsupportedOperationException("Comando desconhecido: " + operation);
+        }
+        return out.append('}').toString();
+    }
+
+    /**
+     * Retorna os nomes dos campos de um comando, na ordem usada pelos formatos posicionais.
+     *
+     * @param operation Nome do comando
+     * @return Nomes dos campos do comando
+     * @throws UnsupportedOperationException Se o comando não existir
+     */
+    public static List<String> parametersOf(final String operation) {
+        var parameters = PARAMETERS.get(operation);
+        if (parameters == null) {
+            throw new UnsupportedOperationException("Comando desconhecido: " + operation);
+        }
+        return parameters;
+    }
+
+    /**
+     * Produz a resposta JSON de um comando rejeitado.
+     *
+     * @param error Exceção que rejeitou o comando
+     * @return Resposta de erro no formato {@code {"ok":false,"error":"..."}}
+     */
+    public static String failure(final RuntimeException error) {
+        var out = new StringBuilder(64).append("{\"ok\":false,\"error\":");
+        return FlatJson.quote(out, error.getMessage()).append('}').toString();
+    }
+
+    /**
+     * Escreve os dados de uma conta na resposta.
+     */
+    private static void appendAccount(final StringBuilder out, final AccountWallet wallet) {
+        out.append(",\"pix\":[");
+        var pix = wallet.getPix();
+        for (int i = 0; i < pix.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            FlatJson.quote(out, pix.get(i));
+        }
+        out.append("],\"balance\":").append(wallet.getFunds());
+    }
+
+    /**
+     * Escreve os dados de uma carteira de investimento na resposta.
+     */
+    private static void appendWallet(final StringBuilder out, final InvestmentWallet wallet) {
+        out.append(",\"investmentId\":").append(wallet.getInvestment().id())
+                .append(",\"balance\":").append(wallet.getFunds());
+    }
+
+    /**
+     * Escreve os registros de uma página do histórico e o token da próxima página na resposta.
+     */
+    private static void appendPage(final StringBuilder out, final HistoryPage page) {
+        out.append(",\"transactions\":[");
+        boolean first = true;
+        for (var audit : page.transactions()) {
+            out.append(first ? "{" : ",{").append("\"id\":");
+            FlatJson.quote(out, audit.transactionId().toString()).append(",\"createdAt\":");
+            FlatJson.quote(out, audit.createdAt().toString()).append(",\"type\":");
+            FlatJson.quote(out, audit.type().name()).append(",\"amount\":").append(audit.amount())
+                    .append(",\"counterparty\":");
+            FlatJson.quote(out, audit.counterparty()).append('}');
+            first = false;
+        }
+        out.append("],\"nextToken\":");
+        FlatJson.quote(out, page.nextToken());
+    }
+
+    /**
+     * Escreve os totais de cada período na resposta.
+     */
+    private static void appendTotals(final StringBuilder out, final List<PeriodTotals> totals) {
+        out.append(",\"periods\":[");
+        for (int i = 0; i < totals.size(); i++) {
+            var period = totals.get(i);
+            out.append(i > 0 ? ",{" : "{").append("\"start\":");
+            FlatJson.quote(out, period.start().toString())
+                    .append(",\"credits\":").append(period.credits())
+                    .append(",\"debits\":").append(period.debits())
+                    .append(",\"closingBalance\":").append(period.closingBalance()).append('}');
+        }
+        out.append(']');
+    }
+
+    /**
+     * Aguarda a conclusão de um comando publicado no processador,
+     * relançando a exceção que o rejeitou para que seja tratada como na execução direta.
+     */
+    private static <T> T await(final CompletableFuture<T> completion) {
+        try {
+            return completion.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Lê um campo de texto obrigatório.
+     */
+    private static String text(final Map<String, Object> fields, final String name) {
+        var value = fields.get(name);
+        if (value == null || value.toString().isBlank()) {
+            throw new IllegalArgumentException("Campo obrigatorio ausente: " + name);
+        }
+        return value.toString().trim();
+    }
+
+    /**
+     * Lê um campo de texto opcional.
+     */
+    private static String optionalText(final Map<String, Object> fields, final String name) {
+        var value = fields.get(name);
+        return value == null || value.toString().isBlank() ? null : value.toString().trim();
+    }
+
+    /**
+     * Lê um campo opcional de data e hora no formato ISO-8601.
+     */
+    private static OffsetDateTime time(final Map<String, Object> fields, final String name) {
+        var value = optionalText(fields, name);
+        try {
+            return value == null ? null : OffsetDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Data invalida no campo " + name + ": " + value);
+        }
+    }
+
+    /**
+     * Lê um campo numérico obrigatório, informado como número ou como texto.
+     */
+    private static long number(final Map<String, Object> fields, final String name) {
+        var value = fields.get(name);
+        if (value instanceof Long number) {
+            return number;
+        }
+        try {
+            return Long.parseLong(text(fields, name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor numerico invalido no campo " + name + ": " + value);
+        }
+    }
+
+    /**
+     * Lê uma lista de chaves PIX, informada como lista ou como texto com as chaves separadas por ';'.
+     */
+    private static List<String> keys(final Map<String, Object> fields, final String name) {
+        var value = fields.get(name);
+        List<String> pix = value instanceof List<?> list
+                ? list.stream().map(String::valueOf).map(String::trim).toList()
+                : Arrays.stream(text(fields, name).split(";")).map(String::trim).toList();
+        if (pix.isEmpty() || pix.stream().anyMatch(String::isEmpty)) {
+            throw new IllegalArgumentException("Nenhuma chave Pix válida foi informada");
+        }
+        if (pix.stream().distinct().count() != pix.size()) {
+            throw new IllegalArgumentException("Chave Pix duplicada encontrada");
+        }
+        return pix;
+    }
+}
@@ -0,0 +1,242 @@
+package api;
+
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Classe utilitária para leitura e escrita de objetos JSON planos, usados nos comandos do sistema.
+ * Aceita um único objeto cujos valores são textos, números inteiros, booleanos, {@code null}
+ * ou listas de textos; objetos aninhados não são suportados.
+ */
+@NoArgsConstructor(access = PRIVATE)
+public final class FlatJson {
+
+    /**
+     * Lê um objeto JSON plano.
+     * Textos são retornados como {@link String}, números como {@link Long}, booleanos como
+     * {@link Boolean} e listas como {@code List<String>}.
+     *
+     * @param json Texto do objeto
+     * @return Mapa dos campos do objeto, na ordem em que aparecem
+     * @throws IllegalArgumentException Se o texto não for um objeto JSON plano válido
+     */
+    public static Map<String, Object> parse(final CharSequence json) {
+        var parser = new Parser(json);
+        var fields = new LinkedHashMap<String, Object>();
+        parser.skipSpaces();
+        parser.expect('{');
+        parser.skipSpaces();
+        if (parser.peek() == '}') {
+            parser.next();
+        } else {
+            do {
+                parser.skipSpaces();
+                var name = parser.string();
+                parser.skipSpaces();
+                parser.expect(':');
+                parser.skipSpaces();
+                fields.put(name, parser.value());
+                parser.skipSpaces();
+            } while (parser.accept(','));
+            parser.expect('}');
+        }
+        parser.skipSpaces();
+        if (!parser.atEnd()) {
+            throw parser.error("conteudo apos o objeto");
+        }
+        return fields;
+    }
+
+    /**
+     * Acrescenta um texto como string JSON, com aspas e caracteres de escape.
+     *
+     * @param out Destino do texto
+     * @param value Texto a ser escrito; {@code null} é escrito como {@code null}
+     * @return O próprio destino, para encadeamento
+     */
+    public static StringBuilder quote(final StringBuilder out, final String value) {
+        if (value == null) {
+            return out.append("null");
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        return out.append('"');
+    }
+
+    /**
+     * Leitor sequencial do texto JSON.
+     */
+    private static final class Parser {
+
+        private final CharSequence text;
+
+        private int position;
+
+        private Parser(final CharSequence text) {
+            this.text = text;
+        }
+
+        private boolean atEnd() {
+            return position >= text.length();
+        }
+
+        private char peek() {
+            if (atEnd()) {
+                throw error("fim inesperado");
+            }
+            return text.charAt(position);
+        }
+
+        private char next() {
+            char c = peek();
+            position++;
+            return c;
+        }
+
+        private void expect(final char expected) {
+            if (next() != expected) {
+                position--;
+                throw error("esperado '" + expected + "'");
+            }
+        }
+
+        private boolean accept(final char expected) {
+            if (!atEnd() && text.charAt(position) == expected) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipSpaces() {
+            while (!atEnd() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private Object value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (c == '[') {
+                return list();
+            }
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                return number();
+            }
+            if (keyword("true")) {
+                return Boolean.TRUE;
+            }
+            if (keyword("false")) {
+                return Boolean.FALSE;
+            }
+            if (keyword("null")) {
+                return null;
+            }
+            throw error("valor invalido");
+        }
+
+        private List<String> list() {
+            expect('[');
+            var values = new ArrayList<String>();
+            skipSpaces();
+            if (accept(']')) {
+                return values;
+            }
+            do {
+                skipSpaces();
+                values.add(string());
+                skipSpaces();
+            } while (accept(','));
+            expect(']');
+            return values;
+        }
+
+        private Long number() {
+            int start = position;
+            if (peek() == '-') {
+                position++;
+            }
+            while (!atEnd() && Character.isDigit(text.charAt(position))) {
+                position++;
+            }
+            try {
+                return Long.parseLong(text, start, position, 10);
+            } catch (NumberFormatException e) {
+                throw error("numero inteiro invalido");
+            }
+        }
+
+        private String string() {
+            expect('"');
+            var value = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case '"', '\\', '/' -> value.append(escaped);
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'u' -> {
+                        if (position + 4 > text.length()) {
+                            throw error("escape unicode incompleto");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text, position, position + 4, 16));
+                        } catch (NumberFormatException e) {
+                            throw error("escape unicode invalido");
+                        }
+                        position += 4;
+                    }
+                    default -> throw error("escape invalido");
+                }
+            }
+        }
+
+        private boolean keyword(final String word) {
+            if (position + word.length() <= text.length()
+                    && text.subSequence(position, position + word.length()).toString().equals(word)) {
+                position += word.length();
+                return true;
+            }
+            return false;
+        }
+
+        private IllegalArgumentException error(final String reason) {
+            return new IllegalArgumentException("JSON invalido na posicao " + position + ": " + reason);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package api;
+
+import exception.AccountNotFoundException;
+import exception.WalletNotFoundException;
+import model.MoneyAudit;
+import model.Wallet;
+import repository.AccountRepository;
+import repository.InvestmentRepository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Exporta os extratos das contas e das carteiras de investimento em CSV ou em JSON (um objeto por linha).
+ * <p>
+ * Cada registro de auditoria vira uma linha com os campos {@code pix}, {@code wallet} ({@code account}
+ * ou {@code investment}), {@code id}, {@code createdAt}, {@code type}, {@code service}, {@code amount}
+ * (em centavos), {@code counterparty} e {@code investmentId}. Os históricos são percorridos como visões,
+ * sem cópia, e as linhas são montadas em um único buffer de texto e gravadas no canal por um buffer
+ * direto de tamanho fixo, de modo que a memória usada não depende da quantidade de registros.
+ * O prefixo de data e hora é formatado uma vez por segundo e reaproveitado pelos registros seguintes.
+ * </p>
+ */
+public class StatementExporter {
+
+    /**
+     * Formatos de exportação.
+     */
+    public enum Format {
+
+        /**
+         * CSV com linha de cabeçalho.
+         */
+        CSV,
+
+        /**
+         * Um objeto JSON por linha.
+         */
+        JSON;
+
+        /**
+         * Deduz o formato pela extensão do arquivo: {@code .json} e {@code .ndjson} são JSON, os demais CSV.
+         *
+         * @param path Arquivo de destino
+         * @return O formato correspondente
+         */
+        public static Format of(final Path path) {
+            var name = path.getFileName().toString().toLowerCase();
+            return name.endsWith(".json") || name.endsWith(".ndjson") ? JSON : CSV;
+        }
+    }
+
+    /**
+     * Cabeçalho do formato CSV.
+     */
+    private static final String CSV_HEADER = "pix,wallet,id,createdAt,type,service,amount,counterparty,investmentId\n";
+
+    /**
+     * Formatador da parte da data e hora até os segundos.
+     */
+    private static final DateTimeFormatter SECONDS = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss");
+
+    /**
+     * Tamanho do buffer de gravação, em bytes.
+     */
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    /**
+     * Repositório das contas exportadas.
+     */
+    private final AccountRepository accounts;
+
+    /**
+     * Repositório das carteiras de investimento exportadas.
+     */
+    private final InvestmentRepository investments;
+
+    /**
+     * Cria o exportador.
+     *
+     * @param accounts Repositório das contas
+     * @param investments Repositório das carteiras de investimento
+     */
+    public StatementExporter(final AccountRepository accounts, final InvestmentRepository investments) {
+        this.accounts = accounts;
+        this.investments = investments;
+    }
+
+    /**
+     * Exporta o extrato de uma conta e, se houver, da sua carteira de investimento para um arquivo.
+     *
+     * @param pix Chave PIX da conta
+     * @param format Formato de exportação
+     * @param path Arquivo de destino, substituído se existir
+     * @return Quantidade de registros exportados
+     * @throws IOException Se o arquivo não puder ser gravado
+     * @throws AccountNotFoundException Se a conta não for encontrada
+     */
+    public long exportAccount(final String pix, final Format format, final Path path) throws IOException {
+        try (var channel = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            return exportAccount(pix, format, channel);
+        }
+    }
+
+    /**
+     * Exporta o extrato de uma conta e, se houver, da sua carteira de investimento para um canal.
+     * O canal não é fechado.
+     *
+     * @param pix Chave PIX da conta
+     * @param format Formato de exportação
+     * @param out Canal de destino
+     * @return Quantidade de registros exportados
+     * @throws IOException Se o canal não puder ser gravado
+     * @throws AccountNotFoundException Se a conta não for encontrada
+     */
+    public long exportAccount(final String pix, final Format format, final WritableByteChannel out) throws IOException {
+        var account = accounts.findByPix(pix);
+        var writer = new Writer(format, out);
+        long count = writer.wallet(account.getPix().get(0), "account", account);
+        try {
+            count += writer.wallet(account.getPix().get(0), "investment", investments.findWalletByAccountPix(pix));
+        } catch (WalletNotFoundException e) {
+            // conta sem carteira de investimento
+        }
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Exporta os extratos de todas as contas e de todas as carteiras de investimento para um arquivo.
+     *
+     * @param format Formato de exportação
+     * @param path Arquivo de destino, substituído se existir
+     * @return Quantidade de registros exportados
+     * @throws IOException Se o arquivo não puder ser gravado
+     */
+    public long exportAll(final Format format, final Path path) throws IOException {
+        try (var channel = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            return exportAll(format, channel);
+        }
+    }
+
+    /**
+     * Exporta os extratos de todas as contas e de todas as carteiras de investimento para um canal,
+     * primeiro as contas, na ordem de cadastro, e depois as carteiras. O canal não é fechado.
+     *
+     * @param format Formato de exportação
+     * @param out Canal de destino
+     * @return Quantidade de registros exportados
+     * @throws IOException Se o canal não puder ser gravado
+     */
+    public long exportAll(final Format format, final WritableByteChannel out) throws IOException {
+        var writer = new Writer(format, out);
+        long count = 0;
+        for (var account : accounts.list()) {
+            count += writer.wallet(account.getPix().get(0), "account", account);
+        }
+        for (var wallet : investments.listWallets()) {
+            count += writer.wallet(wallet.getAccount().getPix().get(0), "investment", wallet);
+        }
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Escritor de uma exportação: monta cada linha em um buffer de texto reaproveitado
+     * e grava os bytes no canal pelo buffer direto.
+     */
+    private static final class Writer {
+
+        /**
+         * Formato de exportação.
+         */
+        private final Format format;
+
+        /**
+         * Canal de destino.
+         */
+        private final WritableByteChannel out;
+
+        /**
+         * Buffer de bytes gravado no canal quando enche.
+         */
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+        /**
+         * Linha em montagem.
+         */
+        private final StringBuilder line = new StringBuilder(256);
+
+        /**
+         * Segundo, em segundos desde a época, do prefixo de data e hora em cache.
+         */
+        private long cachedSecond = Long.MIN_VALUE;
+
+        /**
+         * Deslocamento de fuso do prefixo em cache.
+         */
+        private ZoneOffset cachedOffset;
+
+        /**
+         * Data e hora até os segundos do último registro, como {@code 2024-01-31T10:15:30}.
+         */
+        private String cachedPrefix;
+
+        /**
+         * Sufixo de fuso do último registro, como {@code -03:00}.
+         */
+        private String cachedSuffix;
+
+        private Writer(final Format format, final WritableByteChannel out) throws IOException {
+            this.format = format;
+            this.out = out;
+            if (format == Format.CSV) {
+                line.append(CSV_HEADER);
+                writeLine();
+            }
+        }
+
+        /**
+         * Escreve os registros de uma carteira.
+         *
+         * @return Quantidade de registros escritos
+         */
+        private long wallet(final String pix, final String kind, final Wallet wallet) throws IOException {
+            List<MoneyAudit> transactions = wallet.getFinancialTransactions();
+            long count = 0;
+            for (var audit : transactions) {
+                if (format == Format.CSV) {
+                    appendCsv(pix, kind, audit);
+                } else {
+                    appendJson(pix, kind, audit);
+                }
+                writeLine();
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * Monta a linha CSV de um registro.
+         */
+        private void appendCsv(final String pix, final String kind, final MoneyAudit audit) {
+            csv(pix).append(',').append(kind).append(',').append(audit.transactionId()).append(',');
+            appendTime(audit.createdAt()).append(',').append(audit.type().name())
+                    .append(',').append(audit.targetService().name())
+                    .append(',').append(audit.amount()).append(',');
+            if (audit.counterparty() != null) {
+                csv(audit.counterparty());
+            }
+            line.append(',').append(audit.investmentId()).append('\n');
+        }
+
+        /**
+         * Monta a linha JSON de um registro.
+         */
+        private void appendJson(final String pix, final String kind, final MoneyAudit audit) {
+            line.append("{\"pix\":");
+            FlatJson.quote(line, pix).append(",\"wallet\":\"").append(kind)
+                    .append("\",\"id\":\"").append(audit.transactionId()).append("\",\"createdAt\":\"");
+            appendTime(audit.createdAt()).append("\",\"type\":\"").append(audit.type().name())
+                    .append("\",\"service\":\"").append(audit.targetService().name())
+                    .append("\",\"amount\":").append(audit.amount()).append(",\"counterparty\":");
+            FlatJson.quote(line, audit.counterparty())
+                    .append(",\"investmentId\":").append(audit.investmentId()).append("}\n");
+        }
+
+        /**
+         * Acrescenta um campo CSV, entre aspas se tiver separadores, aspas ou quebras de linha.
+         */
+        private StringBuilder csv(final String value) {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                return line.append(value);
+            }
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                line.append(c);
+                if (c == '"') {
+                    line.append('"');
+                }
+            }
+            return line.append('"');
+        }
+
+        /**
+         * Acrescenta a data e hora no formato ISO-8601 com nanossegundos e fuso,
+         * formatando a parte até os segundos apenas quando o segundo muda.
+         */
+        private StringBuilder appendTime(final OffsetDateTime time) {
+            long second = time.toEpochSecond();
+            if (second != cachedSecond || !time.getOffset().equals(cachedOffset)) {
+                cachedSecond = second;
+                cachedOffset = time.getOffset();
+                cachedPrefix = SECONDS.format(time);
+                cachedSuffix = cachedOffset.getId();
+            }
+            line.append(cachedPrefix).append('.');
+            int nanos = time.getNano();
+            for (int divisor = 100_000_000; divisor > 0; divisor /= 10) {
+                line.append((char) ('0' + nanos / divisor % 10));
+            }
+            return line.append(cachedSuffix);
+        }
+
+        /**
+         * Transfere a linha montada para o buffer de bytes, gravando o buffer no canal quando enche.
+         * Linhas só com caracteres ASCII são copiadas sem codificador.
+         */
+        private void writeLine() throws IOException {
+            int length = line.length();
+            boolean ascii = true;
+            for (int i = 0; i < length && ascii; i++) {
+                ascii = line.charAt(i) < 0x80;
+            }
+            if (ascii) {
+                if (buffer.remaining() < length) {
+                    drain();
+                }
+                if (buffer.remaining() >= length) {
+                    for (int i = 0; i < length; i++) {
+                        buffer.put((byte) line.charAt(i));
+                    }
+                    line.setLength(0);
+                    return;
+                }
+            }
+            write(line.toString().getBytes(StandardCharsets.UTF_8));
+            line.setLength(0);
+        }
+
+        /**
+         * Grava bytes que não cabem ou não foram copiados diretamente para o buffer.
+         */
+        private void write(final byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+            }
+        }
+
+        /**
+         * Grava no canal o conteúdo do buffer.
+         */
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Grava no canal o que restar no buffer.
+         */
+        private void flush() throws IOException {
+            if (buffer.position() > 0) {
+                drain();
+            }
+        }
+    }
+}
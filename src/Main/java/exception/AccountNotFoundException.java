@@ -16,6 +16,6 @@ public class AccountNotFoundException extends RuntimeException {
      *        normalmente incluindo o identificador ou chave PIX utilizada na busca
      */
     public AccountNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
\ No newline at end of file
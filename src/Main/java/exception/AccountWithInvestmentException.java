@@ -18,6 +18,6 @@ public class AccountWithInvestmentException extends RuntimeException {
      *        existente que causou o conflito
      */
     public AccountWithInvestmentException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
\ No newline at end of file
@@ -16,6 +16,6 @@ public class InvestmentNotFoundException extends RuntimeException {
      *        normalmente incluindo o ID ou nome do investimento pesquisado
      */
     public InvestmentNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
\ No newline at end of file
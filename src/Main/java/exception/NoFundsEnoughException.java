@@ -9,13 +9,21 @@ package exception;
  */
 public class NoFundsEnoughException extends RuntimeException {
 
+    /**
+     * Instância compartilhada, com a mensagem padrão de saldo insuficiente.
+     */
+    public static final NoFundsEnoughException INSTANCE =
+            new NoFundsEnoughException("Sua conta nao tem dinheiro o suficiente para realizar essa transacao");
+
     /**
      * Constrói uma nova exceção com a mensagem detalhada especificada.
+     * Saldo insuficiente é um desfecho comum das operações, por isso a exceção não captura
+     * a pilha de chamadas nem aceita exceções suprimidas: rejeitar custa o mesmo que aceitar.
      *
      * @param message a mensagem detalhada que explica o motivo da exceção.
      *        Normalmente inclui informações sobre o saldo atual e o valor requerido.
      */
     public NoFundsEnoughException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
\ No newline at end of file
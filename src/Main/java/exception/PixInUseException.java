@@ -15,6 +15,6 @@ public class PixInUseException extends RuntimeException {
      *               e informações adicionais sobre o erro
      */
     public PixInUseException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
\ No newline at end of file
@@ -8,12 +8,17 @@ package exception;
  */
 public class WalletNotFoundException extends RuntimeException {
 
+    /**
+     * Instância compartilhada, com a mensagem padrão de carteira não encontrada.
+     */
+    public static final WalletNotFoundException INSTANCE = new WalletNotFoundException("A carteira nao foi encontrada");
+
     /**
      * Cria uma nova instância da exceção com uma mensagem de erro específica.
      *
      * @param message A mensagem detalhando o motivo da exceção
      */
     public WalletNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
\ No newline at end of file
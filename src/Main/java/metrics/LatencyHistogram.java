@@ -0,0 +1,179 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latências em nanossegundos, com baldes em escala log-linear no estilo HDR.
+ * <p>
+ * Valores até 63 ns têm baldes exatos; acima disso, cada potência de dois é dividida em 32 baldes,
+ * o que limita o erro relativo a cerca de 3%. Valores acima de {@link #MAX_VALUE} (cerca de 68 s)
+ * caem no último balde. A gravação é livre de travas e custa um único incremento atômico no balde;
+ * contagem, média e máximo são calculados a partir dos baldes na consulta, com a mesma precisão.
+ * </p>
+ */
+public class LatencyHistogram {
+
+    /**
+     * Bits da subdivisão de cada potência de dois.
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * Quantidade de baldes por potência de dois.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Maior valor com balde próprio, em nanossegundos.
+     */
+    public static final long MAX_VALUE = (1L << 36) - 1;
+
+    /**
+     * Quantidade de baldes.
+     */
+    private static final int BUCKETS = indexOf(MAX_VALUE) + 1;
+
+    /**
+     * Contagem de cada balde.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Grava uma latência.
+     *
+     * @param nanos Latência em nanossegundos
+     */
+    public void record(final long nanos) {
+        counts.getAndIncrement(indexOf(Math.max(0, Math.min(nanos, MAX_VALUE))));
+    }
+
+    /**
+     * Retorna a quantidade de valores gravados.
+     *
+     * @return Quantidade de valores
+     */
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Retorna a média dos valores gravados, considerando cada valor pelo ponto médio do seu balde.
+     *
+     * @return Média em nanossegundos, ou zero se não houver valores
+     */
+    public long getMean() {
+        long total = 0;
+        double sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long bucket = counts.get(i);
+            if (bucket != 0) {
+                total += bucket;
+                sum += bucket * ((lowestOf(i) + highestOf(i)) / 2.0);
+            }
+        }
+        return total == 0 ? 0 : Math.round(sum / total);
+    }
+
+    /**
+     * Retorna o maior valor gravado, arredondado para o limite superior do seu balde.
+     *
+     * @return Maior valor em nanossegundos, ou zero se não houver valores
+     */
+    public long getMax() {
+        for (int i = BUCKETS - 1; i >= 0; i--) {
+            if (counts.get(i) != 0) {
+                return highestOf(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Retorna o valor abaixo do qual está a fração informada dos valores gravados,
+     * arredondado para o limite superior do balde.
+     *
+     * @param percentile Percentil, entre 0 e 100
+     * @return Valor do percentil em nanossegundos, ou zero se não houver valores
+     */
+    public long getPercentile(final double percentile) {
+        long total = 0;
+        var snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return highestOf(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Soma os valores de outro histograma a este.
+     *
+     * @param other Histograma cujos valores são somados
+     */
+    public void add(final LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long bucket = other.counts.get(i);
+            if (bucket != 0) {
+                counts.getAndAdd(i, bucket);
+            }
+        }
+    }
+
+    /**
+     * Zera o histograma. Gravações concorrentes podem ser parcialmente preservadas.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    /**
+     * Calcula o balde de um valor.
+     */
+    private static int indexOf(final long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * Calcula o menor valor que cai no balde informado.
+     */
+    private static long lowestOf(final int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+
+    /**
+     * Calcula o maior valor que cai no balde informado.
+     */
+    private static long highestOf(final int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
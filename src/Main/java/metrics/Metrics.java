@@ -0,0 +1,149 @@
+package metrics;
+
+import lombok.NoArgsConstructor;
+import model.OperationResult;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Classe utilitária que mede as operações dos repositórios.
+ * <p>
+ * Cada operação instrumentada marca o início com {@link #start()} e, ao terminar, grava a latência
+ * com {@link #success(Operation, long)} ou {@link #failure(Operation, long, RuntimeException)};
+ * operações que descrevem a rejeição em um {@link OperationResult} usam {@link #complete(Operation, long, OperationResult)}.
+ * A medição pode ser desligada com a propriedade de sistema {@code pixbank.metrics=false};
+ * nesse caso o relógio não é consultado e nada é gravado.
+ * </p>
+ */
+@NoArgsConstructor(access = PRIVATE)
+public final class Metrics {
+
+    /**
+     * Indica se a medição está ligada.
+     */
+    private static final boolean ENABLED = !"false".equals(System.getProperty("pixbank.metrics"));
+
+    /**
+     * Operações indexadas pela posição na enumeração.
+     */
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    /**
+     * Métricas de cada operação, indexadas pela posição na enumeração.
+     */
+    private static final OperationStats[] STATS = new OperationStats[OPERATIONS.length];
+
+    static {
+        for (var operation : OPERATIONS) {
+            STATS[operation.ordinal()] = new OperationStats(operation);
+        }
+    }
+
+    /**
+     * Marca o início de uma operação.
+     *
+     * @return Instante de início em nanossegundos, ou zero se a medição estiver desligada
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Grava uma execução concluída com sucesso.
+     *
+     * @param operation Operação executada
+     * @param start Instante retornado por {@link #start()}
+     */
+    public static void success(final Operation operation, final long start) {
+        if (ENABLED) {
+            STATS[operation.ordinal()].record(Outcome.SUCCESS, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Grava uma execução interrompida por exceção, classificada pelo tipo da exceção.
+     *
+     * @param operation Operação executada
+     * @param start Instante retornado por {@link #start()}
+     * @param error Exceção lançada pela operação
+     */
+    public static void failure(final Operation operation, final long start, final RuntimeException error) {
+        if (ENABLED) {
+            STATS[operation.ordinal()].record(Outcome.of(error), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Grava uma execução concluída com o resultado informado: sucesso, ou a rejeição classificada pelo motivo.
+     *
+     * @param operation Operação executada
+     * @param start Instante retornado por {@link #start()}
+     * @param result Resultado da operação
+     */
+    public static void complete(final Operation operation, final long start, final OperationResult<?> result) {
+        if (ENABLED) {
+            var outcome = result instanceof OperationResult.Rejected<?> rejected
+                    ? Outcome.of(rejected.reason()) : Outcome.SUCCESS;
+            STATS[operation.ordinal()].record(outcome, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Retorna as métricas de uma operação.
+     *
+     * @param operation Operação
+     * @return Métricas da operação
+     */
+    public static OperationStats stats(final Operation operation) {
+        return STATS[operation.ordinal()];
+    }
+
+    /**
+     * Monta um relatório em texto com uma linha por operação e por desfecho ocorrido.
+     * Latências em nanossegundos.
+     *
+     * @return O relatório
+     */
+    public static String dump() {
+        var out = new StringBuilder(1024);
+        if (!ENABLED) {
+            return out.append("Metricas desligadas (pixbank.metrics=false)").append(System.lineSeparator()).toString();
+        }
+        for (var stats : STATS) {
+            stats.dump(out);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Zera as métricas de todas as operações.
+     */
+    public static void reset() {
+        for (var stats : STATS) {
+            stats.reset();
+        }
+    }
+
+    /**
+     * Registra as métricas de cada operação no servidor JMX da plataforma,
+     * com nomes {@code pixbank:type=Operation,name=<operação>}.
+     * Registros já existentes são mantidos.
+     */
+    public static void registerMBeans() {
+        var server = ManagementFactory.getPlatformMBeanServer();
+        for (var stats : STATS) {
+            try {
+                var name = new ObjectName("pixbank:type=Operation,name=" + stats.getOperation().metricName());
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(stats, name);
+                }
+            } catch (JMException e) {
+                System.err.println("Erro ao registrar as metricas no JMX: " + e.getMessage());
+            }
+        }
+    }
+}
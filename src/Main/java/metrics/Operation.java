@@ -0,0 +1,70 @@
+package metrics;
+
+/**
+ * Operações dos repositórios instrumentadas com contadores e histogramas de latência.
+ */
+public enum Operation {
+
+    /**
+     * {@code AccountRepository.deposit}.
+     */
+    ACCOUNT_DEPOSIT("account.deposit"),
+
+    /**
+     * {@code AccountRepository.withdraw}.
+     */
+    ACCOUNT_WITHDRAW("account.withdraw"),
+
+    /**
+     * {@code AccountRepository.transferMoney}.
+     */
+    ACCOUNT_TRANSFER("account.transfer"),
+
+    /**
+     * {@code AccountRepository.transferBatch}; ordens rejeitadas não tornam o lote uma falha.
+     */
+    ACCOUNT_TRANSFER_BATCH("account.transferBatch"),
+
+    /**
+     * {@code AccountRepository.findByPix}.
+     */
+    ACCOUNT_FIND("account.find"),
+
+    /**
+     * {@code InvestmentRepository.initInvestment}.
+     */
+    INVESTMENT_OPEN("investment.open"),
+
+    /**
+     * {@code InvestmentRepository.deposit}.
+     */
+    INVESTMENT_DEPOSIT("investment.deposit"),
+
+    /**
+     * {@code InvestmentRepository.withdraw}.
+     */
+    INVESTMENT_WITHDRAW("investment.withdraw"),
+
+    /**
+     * {@code InvestmentRepository.updateAmount}.
+     */
+    INVESTMENT_YIELD("investment.yield");
+
+    /**
+     * Nome da operação nas métricas exportadas.
+     */
+    private final String metricName;
+
+    Operation(final String metricName) {
+        this.metricName = metricName;
+    }
+
+    /**
+     * Retorna o nome da operação nas métricas exportadas.
+     *
+     * @return Nome da operação
+     */
+    public String metricName() {
+        return metricName;
+    }
+}
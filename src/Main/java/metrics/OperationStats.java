@@ -0,0 +1,207 @@
+package metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Métricas de uma operação dos repositórios: um histograma de latências por desfecho.
+ * As contagens por desfecho são as contagens dos histogramas; os totais da operação são obtidos
+ * somando os histogramas no momento da consulta, de modo que cada execução grava em um único histograma.
+ */
+public class OperationStats implements OperationStatsMXBean {
+
+    /**
+     * Desfechos indexados pela posição na enumeração.
+     */
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    /**
+     * Operação medida.
+     */
+    private final Operation operation;
+
+    /**
+     * Histogramas por desfecho, criados na primeira ocorrência de cada desfecho.
+     */
+    private final AtomicReferenceArray<LatencyHistogram> histograms = new AtomicReferenceArray<>(OUTCOMES.length);
+
+    /**
+     * Cria as métricas de uma operação.
+     *
+     * @param operation Operação medida
+     */
+    public OperationStats(final Operation operation) {
+        this.operation = operation;
+        histograms.set(Outcome.SUCCESS.ordinal(), new LatencyHistogram());
+    }
+
+    /**
+     * Grava uma execução da operação.
+     *
+     * @param outcome Desfecho da execução
+     * @param nanos Latência em nanossegundos
+     */
+    public void record(final Outcome outcome, final long nanos) {
+        histogram(outcome).record(nanos);
+    }
+
+    /**
+     * Retorna a operação medida.
+     *
+     * @return A operação
+     */
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Retorna a quantidade de execuções, somando todos os desfechos.
+     *
+     * @return Quantidade de execuções
+     */
+    @Override
+    public long getCount() {
+        return total().getCount();
+    }
+
+    /**
+     * Retorna a quantidade de execuções interrompidas por exceção.
+     *
+     * @return Quantidade de falhas
+     */
+    @Override
+    public long getFailures() {
+        return getCount() - histogram(Outcome.SUCCESS).getCount();
+    }
+
+    /**
+     * Retorna a quantidade de execuções por desfecho, apenas dos desfechos ocorridos.
+     *
+     * @return Contagens indexadas pelo nome do desfecho
+     */
+    @Override
+    public Map<String, Long> getOutcomes() {
+        var outcomes = new LinkedHashMap<String, Long>();
+        for (var outcome : OUTCOMES) {
+            var histogram = histograms.get(outcome.ordinal());
+            if (histogram != null && histogram.getCount() > 0) {
+                outcomes.put(outcome.name(), histogram.getCount());
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * Retorna a latência média de todas as execuções.
+     *
+     * @return Média em nanossegundos
+     */
+    @Override
+    public long getMeanNanos() {
+        return total().getMean();
+    }
+
+    /**
+     * Retorna a mediana da latência de todas as execuções.
+     *
+     * @return Percentil 50 em nanossegundos
+     */
+    @Override
+    public long getP50Nanos() {
+        return total().getPercentile(50);
+    }
+
+    /**
+     * Retorna o percentil 99 da latência de todas as execuções.
+     *
+     * @return Percentil 99 em nanossegundos
+     */
+    @Override
+    public long getP99Nanos() {
+        return total().getPercentile(99);
+    }
+
+    /**
+     * Retorna o percentil 99,9 da latência de todas as execuções.
+     *
+     * @return Percentil 99,9 em nanossegundos
+     */
+    @Override
+    public long getP999Nanos() {
+        return total().getPercentile(99.9);
+    }
+
+    /**
+     * Retorna a maior latência entre todas as execuções.
+     *
+     * @return Maior latência em nanossegundos
+     */
+    @Override
+    public long getMaxNanos() {
+        return total().getMax();
+    }
+
+    /**
+     * Zera os histogramas de todos os desfechos.
+     */
+    @Override
+    public void reset() {
+        for (int i = 0; i < OUTCOMES.length; i++) {
+            var histogram = histograms.get(i);
+            if (histogram != null) {
+                histogram.reset();
+            }
+        }
+    }
+
+    /**
+     * Escreve uma linha de texto com os totais da operação e uma linha por desfecho com ocorrências.
+     *
+     * @param out Destino do texto
+     */
+    public void dump(final StringBuilder out) {
+        appendLine(out, operation.metricName(), total());
+        for (var outcome : OUTCOMES) {
+            var histogram = histograms.get(outcome.ordinal());
+            if (histogram != null && histogram.getCount() > 0) {
+                appendLine(out, "  " + outcome.name().toLowerCase(), histogram);
+            }
+        }
+    }
+
+    /**
+     * Escreve uma linha com a contagem e as latências de um histograma.
+     */
+    private static void appendLine(final StringBuilder out, final String name, final LatencyHistogram histogram) {
+        out.append(String.format("%-24s count=%-10d mean=%-8d p50=%-8d p99=%-8d p99.9=%-8d max=%d%n",
+                name, histogram.getCount(), histogram.getMean(), histogram.getPercentile(50),
+                histogram.getPercentile(99), histogram.getPercentile(99.9), histogram.getMax()));
+    }
+
+    /**
+     * Retorna o histograma de um desfecho, criando-o na primeira ocorrência.
+     */
+    private LatencyHistogram histogram(final Outcome outcome) {
+        var histogram = histograms.get(outcome.ordinal());
+        if (histogram == null) {
+            histograms.compareAndSet(outcome.ordinal(), null, new LatencyHistogram());
+            histogram = histograms.get(outcome.ordinal());
+        }
+        return histogram;
+    }
+
+    /**
+     * Soma os histogramas de todos os desfechos.
+     */
+    private LatencyHistogram total() {
+        var total = new LatencyHistogram();
+        for (int i = 0; i < OUTCOMES.length; i++) {
+            var histogram = histograms.get(i);
+            if (histogram != null) {
+                total.add(histogram);
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,71 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * Interface JMX com as métricas de uma operação dos repositórios.
+ * Latências em nanossegundos, consideradas todas as execuções, com sucesso ou não.
+ */
+public interface OperationStatsMXBean {
+
+    /**
+     * Retorna a quantidade de execuções.
+     *
+     * @return Quantidade de execuções
+     */
+    long getCount();
+
+    /**
+     * Retorna a quantidade de execuções interrompidas por exceção.
+     *
+     * @return Quantidade de falhas
+     */
+    long getFailures();
+
+    /**
+     * Retorna a quantidade de execuções por desfecho.
+     *
+     * @return Contagens indexadas pelo nome do desfecho
+     */
+    Map<String, Long> getOutcomes();
+
+    /**
+     * Retorna a latência média.
+     *
+     * @return Média em nanossegundos
+     */
+    long getMeanNanos();
+
+    /**
+     * Retorna a mediana da latência.
+     *
+     * @return Percentil 50 em nanossegundos
+     */
+    long getP50Nanos();
+
+    /**
+     * Retorna o percentil 99 da latência.
+     *
+     * @return Percentil 99 em nanossegundos
+     */
+    long getP99Nanos();
+
+    /**
+     * Retorna o percentil 99,9 da latência.
+     *
+     * @return Percentil 99,9 em nanossegundos
+     */
+    long getP999Nanos();
+
+    /**
+     * Retorna a maior latência.
+     *
+     * @return Maior latência em nanossegundos
+     */
+    long getMaxNanos();
+
+    /**
+     * Zera as métricas da operação.
+     */
+    void reset();
+}
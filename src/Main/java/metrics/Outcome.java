@@ -0,0 +1,99 @@
+package metrics;
+
+import exception.AccountNotFoundException;
+import exception.AccountWithInvestmentException;
+import exception.InvestmentNotFoundException;
+import exception.NoFundsEnoughException;
+import exception.PixInUseException;
+import exception.WalletNotFoundException;
+import model.OperationResult;
+
+/**
+ * Resultado de uma operação medida, usado para separar contagens e latências por desfecho.
+ */
+public enum Outcome {
+
+    /**
+     * Operação concluída com sucesso.
+     */
+    SUCCESS,
+
+    /**
+     * Rejeitada por saldo insuficiente ({@link NoFundsEnoughException}).
+     */
+    NO_FUNDS,
+
+    /**
+     * Rejeitada por conta inexistente ({@link AccountNotFoundException}).
+     */
+    ACCOUNT_NOT_FOUND,
+
+    /**
+     * Rejeitada por carteira de investimento inexistente ({@link WalletNotFoundException}).
+     */
+    WALLET_NOT_FOUND,
+
+    /**
+     * Rejeitada por tipo de investimento inexistente ({@link InvestmentNotFoundException}).
+     */
+    INVESTMENT_NOT_FOUND,
+
+    /**
+     * Rejeitada por conflito de cadastro ({@link PixInUseException} ou {@link AccountWithInvestmentException}).
+     */
+    CONFLICT,
+
+    /**
+     * Rejeitada por parâmetro inválido ({@link IllegalArgumentException}).
+     */
+    INVALID_ARGUMENT,
+
+    /**
+     * Falha por qualquer outra exceção.
+     */
+    ERROR;
+
+    /**
+     * Classifica a exceção que interrompeu uma operação.
+     *
+     * @param error Exceção lançada pela operação
+     * @return O desfecho correspondente
+     */
+    public static Outcome of(final Throwable error) {
+        if (error instanceof NoFundsEnoughException) {
+            return NO_FUNDS;
+        }
+        if (error instanceof AccountNotFoundException) {
+            return ACCOUNT_NOT_FOUND;
+        }
+        if (error instanceof WalletNotFoundException) {
+            return WALLET_NOT_FOUND;
+        }
+        if (error instanceof InvestmentNotFoundException) {
+            return INVESTMENT_NOT_FOUND;
+        }
+        if (error instanceof PixInUseException || error instanceof AccountWithInvestmentException) {
+            return CONFLICT;
+        }
+        if (error instanceof IllegalArgumentException) {
+            return INVALID_ARGUMENT;
+        }
+        return ERROR;
+    }
+
+    /**
+     * Classifica o motivo de uma operação rejeitada sem exceção.
+     *
+     * @param reason Motivo da rejeição
+     * @return O desfecho correspondente
+     */
+    public static Outcome of(final OperationResult.Reason reason) {
+        return switch (reason) {
+            case NO_FUNDS -> NO_FUNDS;
+            case ACCOUNT_NOT_FOUND -> ACCOUNT_NOT_FOUND;
+            case WALLET_NOT_FOUND -> WALLET_NOT_FOUND;
+            case INVESTMENT_NOT_FOUND -> INVESTMENT_NOT_FOUND;
+            case INVALID_AMOUNT -> INVALID_ARGUMENT;
+        };
+    }
+}
@@ -23,12 +23,22 @@ public class AccountWallet extends Wallet {
      *
      * @param amount Valor inicial do depósito (em centavos)
      * @param pix Lista de chaves PIX associadas à conta
-     * @param depositDescription Descrição do depósito inicial
      */
-    public AccountWallet(final long amount, final List<String> pix, final String depositDescription) {
+    public AccountWallet(final long amount, final List<String> pix) {
+        super(ACCOUNT);
+        this.pix = pix;
+        this.addMoney(amount, TransactionType.INITIAL_DEPOSIT);
+    }
+
+    /**
+     * Constrói uma conta bancária sem saldo e sem histórico.
+     * Usado na recuperação do estado, onde o saldo é restaurado em seguida.
+     *
+     * @param pix Lista de chaves PIX associadas à conta
+     */
+    public AccountWallet(final List<String> pix) {
         super(ACCOUNT);
         this.pix = pix;
-        this.addMoney(amount, depositDescription);
     }
 
     /**
@@ -41,7 +51,7 @@ public class AccountWallet extends Wallet {
     public String toString() {
         return "AccountWallet{" +
                 "pix=" + pix +
-                ", balance=R$" + (getFunds() / 100) + "," + String.format("%02d", getFunds() % 100) +
+                ", balance=" + MoneyFormatter.format(getFunds()) +
                 '}';
     }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package model;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Fonte dos identificadores e instantes dos registros de auditoria.
+ * A implementação em uso é obtida por {@link AuditClocks#current()}.
+ */
+public interface AuditClock {
+
+    /**
+     * Implementação com identificadores aleatórios ({@link UUID#randomUUID()}) e o relógio do sistema
+     * consultado a cada chamada. Os identificadores não seguem a ordem de criação.
+     */
+    AuditClock SYSTEM = new AuditClock() {
+        @Override
+        public UUID nextId() {
+            return UUID.randomUUID();
+        }
+
+        @Override
+        public OffsetDateTime now() {
+            return OffsetDateTime.now();
+        }
+    };
+
+    /**
+     * Gera um novo identificador de transação.
+     *
+     * @return Identificador único
+     */
+    UUID nextId();
+
+    /**
+     * Retorna a data e hora atuais para o registro de uma transação.
+     *
+     * @return Data e hora atuais
+     */
+    OffsetDateTime now();
+}
@@ -0,0 +1,39 @@
+package model;
+
+import lombok.NoArgsConstructor;
+
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Classe utilitária que guarda a fonte de identificadores e instantes usada nos registros de auditoria.
+ * Por padrão é usada a {@link TimeOrderedAuditClock}; com a propriedade de sistema
+ * {@code pixbank.audit.clock=system}, é usada a {@link AuditClock#SYSTEM}.
+ */
+@NoArgsConstructor(access = PRIVATE)
+public final class AuditClocks {
+
+    /**
+     * Fonte em uso.
+     */
+    private static volatile AuditClock current = "system".equals(System.getProperty("pixbank.audit.clock"))
+            ? AuditClock.SYSTEM
+            : new TimeOrderedAuditClock();
+
+    /**
+     * Retorna a fonte de identificadores e instantes em uso.
+     *
+     * @return A fonte em uso
+     */
+    public static AuditClock current() {
+        return current;
+    }
+
+    /**
+     * Substitui a fonte de identificadores e instantes usada nos próximos registros.
+     *
+     * @param clock Nova fonte
+     */
+    public static void use(final AuditClock clock) {
+        current = clock;
+    }
+}
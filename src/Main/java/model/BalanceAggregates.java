@@ -0,0 +1,204 @@
+package model;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Agregados incrementais do histórico de uma carteira: créditos, débitos e saldo de fechamento
+ * por dia e por mês.
+ * <p>
+ * Os totais são atualizados a cada transação registrada, de modo que consultas como
+ * "saldo ao final do dia" ou "entradas e saídas do mês" custam O(períodos), sem percorrer o histórico.
+ * Os períodos são calculados no fuso horário do sistema e apenas períodos com movimentação são mantidos.
+ * </p>
+ * <p>
+ * Ajustes de saldo sem registro no histórico, como os da recuperação do estado, entram no saldo de abertura.
+ * </p>
+ */
+public class BalanceAggregates {
+
+    /**
+     * Fuso horário usado para determinar o dia e o mês de cada transação.
+     */
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    /**
+     * Totais diários, indexados pelo dia desde a época.
+     */
+    private final PeriodSeries daily = new PeriodSeries();
+
+    /**
+     * Totais mensais, indexados pelo mês desde o ano zero.
+     */
+    private final PeriodSeries monthly = new PeriodSeries();
+
+    /**
+     * Saldo anterior à primeira transação registrada (em centavos).
+     */
+    private long opening;
+
+    /**
+     * Registra uma transação nos totais do seu dia e do seu mês.
+     *
+     * @param at Data e hora da transação
+     * @param credit Valor creditado (em centavos), ou zero
+     * @param debit Valor debitado (em centavos), ou zero
+     */
+    public synchronized void record(final OffsetDateTime at, final long credit, final long debit) {
+        var day = LocalDate.ofInstant(at.toInstant(), ZONE);
+        daily.record(day.toEpochDay(), credit, debit);
+        monthly.record(monthKey(YearMonth.from(day)), credit, debit);
+    }
+
+    /**
+     * Soma um ajuste ao saldo de abertura, refletido em todos os saldos de fechamento.
+     *
+     * @param delta Valor a ser somado (negativo para débitos), em centavos
+     */
+    public synchronized void adjustOpening(final long delta) {
+        opening += delta;
+    }
+
+    /**
+     * Retorna o saldo ao final de um dia.
+     *
+     * @param day Dia consultado
+     * @return Saldo ao final do dia (em centavos)
+     */
+    public synchronized long balanceAt(final LocalDate day) {
+        int index = daily.floor(day.toEpochDay());
+        return index < 0 ? opening : opening + daily.net[index];
+    }
+
+    /**
+     * Retorna os totais dos dias com movimentação em um intervalo.
+     *
+     * @param from Primeiro dia (inclusivo)
+     * @param to Último dia (inclusivo)
+     * @return Totais de cada dia com movimentação, em ordem cronológica
+     */
+    public synchronized List<PeriodTotals> daily(final LocalDate from, final LocalDate to) {
+        var totals = new ArrayList<PeriodTotals>();
+        for (int i = daily.ceiling(from.toEpochDay()); i < daily.size && daily.keys[i] <= to.toEpochDay(); i++) {
+            totals.add(daily.totals(i, LocalDate.ofEpochDay(daily.keys[i]), opening));
+        }
+        return totals;
+    }
+
+    /**
+     * Retorna os totais dos meses com movimentação em um intervalo.
+     *
+     * @param from Primeiro mês (inclusivo)
+     * @param to Último mês (inclusivo)
+     * @return Totais de cada mês com movimentação, em ordem cronológica
+     */
+    public synchronized List<PeriodTotals> monthly(final YearMonth from, final YearMonth to) {
+        var totals = new ArrayList<PeriodTotals>();
+        for (int i = monthly.ceiling(monthKey(from)); i < monthly.size && monthly.keys[i] <= monthKey(to); i++) {
+            long key = monthly.keys[i];
+            totals.add(monthly.totals(i, LocalDate.of((int) (key / 12), (int) (key % 12) + 1, 1), opening));
+        }
+        return totals;
+    }
+
+    /**
+     * Converte um mês na chave usada na série mensal.
+     */
+    private static long monthKey(final YearMonth month) {
+        return month.getYear() * 12L + month.getMonthValue() - 1;
+    }
+
+    /**
+     * Série de totais por período, em vetores primitivos ordenados pela chave do período.
+     * Guarda, para cada período, a variação acumulada do saldo até o seu final.
+     */
+    private static final class PeriodSeries {
+
+        /**
+         * Vetor vazio compartilhado pelas séries sem períodos, que só alocam na primeira transação.
+         */
+        private static final long[] EMPTY = new long[0];
+
+        private long[] keys = EMPTY;
+
+        private long[] credits = EMPTY;
+
+        private long[] debits = EMPTY;
+
+        private long[] net = EMPTY;
+
+        private int size;
+
+        /**
+         * Soma uma transação ao período informado. Transações chegam quase sempre no último período;
+         * as que chegam atrasadas a um período anterior atualizam os acumulados seguintes.
+         */
+        private void record(final long key, final long credit, final long debit) {
+            int index;
+            if (size > 0 && keys[size - 1] == key) {
+                index = size - 1;
+            } else {
+                index = Arrays.binarySearch(keys, 0, size, key);
+                if (index < 0) {
+                    index = insert(-index - 1, key);
+                }
+            }
+            credits[index] += credit;
+            debits[index] += debit;
+            for (int i = index; i < size; i++) {
+                net[i] += credit - debit;
+            }
+        }
+
+        /**
+         * Insere um período vazio na posição informada, herdando o acumulado do período anterior.
+         */
+        private int insert(final int index, final long key) {
+            if (size == keys.length) {
+                int capacity = Math.max(4, size * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                credits = Arrays.copyOf(credits, capacity);
+                debits = Arrays.copyOf(debits, capacity);
+                net = Arrays.copyOf(net, capacity);
+            }
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(credits, index, credits, index + 1, size - index);
+            System.arraycopy(debits, index, debits, index + 1, size - index);
+            System.arraycopy(net, index, net, index + 1, size - index);
+            keys[index] = key;
+            credits[index] = 0;
+            debits[index] = 0;
+            net[index] = index > 0 ? net[index - 1] : 0;
+            size++;
+            return index;
+        }
+
+        /**
+         * Retorna a posição do último período com chave menor ou igual à informada, ou -1 se não houver.
+         */
+        private int floor(final long key) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            return index >= 0 ? index : -index - 2;
+        }
+
+        /**
+         * Retorna a posição do primeiro período com chave maior ou igual à informada.
+         */
+        private int ceiling(final long key) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        /**
+         * Monta os totais do período na posição informada.
+         */
+        private PeriodTotals totals(final int index, final LocalDate start, final long opening) {
+            return new PeriodTotals(start, credits[index], debits[index], opening + net[index]);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package model;
+
+import java.util.List;
+
+/**
+ * Resultado do processamento de um lote de transações.
+ *
+ * @param committed Quantidade de transações aplicadas
+ * @param rejected Posições, no lote, das transações rejeitadas
+ */
+public record BatchResult(
+        int committed,
+        List<Integer> rejected)
+{
+}
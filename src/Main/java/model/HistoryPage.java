@@ -0,0 +1,23 @@
+package model;
+
+import java.util.List;
+
+/**
+ * Página de uma consulta ao histórico de transações de uma carteira.
+ *
+ * @param transactions Registros da página, em ordem cronológica
+ * @param nextToken Token para buscar a próxima página da mesma consulta, ou {@code null} se esta for a última
+ */
+public record HistoryPage(
+        List<MoneyAudit> transactions,
+        String nextToken)
+{
+    /**
+     * Indica se há mais registros após esta página.
+     *
+     * @return {@code true} se houver uma próxima página
+     */
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+}
@@ -27,7 +27,7 @@ public record Investment(
                 "id=" + id +
                 ", nome=" + nome +
                 ", tax=" + tax + "%" +
-                ", initialFunds=" + (initialFunds / 100) + "," + (initialFunds % 100) +
+                ", initialFunds=" + MoneyFormatter.format(initialFunds) +
                 '}';
     }
 }
\ No newline at end of file
@@ -3,8 +3,6 @@ package model;
 import lombok.Getter;
 
 import java.time.OffsetDateTime;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.UUID;
 
 import static model.BankService.INVESTMENT;
@@ -12,9 +10,11 @@ import static model.BankService.INVESTMENT;
 /**
  * Representa uma carteira de investimento associada a uma conta bancária.
  * Gerencia operações específicas de investimentos como aplicações, resgates e rendimentos.
+ * Saldo, histórico e agregados são os de {@link Wallet}, atualizados pelos mesmos caminhos
+ * de crédito e débito das contas.
  */
 @Getter
-public class InvestmentWallet extends Wallet {
+public final class InvestmentWallet extends Wallet {
 
     /**
      * Tipo de investimento associado a esta carteira.
@@ -27,14 +27,10 @@ public class InvestmentWallet extends Wallet {
     private final AccountWallet account;
 
     /**
-     * Saldo atual do investimento em centavos.
+     * Indica se a carteira foi encerrada por ter sido totalmente resgatada.
+     * Alterado com a trava da carteira, junto da movimentação que a esvaziou.
      */
-    private long balance; // saldo em centavos
-
-    /**
-     * Histórico de transações específicas deste investimento.
-     */
-    private final List<MoneyAudit> transactionHistory = new ArrayList<>();
+    private volatile boolean closed;
 
     /**
      * Cria uma nova carteira de investimento vinculada a uma conta.
@@ -48,90 +44,57 @@ public class InvestmentWallet extends Wallet {
         this.investment = investment;
         this.account = account;
 
-        // Descrição para a retirada da conta
-        String withdrawalDescription = "Aplicação inicial em investimento " + investment.id() + " " +
-                " no valor de R$" + (investment.initialFunds() / 100) +
-                "," + String.format("%02d", investment.initialFunds() % 100);
-
-        // Remove o valor da conta com registro
-        this.balance = account.reduceMoney(amount, withdrawalDescription);
-
-        // Registra a criação do investimento
-        this.transactionHistory.add(new MoneyAudit(
-                UUID.randomUUID(),
-                INVESTMENT,
-                "Investimento inicial: R$" + (amount/100) + "," + String.format("%02d", amount%100),
-                OffsetDateTime.now()
-        ));
-
-        // Registra na conta o investimento realizado
-        account.getFinancialTransactions().add(new MoneyAudit(
-                UUID.randomUUID(),
-                INVESTMENT,
-                "Aplicação em " + investment.id(),
-                OffsetDateTime.now()
-        ));
-    }
-
-    /**
-     * Adiciona um valor ao saldo do investimento e registra a transação.
-     *
-     * @param amount Valor a ser adicionado (em centavos)
-     * @param description Descrição da operação
-     */
-    public void addMoney(long amount, String description) {
-        this.balance += amount;
-        this.transactionHistory.add(new MoneyAudit(
-                UUID.randomUUID(),
-                INVESTMENT,
-                description,
-                OffsetDateTime.now()
-        ));
+        // Remove o valor da conta com registro e registra a criação do investimento, no espaço
+        // reservado antes do débito
+        int reservation = reserveAudit(null);
+        addMoney(account.reduceMoney(amount, TransactionType.INVESTMENT_APPLICATION, null, investment.id()),
+                TransactionType.INVESTMENT_INITIAL, null, investment.id(), reservation);
     }
 
     /**
-     * Reduz o saldo do investimento sem registro de transação.
+     * Cria uma carteira de investimento vazia, sem movimentar a conta associada.
+     * Usado na recuperação do estado, onde o saldo é restaurado em seguida.
      *
-     * @param amount Valor a ser reduzido (em centavos)
-     * @return O valor reduzido
+     * @param investment Tipo de investimento
+     * @param account Conta bancária associada
      */
-    public long reduceMoney(long amount) {
-        this.balance -= amount;
-        return amount;
+    public InvestmentWallet(final Investment investment, final AccountWallet account) {
+        super(INVESTMENT);
+        this.investment = investment;
+        this.account = account;
     }
 
     /**
-     * Retorna o saldo atual do investimento.
+     * Atualiza o valor do investimento aplicando a porcentagem de rendimento.
      *
-     * @return Saldo em centavos
+     * @param percent Porcentagem de rendimento a ser aplicada
+     * @return O rendimento creditado (em centavos)
      */
-    public long getFunds() {
-        return this.balance;
+    public long updateAmount(final long percent) {
+        var clock = AuditClocks.current();
+        return updateAmount(percent, clock.nextId(), clock.now());
     }
 
     /**
-     * Atualiza o valor do investimento aplicando a porcentagem de rendimento.
+     * Atualiza o valor do investimento aplicando a porcentagem de rendimento,
+     * registrando a transação com o identificador e o instante de um lote de atualização.
+     * O rendimento é calculado e creditado sobre o mesmo saldo, em um único passo atômico.
      *
      * @param percent Porcentagem de rendimento a ser aplicada
+     * @param batchId Identificador do lote de atualização
+     * @param appliedAt Instante do lote de atualização
+     * @return O rendimento creditado (em centavos)
      */
-    public void updateAmount(final long percent) {
-        long earnings = this.balance * percent / 100;
-        this.balance += earnings;
-        this.transactionHistory.add(new MoneyAudit(
-                UUID.randomUUID(),
-                INVESTMENT,
-                "rendimentos (" + percent + "%)",
-                OffsetDateTime.now()
-        ));
+    public long updateAmount(final long percent, final UUID batchId, final OffsetDateTime appliedAt) {
+        return creditFromBalance(current -> current * percent / 100, TransactionType.YIELD, investment.id(),
+                batchId, appliedAt);
     }
 
     /**
-     * Retorna uma cópia do histórico de transações do investimento.
-     *
-     * @return Lista de transações financeiras
+     * Encerra a carteira; movimentações posteriores sobre ela são rejeitadas.
      */
-    public List<MoneyAudit> getFinancialTransactions() {
-        return new ArrayList<>(this.transactionHistory);
+    public void markClosed() {
+        this.closed = true;
     }
 
     /**
@@ -144,7 +107,7 @@ public class InvestmentWallet extends Wallet {
         return "InvestmentWallet{" +
                 "investment=" + investment +
                 ", account=" + account +
-                ", balance=" + (balance / 100) + "," + (balance % 100) +
+                ", balance=" + MoneyFormatter.format(balance) +
                 '}';
     }
-}
\ No newline at end of file
+}
@@ -8,8 +8,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Classe que representa uma unidade monetária com histórico de transações.
- * Cada instância mantém um rastreamento completo das operações financeiras realizadas.
+ * Classe que representa uma quantia monetária com histórico de transações.
+ * Uma única instância representa o valor inteiro, em centavos, e mantém um rastreamento
+ * completo das operações financeiras realizadas sobre ele.
  */
 @EqualsAndHashCode
 @ToString
@@ -17,21 +18,32 @@ import java.util.List;
 public class Money {
 
     /**
-     * Lista de registros de auditoria que compõem o histórico financeiro desta unidade monetária.
+     * Valor representado, em centavos.
+     */
+    private final long amount;
+
+    /**
+     * Lista de registros de auditoria que compõem o histórico financeiro desta quantia.
      */
     private final List<MoneyAudit> history = new ArrayList<>();
 
     /**
-     * Cria uma nova unidade monetária com um registro inicial de histórico.
+     * Cria uma nova quantia monetária com um registro inicial de histórico.
      *
+     * @param amount Valor da quantia (em centavos)
      * @param history O registro de auditoria inicial associado a este dinheiro
+     * @throws IllegalArgumentException Se o valor for negativo
      */
-    public Money(final MoneyAudit history) {
+    public Money(final long amount, final MoneyAudit history) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Valor nao pode ser negativo");
+        }
+        this.amount = amount;
         this.history.add(history);
     }
 
     /**
-     * Adiciona um novo registro ao histórico desta unidade monetária.
+     * Adiciona um novo registro ao histórico desta quantia.
      *
      * @param history O registro de auditoria a ser adicionado ao histórico
      */
@@ -5,22 +5,37 @@ import java.util.UUID;
 
 /**
  * Representa um registro de auditoria financeira para transações monetárias.
- * Contém informações sobre operações financeiras realizadas no sistema.
+ * Contém os dados estruturados das operações financeiras realizadas no sistema;
+ * a descrição legível é gerada apenas quando solicitada.
  *
  * @param transactionId Identificador único da transação
  * @param targetService Serviço bancário de destino da operação
- * @param description Descrição detalhada da transação
+ * @param type Tipo da transação
+ * @param amount Valor da transação (em centavos)
+ * @param counterparty Chave PIX da contraparte, ou {@code null} se não houver
+ * @param investmentId ID do investimento envolvido, ou {@link #NO_INVESTMENT} se não houver
  * @param createdAt Data e hora em que a transação foi criada
  */
 public record MoneyAudit(
         UUID transactionId,
         BankService targetService,
-        String description,
+        TransactionType type,
+        long amount,
+        String counterparty,
+        long investmentId,
         OffsetDateTime createdAt)
 {
-    // O record já fornece automaticamente:
-    // - Campos final e imutáveis
-    // - Construtor padrão
-    // - Métodos equals(), hashCode() e toString()
-    // - Métodos de acesso para cada componente
-}
\ No newline at end of file
+    /**
+     * Valor de {@code investmentId} para transações sem investimento envolvido.
+     */
+    public static final long NO_INVESTMENT = 0;
+
+    /**
+     * Gera a descrição detalhada da transação a partir dos seus campos.
+     *
+     * @return Descrição legível da transação
+     */
+    public String description() {
+        return type.describe(amount, counterparty, investmentId);
+    }
+}
@@ -0,0 +1,103 @@
+package model;
+
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Classe utilitária para formatação de valores em reais (BRL).
+ * Converte valores em centavos para o formato "R$1.234,56", com separador de milhares
+ * e sinal de menos à frente para valores negativos ("-R$1.234,56").
+ * Os dígitos são escritos diretamente no destino, sem uso de {@link String#format}
+ * e sem objetos intermediários.
+ */
+@NoArgsConstructor(access = PRIVATE)
+public final class MoneyFormatter {
+
+    /**
+     * Buffer reutilizado por thread em {@link #format(long)}.
+     */
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(32));
+
+    /**
+     * Formata um valor em centavos como texto em reais.
+     *
+     * @param cents Valor (em centavos)
+     * @return Valor formatado, por exemplo "R$1.234,56"
+     */
+    public static String format(final long cents) {
+        var buffer = BUFFER.get();
+        buffer.setLength(0);
+        return append(buffer, cents).toString();
+    }
+
+    /**
+     * Acrescenta um valor em centavos, formatado em reais, ao final de um {@link StringBuilder}.
+     *
+     * @param out Destino do texto
+     * @param cents Valor (em centavos)
+     * @return O próprio destino, para encadeamento
+     */
+    public static StringBuilder append(final StringBuilder out, final long cents) {
+        try {
+            appendTo(out, cents);
+        } catch (IOException e) {
+            // StringBuilder não lança IOException
+            throw new UncheckedIOException(e);
+        }
+        return out;
+    }
+
+    /**
+     * Escreve um valor em centavos, formatado em reais, em um {@link Appendable}.
+     *
+     * @param out Destino do texto
+     * @param cents Valor (em centavos)
+     * @throws IOException Se o destino não puder ser escrito
+     */
+    public static void appendTo(final Appendable out, final long cents) throws IOException {
+        if (cents < 0) {
+            out.append('-');
+        }
+        out.append("R$");
+
+        // Trabalha com o valor negativo para que Long.MIN_VALUE também seja representável
+        long negative = cents < 0 ? cents : -cents;
+        long reais = -(negative / 100);
+        int centavos = (int) -(negative % 100);
+
+        long divisor = 1;
+        while (reais / divisor >= 1000) {
+            divisor *= 1000;
+        }
+        appendDigits(out, (int) (reais / divisor));
+        while (divisor > 1) {
+            divisor /= 1000;
+            int group = (int) ((reais / divisor) % 1000);
+            out.append('.')
+                    .append((char) ('0' + group / 100))
+                    .append((char) ('0' + group / 10 % 10))
+                    .append((char) ('0' + group % 10));
+        }
+
+        out.append(',')
+                .append((char) ('0' + centavos / 10))
+                .append((char) ('0' + centavos % 10));
+    }
+
+    /**
+     * Escreve um número entre 0 e 999 sem zeros à esquerda.
+     */
+    private static void appendDigits(final Appendable out, final int value) throws IOException {
+        if (value >= 100) {
+            out.append((char) ('0' + value / 100));
+        }
+        if (value >= 10) {
+            out.append((char) ('0' + value / 10 % 10));
+        }
+        out.append((char) ('0' + value % 10));
+    }
+}
@@ -0,0 +1,170 @@
+package model;
+
+import exception.AccountNotFoundException;
+import exception.InvestmentNotFoundException;
+import exception.NoFundsEnoughException;
+import exception.WalletNotFoundException;
+
+/**
+ * Resultado de uma operação que pode ser rejeitada por uma regra de negócio.
+ * <p>
+ * É a alternativa às exceções para quem executa muitas operações com rejeição esperada,
+ * como lotes de transferências: a rejeição é um valor comum, sem pilha de chamadas nem desvio de fluxo.
+ * Rejeições sem detalhe são instâncias compartilhadas, sem alocação.
+ * </p>
+ * <p>
+ * As exceções do pacote {@code exception}, lançadas por {@link #orElseThrow()} para quem usa a API
+ * com exceções, também representam desfechos de negócio e não erros de programação; por isso nenhuma
+ * delas captura a pilha de chamadas.
+ * </p>
+ *
+ * @param <T> Tipo do valor produzido em caso de sucesso
+ */
+public sealed interface OperationResult<T> permits OperationResult.Success, OperationResult.Rejected {
+
+    /**
+     * Motivos de rejeição de uma operação.
+     */
+    enum Reason {
+
+        /**
+         * Saldo insuficiente.
+         */
+        NO_FUNDS,
+
+        /**
+         * Conta não encontrada para a chave PIX informada.
+         */
+        ACCOUNT_NOT_FOUND,
+
+        /**
+         * Carteira de investimento não encontrada.
+         */
+        WALLET_NOT_FOUND,
+
+        /**
+         * Tipo de investimento não encontrado.
+         */
+        INVESTMENT_NOT_FOUND,
+
+        /**
+         * Valor menor ou igual a zero.
+         */
+        INVALID_AMOUNT
+    }
+
+    /**
+     * Operação concluída.
+     *
+     * @param value Valor produzido pela operação, ou {@code null} se não houver
+     * @param <T> Tipo do valor
+     */
+    record Success<T>(T value) implements OperationResult<T> {
+    }
+
+    /**
+     * Operação rejeitada, sem alteração de estado.
+     *
+     * @param reason Motivo da rejeição
+     * @param subject Chave ou identificador que causou a rejeição, ou {@code null} se não houver
+     * @param <T> Tipo do valor que a operação produziria
+     */
+    record Rejected<T>(Reason reason, String subject) implements OperationResult<T> {
+
+        /**
+         * Converte a rejeição na exceção lançada pela API com exceções.
+         *
+         * @return A exceção correspondente ao motivo
+         */
+        public RuntimeException toException() {
+            return switch (reason) {
+                case NO_FUNDS -> NoFundsEnoughException.INSTANCE;
+                case ACCOUNT_NOT_FOUND -> new AccountNotFoundException("Conta não encontrada para PIX: " + subject);
+                case WALLET_NOT_FOUND -> WalletNotFoundException.INSTANCE;
+                case INVESTMENT_NOT_FOUND -> new InvestmentNotFoundException("O investimento '" + subject + "' nao foi encontrado");
+                case INVALID_AMOUNT -> new IllegalArgumentException("Valor deve ser positivo");
+            };
+        }
+    }
+
+    /**
+     * Resultado de sucesso sem valor, compartilhado.
+     */
+    Success<?> DONE = new Success<>(null);
+
+    /**
+     * Rejeições sem detalhe, compartilhadas e indexadas pelo motivo.
+     */
+    Rejected<?>[] REJECTIONS = {
+            new Rejected<>(Reason.NO_FUNDS, null),
+            new Rejected<>(Reason.ACCOUNT_NOT_FOUND, null),
+            new Rejected<>(Reason.WALLET_NOT_FOUND, null),
+            new Rejected<>(Reason.INVESTMENT_NOT_FOUND, null),
+            new Rejected<>(Reason.INVALID_AMOUNT, null)
+    };
+
+    /**
+     * Cria um resultado de sucesso.
+     *
+     * @param value Valor produzido pela operação
+     * @return O resultado
+     */
+    static <T> OperationResult<T> success(final T value) {
+        return new Success<>(value);
+    }
+
+    /**
+     * Retorna o resultado de sucesso sem valor.
+     *
+     * @return O resultado compartilhado
+     */
+    @SuppressWarnings("unchecked")
+    static <T> OperationResult<T> done() {
+        return (OperationResult<T>) DONE;
+    }
+
+    /**
+     * Retorna uma rejeição sem detalhe.
+     *
+     * @param reason Motivo da rejeição
+     * @return A rejeição compartilhada
+     */
+    @SuppressWarnings("unchecked")
+    static <T> OperationResult<T> rejected(final Reason reason) {
+        return (OperationResult<T>) REJECTIONS[reason.ordinal()];
+    }
+
+    /**
+     * Cria uma rejeição com a chave ou identificador que a causou.
+     *
+     * @param reason Motivo da rejeição
+     * @param subject Chave ou identificador que causou a rejeição
+     * @return A rejeição
+     */
+    static <T> OperationResult<T> rejected(final Reason reason, final String subject) {
+        return new Rejected<>(reason, subject);
+    }
+
+    /**
+     * Indica se a operação foi concluída.
+     *
+     * @return {@code true} em caso de sucesso
+     */
+    default boolean isSuccess() {
+        return this instanceof Success;
+    }
+
+    /**
+     * Retorna o valor da operação ou lança a exceção correspondente à rejeição,
+     * como faz a API com exceções.
+     *
+     * @return O valor produzido pela operação
+     * @throws RuntimeException A exceção correspondente ao motivo da rejeição
+     */
+    default T orElseThrow() {
+        return switch (this) {
+            case Success<T> success -> success.value();
+            case Rejected<T> rejected -> throw rejected.toException();
+        };
+    }
+}
@@ -0,0 +1,42 @@
+package model;
+
+import java.time.LocalDate;
+
+/**
+ * Totais de movimentação de uma carteira em um período (dia ou mês).
+ *
+ * @param start Primeiro dia do período
+ * @param credits Soma dos créditos do período (em centavos)
+ * @param debits Soma dos débitos do período (em centavos)
+ * @param closingBalance Saldo ao final do período (em centavos)
+ */
+public record PeriodTotals(
+        LocalDate start,
+        long credits,
+        long debits,
+        long closingBalance)
+{
+    /**
+     * Retorna a variação do saldo no período.
+     *
+     * @return Créditos menos débitos (em centavos)
+     */
+    public long net() {
+        return credits - debits;
+    }
+
+    /**
+     * Retorna uma representação em string dos totais.
+     *
+     * @return String formatada com os valores do período
+     */
+    @Override
+    public String toString() {
+        return "PeriodTotals{" +
+                "start=" + start +
+                ", credits=" + MoneyFormatter.format(credits) +
+                ", debits=" + MoneyFormatter.format(debits) +
+                ", closingBalance=" + MoneyFormatter.format(closingBalance) +
+                '}';
+    }
+}
@@ -0,0 +1,112 @@
+package model;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fonte de auditoria de baixo custo: identificadores UUID versão 7, ordenados pelo instante de criação,
+ * e relógio em cache com precisão de milissegundos.
+ * <p>
+ * Os 48 bits mais altos do identificador guardam o instante em milissegundos e os 12 bits seguintes
+ * um contador, de modo que identificadores gerados pela mesma instância são estritamente crescentes,
+ * mesmo dentro do mesmo milissegundo ou com o relógio do sistema recuando. Os 62 bits finais são
+ * aleatórios, obtidos de {@link ThreadLocalRandom}, sem a contenção de {@link java.security.SecureRandom}.
+ * </p>
+ * <p>
+ * A data e hora é criada uma vez por milissegundo e reaproveitada pelas chamadas seguintes.
+ * </p>
+ */
+public class TimeOrderedAuditClock implements AuditClock {
+
+    /**
+     * Bits do contador dentro do milissegundo.
+     */
+    private static final int COUNTER_BITS = 12;
+
+    /**
+     * Bits de versão (7) e variante (IETF) do UUID.
+     */
+    private static final long VERSION = 7L << 12;
+
+    /**
+     * Marca da variante IETF nos bits mais altos da metade menos significativa.
+     */
+    private static final long VARIANT = 0x8000000000000000L;
+
+    /**
+     * Fuso horário das datas geradas.
+     */
+    private final ZoneId zone;
+
+    /**
+     * Último valor gerado de instante e contador: milissegundos deslocados à esquerda, mais o contador.
+     */
+    private final AtomicLong lastStamp = new AtomicLong();
+
+    /**
+     * Data e hora em cache e o milissegundo a que corresponde.
+     */
+    private volatile CachedTime cached = new CachedTime(Long.MIN_VALUE, null);
+
+    /**
+     * Cria a fonte no fuso horário do sistema.
+     */
+    public TimeOrderedAuditClock() {
+        this(ZoneId.systemDefault());
+    }
+
+    /**
+     * Cria a fonte no fuso horário informado.
+     *
+     * @param zone Fuso horário das datas geradas
+     */
+    public TimeOrderedAuditClock(final ZoneId zone) {
+        this.zone = zone;
+    }
+
+    /**
+     * Gera um identificador UUID versão 7, maior que todos os gerados antes por esta instância.
+     *
+     * @return Identificador ordenado pelo instante de criação
+     */
+    @Override
+    public UUID nextId() {
+        long now = System.currentTimeMillis() << COUNTER_BITS;
+        long stamp = lastStamp.accumulateAndGet(now, (last, current) -> Math.max(last + 1, current));
+        long millis = stamp >>> COUNTER_BITS;
+        long counter = stamp & ((1L << COUNTER_BITS) - 1);
+        long high = (millis << 16) | VERSION | counter;
+        long low = VARIANT | (ThreadLocalRandom.current().nextLong() >>> 2);
+        return new UUID(high, low);
+    }
+
+    /**
+     * Retorna a data e hora atuais, com precisão de milissegundos, reaproveitando a instância
+     * criada no mesmo milissegundo.
+     *
+     * @return Data e hora atuais
+     */
+    @Override
+    public OffsetDateTime now() {
+        long millis = System.currentTimeMillis();
+        var current = cached;
+        if (current.millis() != millis) {
+            current = new CachedTime(millis, OffsetDateTime.ofInstant(Instant.ofEpochMilli(millis), zone));
+            cached = current;
+        }
+        return current.time();
+    }
+
+    /**
+     * Data e hora de um milissegundo.
+     *
+     * @param millis Milissegundos desde a época
+     * @param time Data e hora correspondente
+     */
+    private record CachedTime(long millis, OffsetDateTime time) {
+    }
+}
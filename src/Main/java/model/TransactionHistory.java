@@ -0,0 +1,413 @@
+package model;
+
+import persistence.AuditSegmentStore;
+import persistence.ColumnarAuditStore;
+
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntToLongFunction;
+
+import static persistence.AuditSegmentStore.SEGMENT_BLOCKS;
+import static persistence.AuditSegmentStore.SEGMENT_ROWS;
+import static persistence.ColumnarAuditStore.BLOCK_ROWS;
+
+/**
+ * Histórico de transações de uma carteira, guardado fora do heap em duas camadas.
+ * <p>
+ * Os registros recentes ficam em blocos de um {@link ColumnarAuditStore} mapeado em memória.
+ * Quando a carteira passa de {@link #HOT_ROWS} registros recentes, os blocos mais antigos são
+ * comprimidos em um segmento de um {@link AuditSegmentStore} e devolvidos ao armazenamento,
+ * de modo que a área mapeada usada por carteira é limitada. No heap ficam apenas a tabela dos blocos
+ * recentes e o índice dos segmentos (16 bytes a cada {@link AuditSegmentStore#SEGMENT_ROWS} registros).
+ * As consultas leem as duas camadas de forma transparente, como uma única sequência.
+ * </p>
+ * <p>
+ * Os registros ficam em ordem cronológica, o que permite localizar intervalos de tempo
+ * por busca binária na coluna de instantes, sem ler os demais campos. Registros que chegam fora
+ * de ordem, como os criados em paralelo ou os rendimentos de um lote, que levam o instante do início
+ * do lote, são inseridos na sua posição entre os registros recentes, mantendo o instante original.
+ * Como os segmentos não são reescritos, um registro anterior ao último registro já transferido
+ * é gravado com o instante desse registro, logo após ele; {@link #add(MoneyAudit, int)} devolve
+ * o registro com o instante gravado.
+ * </p>
+ * <p>
+ * A gravação é feita em dois passos: {@link #reserve(String)} codifica a contraparte, transfere
+ * blocos para segmentos e aloca espaço, podendo falhar; {@link #add(MoneyAudit, int)} usa a reserva
+ * e não falha. Assim, a carteira reserva o registro antes de alterar o saldo, e uma falha do
+ * armazenamento rejeita a operação sem deixar saldo alterado sem registro.
+ * </p>
+ */
+public class TransactionHistory {
+
+    /**
+     * Quantidade de registros recentes mantidos no armazenamento mapeado por carteira,
+     * configurável pela propriedade {@code pixbank.audit.hot}.
+     */
+    public static final int HOT_ROWS = Integer.getInteger("pixbank.audit.hot", 1024);
+
+    /**
+     * Tabela de blocos vazia, compartilhada pelos históricos sem registros.
+     */
+    private static final int[] NO_BLOCKS = new int[0];
+
+    /**
+     * Índice de segmentos vazio, compartilhado pelos históricos sem registros transferidos.
+     */
+    private static final long[] NO_SEGMENTS = new long[0];
+
+    /**
+     * Armazenamento dos registros recentes.
+     */
+    private final ColumnarAuditStore store;
+
+    /**
+     * Arquivo de segmentos dos registros antigos.
+     */
+    private final AuditSegmentStore segments;
+
+    /**
+     * Quantidade de blocos completos mantidos no armazenamento antes da transferência para um segmento.
+     */
+    private final int hotBlocks;
+
+    /**
+     * Números dos blocos recentes, em ordem; o primeiro guarda o registro seguinte ao último segmento.
+     */
+    private int[] blocks = NO_BLOCKS;
+
+    /**
+     * Quantidade de blocos recentes.
+     */
+    private int blockCount;
+
+    /**
+     * Referências dos segmentos gravados, em ordem.
+     */
+    private long[] spilled = NO_SEGMENTS;
+
+    /**
+     * Instante do primeiro registro de cada segmento, em nanossegundos desde a época.
+     */
+    private long[] spilledTimes = NO_SEGMENTS;
+
+    /**
+     * Quantidade de segmentos gravados.
+     */
+    private int spilledCount;
+
+    /**
+     * Instante do último registro transferido para um segmento, em nanossegundos desde a época;
+     * nenhum registro recente é gravado com instante anterior a ele.
+     */
+    private long lastSpilledTime = Long.MIN_VALUE;
+
+    /**
+     * Quantidade de registros do histórico.
+     */
+    private int size;
+
+    /**
+     * Quantidade de registros reservados e ainda não acrescentados.
+     */
+    private int reserved;
+
+    /**
+     * Cria um histórico vazio nos armazenamentos compartilhados.
+     */
+    public TransactionHistory() {
+        this(ColumnarAuditStore.shared(), AuditSegmentStore.shared(), HOT_ROWS);
+    }
+
+    /**
+     * Cria um histórico vazio nos armazenamentos informados.
+     *
+     * @param store Armazenamento dos registros recentes
+     * @param segments Arquivo de segmentos dos registros antigos
+     * @param hotRows Quantidade de registros recentes mantidos no armazenamento
+     */
+    public TransactionHistory(final ColumnarAuditStore store, final AuditSegmentStore segments, final int hotRows) {
+        this.store = store;
+        this.segments = segments;
+        this.hotBlocks = Math.max(1, (hotRows + BLOCK_ROWS - 1) / BLOCK_ROWS);
+    }
+
+    /**
+     * Acrescenta um registro ao histórico, reservando antes o seu espaço.
+     *
+     * @param audit Registro de auditoria
+     * @return O registro gravado, como em {@link #add(MoneyAudit, int)}
+     * @throws RuntimeException Se o espaço não puder ser reservado, como em {@link #reserve(String)}
+     */
+    public MoneyAudit add(final MoneyAudit audit) {
+        return add(audit, reserve(audit.counterparty()));
+    }
+
+    /**
+     * Reserva o espaço de um registro: codifica a contraparte, transfere para um segmento os blocos
+     * que excedem os registros recentes e aloca os blocos necessários. Cada reserva deve terminar em
+     * {@link #add(MoneyAudit, int)} ou {@link #release()}.
+     *
+     * @param counterparty Chave PIX da contraparte do registro, ou {@code null} se não houver
+     * @return Código da contraparte, a ser informado em {@link #add(MoneyAudit, int)}
+     * @throws UncheckedIOException Se o segmento ou o armazenamento não puderem ser gravados
+     * @throws IllegalStateException Se o dicionário de contrapartes estiver cheio
+     */
+    public synchronized int reserve(final String counterparty) {
+        int code = store.encode(counterparty);
+        if (size - spilledCount * SEGMENT_ROWS >= (hotBlocks + SEGMENT_BLOCKS) * BLOCK_ROWS) {
+            spill();
+        }
+        int needed = size - spilledCount * SEGMENT_ROWS + reserved + 1;
+        while (blockCount * BLOCK_ROWS < needed) {
+            if (blockCount == blocks.length) {
+                blocks = Arrays.copyOf(blocks, Math.max(4, blocks.length * 2));
+            }
+            blocks[blockCount] = store.allocateBlock();
+            blockCount++;
+        }
+        reserved++;
+        return code;
+    }
+
+    /**
+     * Desfaz uma reserva que não será usada; o espaço alocado fica para os próximos registros.
+     */
+    public synchronized void release() {
+        reserved--;
+    }
+
+    /**
+     * Acrescenta um registro reservado ao histórico, na posição do seu instante.
+     * Os registros recentes posteriores a ele são deslocados uma posição adiante.
+     *
+     * @param audit Registro de auditoria
+     * @param counterpartyCode Código devolvido pela reserva do registro
+     * @return O registro gravado: com o instante original, ou com o instante do último registro
+     * transferido para um segmento, se for anterior a ele
+     */
+    public synchronized MoneyAudit add(final MoneyAudit audit, final int counterpartyCode) {
+        long time = ColumnarAuditStore.epochNanos(audit.createdAt());
+        var stored = audit;
+        if (time < lastSpilledTime) {
+            time = lastSpilledTime;
+            var clamped = Instant.ofEpochSecond(Math.floorDiv(time, 1_000_000_000L), Math.floorMod(time, 1_000_000_000L));
+            stored = new MoneyAudit(audit.transactionId(), audit.targetService(), audit.type(), audit.amount(),
+                    audit.counterparty(), audit.investmentId(), clamped.atOffset(audit.createdAt().getOffset()));
+        }
+        reserved--;
+        int position = size - spilledCount * SEGMENT_ROWS;
+        while (position > 0 && store.readTime(blocks[(position - 1) / BLOCK_ROWS], (position - 1) % BLOCK_ROWS) > time) {
+            store.copyRow(blocks[(position - 1) / BLOCK_ROWS], (position - 1) % BLOCK_ROWS,
+                    blocks[position / BLOCK_ROWS], position % BLOCK_ROWS);
+            position--;
+        }
+        store.write(blocks[position / BLOCK_ROWS], position % BLOCK_ROWS, stored, counterpartyCode);
+        size++;
+        return stored;
+    }
+
+    /**
+     * Retorna a quantidade de registros do histórico.
+     *
+     * @return Quantidade de registros
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Retorna a quantidade de registros já transferidos para segmentos comprimidos.
+     *
+     * @return Quantidade de registros antigos
+     */
+    public synchronized int spilledSize() {
+        return spilledCount * SEGMENT_ROWS;
+    }
+
+    /**
+     * Retorna uma visão somente leitura dos registros existentes no momento da chamada.
+     * Nenhum registro é copiado: cada elemento é lido da sua camada quando acessado.
+     * Um registro inserido fora de ordem depois da chamada desloca os registros posteriores a ele.
+     *
+     * @return Lista imutável com os registros do histórico
+     */
+    public List<MoneyAudit> view() {
+        return view(size());
+    }
+
+    /**
+     * Consulta uma página dos registros de um intervalo de tempo.
+     * Os limites do intervalo são localizados por busca binária, e apenas os registros da página são lidos.
+     * O token de continuação identifica o último registro devolvido pelo seu instante e pelo seu identificador,
+     * de modo que continua válido quando registros são inseridos fora de ordem entre uma página e a seguinte.
+     *
+     * @param from Início do intervalo (inclusivo), ou {@code null} para o início do histórico
+     * @param to Fim do intervalo (exclusivo), ou {@code null} para o fim do histórico
+     * @param limit Quantidade máxima de registros da página
+     * @param token Token de continuação da página anterior, ou {@code null} para a primeira página
+     * @return A página com os registros e o token da próxima página
+     * @throws IllegalArgumentException Se o limite não for positivo ou o token for inválido
+     */
+    public HistoryPage page(final OffsetDateTime from, final OffsetDateTime to, final int limit, final String token) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("O limite da pagina deve ser positivo");
+        }
+        final int start;
+        final int end;
+        synchronized (this) {
+            int first = from == null ? 0 : lowerBound(ColumnarAuditStore.epochNanos(from));
+            end = to == null ? size : lowerBound(ColumnarAuditStore.epochNanos(to));
+            start = Math.min(token == null ? first : Math.max(first, positionAfter(token)), end);
+        }
+        int pageEnd = (int) Math.min(end, (long) start + limit);
+        var transactions = List.copyOf(view(end).subList(start, pageEnd));
+        return new HistoryPage(transactions, pageEnd < end ? tokenOf(transactions.get(transactions.size() - 1)) : null);
+    }
+
+    /**
+     * Transfere os blocos recentes mais antigos para um segmento comprimido e os devolve ao armazenamento.
+     *
+     * @throws UncheckedIOException Se o segmento não puder ser gravado; os blocos continuam no armazenamento
+     */
+    private void spill() {
+        long reference = segments.write(store, blocks, 0);
+        if (spilledCount == spilled.length) {
+            spilled = Arrays.copyOf(spilled, Math.max(4, spilled.length * 2));
+            spilledTimes = Arrays.copyOf(spilledTimes, spilled.length);
+        }
+        spilled[spilledCount] = reference;
+        spilledTimes[spilledCount] = store.readTime(blocks[0], 0);
+        spilledCount++;
+        lastSpilledTime = store.readTime(blocks[SEGMENT_BLOCKS - 1], BLOCK_ROWS - 1);
+        for (int i = 0; i < SEGMENT_BLOCKS; i++) {
+            store.releaseBlock(blocks[i]);
+        }
+        blockCount -= SEGMENT_BLOCKS;
+        System.arraycopy(blocks, SEGMENT_BLOCKS, blocks, 0, blockCount);
+    }
+
+    /**
+     * Lê o registro de uma posição, no segmento ou no bloco recente que o contém.
+     * Os blocos recentes são lidos com o monitor do histórico, pois são devolvidos ao armazenamento
+     * quando transferidos; os segmentos não mudam depois de gravados e são lidos sem trava.
+     */
+    private MoneyAudit read(final int position) {
+        final long reference;
+        synchronized (this) {
+            int hot = position - spilledCount * SEGMENT_ROWS;
+            if (hot >= 0) {
+                return store.read(blocks[hot / BLOCK_ROWS], hot % BLOCK_ROWS);
+            }
+            reference = spilled[position / SEGMENT_ROWS];
+        }
+        return store.read(segments.read(reference), position % SEGMENT_ROWS);
+    }
+
+    /**
+     * Retorna a posição do primeiro registro com instante maior ou igual ao informado.
+     * Os segmentos são localizados pelo instante do primeiro registro, sem descomprimi-los;
+     * no máximo um segmento é lido.
+     */
+    private int lowerBound(final long time) {
+        int low = 0;
+        int high = spilledCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (spilledTimes[middle] < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low > 0) {
+            // O segmento anterior começa antes do instante e pode conter a posição procurada
+            var segment = segments.read(spilled[low - 1]);
+            int row = lowerBound(0, SEGMENT_ROWS, position -> ColumnarAuditStore.readTime(segment, position), time);
+            if (row < SEGMENT_ROWS) {
+                return (low - 1) * SEGMENT_ROWS + row;
+            }
+        }
+        if (low < spilledCount) {
+            return low * SEGMENT_ROWS;
+        }
+        int hot = lowerBound(0, size - spilledCount * SEGMENT_ROWS,
+                position -> store.readTime(blocks[position / BLOCK_ROWS], position % BLOCK_ROWS), time);
+        return spilledCount * SEGMENT_ROWS + hot;
+    }
+
+    /**
+     * Busca binária da primeira posição do intervalo com instante maior ou igual ao informado.
+     */
+    private static int lowerBound(int low, int high, final IntToLongFunction timeAt, final long time) {
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timeAt.applyAsLong(middle) < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Monta o token de continuação que aponta para depois de um registro: seu instante gravado,
+     * em nanossegundos desde a época, e seu identificador.
+     */
+    private static String tokenOf(final MoneyAudit last) {
+        return ColumnarAuditStore.epochNanos(last.createdAt()) + "_" + last.transactionId();
+    }
+
+    /**
+     * Converte um token de continuação na posição seguinte ao registro que ele identifica.
+     * Os registros com o mesmo instante são percorridos até o do token; se ele não for encontrado,
+     * a posição é a do primeiro registro com instante posterior.
+     */
+    private int positionAfter(final String token) {
+        final long time;
+        final UUID id;
+        try {
+            int separator = token.indexOf('_');
+            time = Long.parseLong(token.substring(0, separator));
+            id = UUID.fromString(token.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Token de continuacao invalido: " + token);
+        }
+        int position = lowerBound(time);
+        int equalEnd = position;
+        while (equalEnd < size && ColumnarAuditStore.epochNanos(read(equalEnd).createdAt()) == time) {
+            equalEnd++;
+        }
+        for (int i = position; i < equalEnd; i++) {
+            if (read(i).transactionId().equals(id)) {
+                return i + 1;
+            }
+        }
+        return equalEnd;
+    }
+
+    /**
+     * Cria uma visão somente leitura sobre os primeiros registros do histórico.
+     */
+    private List<MoneyAudit> view(final int viewSize) {
+        return new AbstractList<>() {
+            @Override
+            public MoneyAudit get(final int index) {
+                if (index < 0 || index >= viewSize) {
+                    throw new IndexOutOfBoundsException("Indice " + index + " fora do historico de " + viewSize);
+                }
+                return read(index);
+            }
+
+            @Override
+            public int size() {
+                return viewSize;
+            }
+        };
+    }
+}
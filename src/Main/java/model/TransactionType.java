@@ -0,0 +1,89 @@
+package model;
+
+/**
+ * Enumeração dos tipos de transação registrados no histórico das carteiras.
+ * Cada tipo sabe gerar a descrição legível da transação a partir dos campos estruturados
+ * do registro, de modo que o texto só é montado quando o extrato é exibido.
+ */
+public enum TransactionType {
+
+    /**
+     * Depósito inicial na abertura da conta.
+     */
+    INITIAL_DEPOSIT,
+
+    /**
+     * Depósito em conta.
+     */
+    DEPOSIT,
+
+    /**
+     * Saque de conta.
+     */
+    WITHDRAW,
+
+    /**
+     * Transferência PIX enviada para outra conta.
+     */
+    PIX_SENT,
+
+    /**
+     * Transferência PIX recebida de outra conta.
+     */
+    PIX_RECEIVED,
+
+    /**
+     * Débito na conta da aplicação inicial ao criar a carteira de investimento.
+     */
+    INVESTMENT_APPLICATION,
+
+    /**
+     * Crédito inicial na carteira de investimento.
+     */
+    INVESTMENT_INITIAL,
+
+    /**
+     * Débito na conta de um aporte na carteira de investimento.
+     */
+    INVESTMENT_CONTRIBUTION,
+
+    /**
+     * Crédito de um aporte na carteira de investimento.
+     */
+    INVESTMENT_CONTRIBUTION_RECEIVED,
+
+    /**
+     * Crédito na conta de um resgate da carteira de investimento.
+     */
+    INVESTMENT_RESCUE,
+
+    /**
+     * Rendimento creditado na carteira de investimento.
+     */
+    YIELD;
+
+    /**
+     * Gera a descrição legível de uma transação deste tipo.
+     *
+     * @param amount Valor da transação (em centavos)
+     * @param counterparty Chave PIX da contraparte, quando houver
+     * @param investmentId ID do investimento envolvido, quando houver
+     * @return Descrição da transação
+     */
+    public String describe(final long amount, final String counterparty, final long investmentId) {
+        var value = MoneyFormatter.format(amount);
+        return switch (this) {
+            case INITIAL_DEPOSIT -> "Depósito inicial: " + value;
+            case DEPOSIT -> "Depósito de: " + value;
+            case WITHDRAW -> "Saque no valor de: " + value;
+            case PIX_SENT -> "Transferência PIX enviada de " + value + " para conta " + counterparty;
+            case PIX_RECEIVED -> "Transferência PIX recebida de " + value + " da conta " + counterparty;
+            case INVESTMENT_APPLICATION -> "Aplicação inicial em investimento " + investmentId + " no valor de " + value;
+            case INVESTMENT_INITIAL -> "Investimento inicial: " + value;
+            case INVESTMENT_CONTRIBUTION -> "Aporte em Investimento de: " + value;
+            case INVESTMENT_CONTRIBUTION_RECEIVED -> "Aporte de " + value;
+            case INVESTMENT_RESCUE -> "Resgate de investimento: " + value;
+            case YIELD -> "Rendimentos de " + value;
+        };
+    }
+}
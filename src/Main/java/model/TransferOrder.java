@@ -0,0 +1,15 @@
+package model;
+
+/**
+ * Ordem de transferência PIX de um lote, como uma linha de um arquivo de folha de pagamento.
+ *
+ * @param sourcePix Chave PIX da conta de origem
+ * @param targetPix Chave PIX da conta de destino
+ * @param amount Valor da transferência (em centavos)
+ */
+public record TransferOrder(
+        String sourcePix,
+        String targetPix,
+        long amount)
+{
+}
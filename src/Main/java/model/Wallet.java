@@ -2,26 +2,56 @@ package model;
 
 import lombok.Getter;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.OffsetDateTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.LongUnaryOperator;
 
 /**
  * Classe abstrata que representa uma carteira genérica para operações financeiras.
  * Define comportamentos básicos para manipulação de saldo e histórico de transações.
+ * O saldo é atualizado sem travas, por compare-and-set, de modo que a verificação de saldo
+ * e o débito acontecem como um único passo atômico.
+ * <p>
+ * Contas e carteiras de investimento compartilham o mesmo estado (saldo, histórico e agregados)
+ * e os mesmos caminhos de crédito e débito; todo crédito e todo débito são registrados no histórico.
+ * O espaço do registro é reservado antes da alteração do saldo, de modo que uma falha do armazenamento
+ * de auditoria rejeita a operação sem alterar o saldo.
+ * </p>
  */
 public abstract class Wallet {
+
+    /**
+     * Acesso atômico ao campo {@code balance} para operações de compare-and-set.
+     */
+    private static final VarHandle BALANCE;
+
+    static {
+        try {
+            BALANCE = MethodHandles.lookup().findVarHandle(Wallet.class, "balance", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     /**
      * Saldo atual da carteira em centavos.
      */
     @Getter
-    protected long balance; // saldo em centavos
+    protected volatile long balance; // saldo em centavos
+
+    /**
+     * Histórico de transações financeiras da carteira, guardado fora do heap.
+     */
+    protected final TransactionHistory transactionHistory = new TransactionHistory();
 
     /**
-     * Histórico de transações financeiras da carteira.
+     * Totais diários e mensais do histórico, atualizados a cada transação registrada.
      */
-    protected final List<MoneyAudit> transactionHistory = new ArrayList<>();
+    @Getter
+    protected final BalanceAggregates aggregates = new BalanceAggregates();
 
     /**
      * Tipo de serviço bancário associado à carteira.
@@ -43,57 +73,233 @@ public abstract class Wallet {
      * Adiciona um valor ao saldo da carteira e registra a transação.
      *
      * @param amount Valor a ser adicionado (em centavos)
-     * @param description Descrição da operação
+     * @param type Tipo da transação
      * @throws IllegalArgumentException Se o valor for menor ou igual a zero
      */
-    public void addMoney(long amount, String description) {
+    public void addMoney(long amount, TransactionType type) {
+        addMoney(amount, type, null, MoneyAudit.NO_INVESTMENT);
+    }
+
+    /**
+     * Adiciona um valor ao saldo da carteira e registra a transação.
+     *
+     * @param amount Valor a ser adicionado (em centavos)
+     * @param type Tipo da transação
+     * @param counterparty Chave PIX da contraparte, ou {@code null} se não houver
+     * @param investmentId ID do investimento envolvido, ou {@link MoneyAudit#NO_INVESTMENT}
+     * @throws IllegalArgumentException Se o valor for menor ou igual a zero
+     */
+    public void addMoney(long amount, TransactionType type, String counterparty, long investmentId) {
+        addMoney(amount, type, counterparty, investmentId, reserveAudit(counterparty));
+    }
+
+    /**
+     * Adiciona um valor ao saldo da carteira e registra a transação no espaço já reservado no histórico.
+     * A reserva é consumida mesmo que o valor seja rejeitado.
+     *
+     * @param amount Valor a ser adicionado (em centavos)
+     * @param type Tipo da transação
+     * @param counterparty Chave PIX da contraparte, ou {@code null} se não houver
+     * @param investmentId ID do investimento envolvido, ou {@link MoneyAudit#NO_INVESTMENT}
+     * @param reservation Código devolvido por {@link #reserveAudit(String)} para a mesma contraparte
+     * @throws IllegalArgumentException Se o valor for menor ou igual a zero
+     */
+    public void addMoney(long amount, TransactionType type, String counterparty, long investmentId, int reservation) {
         if (amount <= 0) {
+            releaseAudit();
             throw new IllegalArgumentException("Valor deve ser positivo");
         }
-        this.balance += amount;
-        this.transactionHistory.add(new MoneyAudit(
-                UUID.randomUUID(),
-                this.service,
-                description,
-                OffsetDateTime.now()
-        ));
+        BALANCE.getAndAdd(this, amount);
+        audit(type, amount, counterparty, investmentId, true, reservation);
+    }
+
+    /**
+     * Reduz o saldo da carteira e registra a transação.
+     *
+     * @param amount Valor a ser reduzido (em centavos)
+     * @param type Tipo da transação
+     * @return O valor reduzido
+     * @throws IllegalArgumentException Se o valor for inválido ou saldo insuficiente
+     */
+    public long reduceMoney(long amount, TransactionType type) {
+        return reduceMoney(amount, type, null, MoneyAudit.NO_INVESTMENT);
     }
 
     /**
      * Reduz o saldo da carteira e registra a transação.
      *
      * @param amount Valor a ser reduzido (em centavos)
-     * @param description Descrição da operação
+     * @param type Tipo da transação
+     * @param counterparty Chave PIX da contraparte, ou {@code null} se não houver
+     * @param investmentId ID do investimento envolvido, ou {@link MoneyAudit#NO_INVESTMENT}
      * @return O valor reduzido
      * @throws IllegalArgumentException Se o valor for inválido ou saldo insuficiente
      */
-    public long reduceMoney(long amount, String description) {
+    public long reduceMoney(long amount, TransactionType type, String counterparty, long investmentId) {
+        if (!tryReduceMoney(amount, type, counterparty, investmentId)) {
+            throw new IllegalArgumentException("Saldo insuficiente");
+        }
+        return amount;
+    }
+
+    /**
+     * Tenta reduzir o saldo da carteira, registrando a transação em caso de sucesso.
+     * A verificação de saldo e o débito são feitos em um único compare-and-set.
+     *
+     * @param amount Valor a ser reduzido (em centavos)
+     * @param type Tipo da transação
+     * @param counterparty Chave PIX da contraparte, ou {@code null} se não houver
+     * @param investmentId ID do investimento envolvido, ou {@link MoneyAudit#NO_INVESTMENT}
+     * @return {@code true} se o débito foi realizado, {@code false} se o saldo for insuficiente
+     * @throws IllegalArgumentException Se o valor for menor ou igual a zero
+     */
+    public boolean tryReduceMoney(long amount, TransactionType type, String counterparty, long investmentId) {
+        return tryReduceMoney(amount, type, counterparty, investmentId, reserveAudit(counterparty));
+    }
+
+    /**
+     * Tenta reduzir o saldo da carteira, registrando a transação no espaço já reservado no histórico.
+     * A reserva é consumida em qualquer caso: se o débito não for realizado, ela é desfeita.
+     *
+     * @param amount Valor a ser reduzido (em centavos)
+     * @param type Tipo da transação
+     * @param counterparty Chave PIX da contraparte, ou {@code null} se não houver
+     * @param investmentId ID do investimento envolvido, ou {@link MoneyAudit#NO_INVESTMENT}
+     * @param reservation Código devolvido por {@link #reserveAudit(String)} para a mesma contraparte
+     * @return {@code true} se o débito foi realizado, {@code false} se o saldo for insuficiente
+     * @throws IllegalArgumentException Se o valor for menor ou igual a zero
+     */
+    public boolean tryReduceMoney(long amount, TransactionType type, String counterparty, long investmentId,
+                                  int reservation) {
         if (amount <= 0) {
+            releaseAudit();
             throw new IllegalArgumentException("Valor deve ser positivo");
         }
-        if (amount > this.balance) {
-            throw new IllegalArgumentException("Saldo insuficiente");
-        }
-        this.balance -= amount;
+        long current;
+        do {
+            current = this.balance;
+            if (amount > current) {
+                releaseAudit();
+                return false;
+            }
+        } while (!BALANCE.compareAndSet(this, current, current - amount));
 
         // Registra a transação no histórico
-        this.transactionHistory.add(new MoneyAudit(
-                UUID.randomUUID(),
-                this.service,
-                description,
-                OffsetDateTime.now()
-        ));
+        audit(type, amount, counterparty, investmentId, false, reservation);
 
+        return true;
+    }
+
+    /**
+     * Reserva no histórico o espaço de um registro, antes de alterar o saldo.
+     * Cada reserva deve ser usada por um crédito ou débito com reserva, ou desfeita por {@link #releaseAudit()}.
+     *
+     * @param counterparty Chave PIX da contraparte do registro, ou {@code null} se não houver
+     * @return Código a ser informado no crédito ou débito
+     * @throws RuntimeException Se o armazenamento de auditoria não puder reservar o espaço
+     */
+    public int reserveAudit(String counterparty) {
+        return this.transactionHistory.reserve(counterparty);
+    }
+
+    /**
+     * Desfaz uma reserva feita por {@link #reserveAudit(String)} que não será usada.
+     */
+    public void releaseAudit() {
+        this.transactionHistory.release();
+    }
+
+    /**
+     * Credita um valor calculado a partir do saldo atual, como um rendimento, em um único compare-and-set,
+     * e registra a transação com o identificador e o instante informados.
+     * O valor calculado pode ser zero, caso em que a transação é registrada sem alterar o saldo.
+     *
+     * @param amountOf Função que calcula o valor do crédito a partir do saldo atual (em centavos)
+     * @param type Tipo da transação
+     * @param investmentId ID do investimento envolvido, ou {@link MoneyAudit#NO_INVESTMENT}
+     * @param transactionId Identificador da transação
+     * @param createdAt Instante da transação
+     * @return O valor creditado (em centavos)
+     */
+    protected long creditFromBalance(LongUnaryOperator amountOf, TransactionType type, long investmentId,
+                                     UUID transactionId, OffsetDateTime createdAt) {
+        int reservation = reserveAudit(null);
+        long current;
+        long amount;
+        do {
+            current = this.balance;
+            amount = amountOf.applyAsLong(current);
+        } while (!BALANCE.compareAndSet(this, current, current + amount));
+        record(new MoneyAudit(transactionId, this.service, type, amount, null, investmentId, createdAt), true,
+                reservation);
         return amount;
     }
 
     /**
-     * Retorna uma cópia do histórico de transações financeiras.
+     * Registra uma transação no histórico da carteira.
+     *
+     * @param type Tipo da transação
+     * @param amount Valor da transação (em centavos)
+     * @param counterparty Chave PIX da contraparte, ou {@code null} se não houver
+     * @param investmentId ID do investimento envolvido, ou {@link MoneyAudit#NO_INVESTMENT}
+     * @param credit {@code true} se a transação creditou a carteira, {@code false} se a debitou
+     * @param reservation Código devolvido pela reserva do registro
+     */
+    protected void audit(TransactionType type, long amount, String counterparty, long investmentId, boolean credit,
+                         int reservation) {
+        var clock = AuditClocks.current();
+        record(new MoneyAudit(
+                clock.nextId(),
+                this.service,
+                type,
+                amount,
+                counterparty,
+                investmentId,
+                clock.now()
+        ), credit, reservation);
+    }
+
+    /**
+     * Acrescenta um registro reservado ao histórico e aos agregados da carteira.
+     */
+    private void record(MoneyAudit audit, boolean credit, int reservation) {
+        var stored = this.transactionHistory.add(audit, reservation);
+        this.aggregates.record(stored.createdAt(), credit ? stored.amount() : 0, credit ? 0 : stored.amount());
+    }
+
+    /**
+     * Ajusta o saldo da carteira sem validação e sem registro no histórico.
+     * Usado apenas na recuperação do estado a partir de snapshots e do log de transações,
+     * onde as operações já foram validadas quando aconteceram.
+     *
+     * @param delta Valor a ser somado ao saldo (negativo para débitos), em centavos
+     */
+    public void restoreMoney(long delta) {
+        BALANCE.getAndAdd(this, delta);
+        this.aggregates.adjustOpening(delta);
+    }
+
+    /**
+     * Retorna uma visão somente leitura do histórico de transações financeiras.
+     * Os registros são lidos do armazenamento de auditoria à medida que são acessados.
      *
-     * @return Lista de transações financeiras
+     * @return Lista imutável de transações financeiras
      */
     public List<MoneyAudit> getFinancialTransactions() {
-        return new ArrayList<>(this.transactionHistory);
+        return this.transactionHistory.view();
+    }
+
+    /**
+     * Consulta uma página do histórico de transações em um intervalo de tempo, sem copiar o histórico.
+     *
+     * @param from Início do intervalo (inclusivo), ou {@code null} para o início do histórico
+     * @param to Fim do intervalo (exclusivo), ou {@code null} para o fim do histórico
+     * @param limit Quantidade máxima de registros da página
+     * @param token Token de continuação da página anterior, ou {@code null} para a primeira página
+     * @return A página com os registros e o token da próxima página
+     */
+    public HistoryPage getHistoryPage(OffsetDateTime from, OffsetDateTime to, int limit, String token) {
+        return this.transactionHistory.page(from, to, limit, token);
     }
 
     /**
@@ -114,7 +320,7 @@ public abstract class Wallet {
     public String toString() {
         return "Wallet{" +
                 "service=" + service +
-                ", balance=R$" + (balance / 100) + "," + String.format("%02d", balance % 100) +
+                ", balance=" + MoneyFormatter.format(balance) +
                 '}';
     }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package model;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Resumo de uma execução da atualização de rendimentos das carteiras de investimento.
+ *
+ * @param batchId Identificador do lote, compartilhado por todos os registros de rendimento da execução
+ * @param appliedAt Instante da execução, compartilhado por todos os registros de rendimento
+ * @param wallets Quantidade de carteiras atualizadas
+ * @param totalPaid Soma dos rendimentos creditados (em centavos)
+ */
+public record YieldSummary(
+        UUID batchId,
+        OffsetDateTime appliedAt,
+        int wallets,
+        long totalPaid)
+{
+    /**
+     * Retorna uma representação em string do resumo.
+     *
+     * @return String formatada com os totais da execução
+     */
+    @Override
+    public String toString() {
+        return "YieldSummary{" +
+                "batchId=" + batchId +
+                ", appliedAt=" + appliedAt +
+                ", wallets=" + wallets +
+                ", totalPaid=" + MoneyFormatter.format(totalPaid) +
+                '}';
+    }
+}
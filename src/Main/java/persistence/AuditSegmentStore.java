@@ -0,0 +1,339 @@
+package persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static persistence.ColumnarAuditStore.BLOCK_BYTES;
+import static persistence.ColumnarAuditStore.BLOCK_ROWS;
+import static persistence.ColumnarAuditStore.COLUMN_OFFSETS;
+import static persistence.ColumnarAuditStore.COLUMN_WIDTHS;
+
+/**
+ * Camada fria do histórico de auditoria: segmentos comprimidos em um arquivo só de acréscimo.
+ * <p>
+ * Cada segmento guarda {@link #SEGMENT_BLOCKS} blocos consecutivos de uma carteira, copiados do
+ * {@link ColumnarAuditStore} e comprimidos coluna a coluna: cada coluna do segmento é gravada como
+ * diferenças entre valores consecutivos em inteiros de tamanho variável, ou em bruto quando isso não
+ * a reduz, como na metade aleatória dos identificadores. Instantes, valores, códigos e a metade
+ * ordenada por tempo dos identificadores ficam com poucos bytes por registro, a um custo de
+ * compressão bem menor que o de um compressor genérico. Um segmento gravado
+ * nunca é alterado; é identificado por uma referência com a sua posição e o seu tamanho no arquivo.
+ * Os segmentos lidos mais recentemente ficam descomprimidos em um cache pequeno, de modo que a
+ * leitura sequencial de um histórico descomprime cada segmento uma única vez.
+ * </p>
+ * <p>
+ * O arquivo é uma área de trabalho: seu conteúdo não é recuperado entre execuções.
+ * </p>
+ */
+public class AuditSegmentStore {
+
+    /**
+     * Quantidade de blocos de cada segmento.
+     */
+    public static final int SEGMENT_BLOCKS = 16;
+
+    /**
+     * Quantidade de registros de cada segmento.
+     */
+    public static final int SEGMENT_ROWS = SEGMENT_BLOCKS * BLOCK_ROWS;
+
+    /**
+     * Tamanho de um segmento descomprimido, em bytes.
+     */
+    private static final int SEGMENT_BYTES = SEGMENT_BLOCKS * BLOCK_BYTES;
+
+    /**
+     * Marca de coluna gravada em bruto.
+     */
+    private static final byte RAW = 0;
+
+    /**
+     * Marca de coluna gravada como diferenças em inteiros de tamanho variável.
+     */
+    private static final byte DELTA = 1;
+
+    /**
+     * Quantidade de bits da referência usados para o tamanho comprimido do segmento.
+     */
+    private static final int LENGTH_BITS = 20;
+
+    /**
+     * Quantidade de segmentos descomprimidos mantidos em cache.
+     */
+    private static final int CACHE_SEGMENTS = 64;
+
+    /**
+     * Instância compartilhada usada pelas carteiras.
+     */
+    private static volatile AuditSegmentStore shared;
+
+    /**
+     * Canal do arquivo de segmentos.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Fim do arquivo: posição onde o próximo segmento será gravado.
+     */
+    private final AtomicLong end = new AtomicLong();
+
+    /**
+     * Segmentos descomprimidos lidos mais recentemente, indexados pela referência.
+     */
+    private final Map<Long, ByteBuffer> cache = new LinkedHashMap<>(CACHE_SEGMENTS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Long, ByteBuffer> eldest) {
+            return size() > CACHE_SEGMENTS;
+        }
+    };
+
+    /**
+     * Abre o arquivo de segmentos informado, descartando qualquer conteúdo anterior.
+     *
+     * @param path Caminho do arquivo de segmentos
+     * @throws IOException Se o arquivo não puder ser aberto
+     */
+    public AuditSegmentStore(final Path path) throws IOException {
+        this.channel = FileChannel.open(path, CREATE, READ, WRITE, TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Retorna o arquivo de segmentos compartilhado pelas carteiras.
+     * O arquivo é criado no diretório indicado pela propriedade {@code pixbank.audit.dir}
+     * ou, na sua ausência, no diretório temporário do sistema, e é removido ao fim da execução.
+     *
+     * @return O arquivo de segmentos compartilhado
+     * @throws UncheckedIOException Se o arquivo não puder ser criado
+     */
+    public static AuditSegmentStore shared() {
+        var store = shared;
+        if (store == null) {
+            synchronized (AuditSegmentStore.class) {
+                store = shared;
+                if (store == null) {
+                    try {
+                        var dir = System.getProperty("pixbank.audit.dir");
+                        var path = dir == null
+                                ? Files.createTempFile("pixbank-audit", ".seg")
+                                : Files.createTempFile(Path.of(dir), "pixbank-audit", ".seg");
+                        path.toFile().deleteOnExit();
+                        store = new AuditSegmentStore(path);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Falha ao criar o arquivo de segmentos de auditoria", e);
+                    }
+                    shared = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Comprime e grava um segmento com os {@link #SEGMENT_BLOCKS} blocos informados.
+     * Os blocos continuam válidos no armazenamento de origem; liberá-los cabe a quem os possui.
+     *
+     * @param source Armazenamento de onde os blocos são copiados
+     * @param blocks Números dos blocos, em ordem
+     * @param from Posição do primeiro bloco do segmento no vetor
+     * @return Referência do segmento gravado
+     * @throws UncheckedIOException Se o segmento não puder ser gravado
+     */
+    public long write(final ColumnarAuditStore source, final int[] blocks, final int from) {
+        var raw = new byte[SEGMENT_BYTES];
+        for (int i = 0; i < SEGMENT_BLOCKS; i++) {
+            source.copyBlock(blocks[from + i], raw, i * BLOCK_BYTES);
+        }
+        var compressed = compress(raw);
+        long offset = end.getAndAdd(compressed.length);
+        try {
+            var buffer = ByteBuffer.wrap(compressed);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao gravar segmento de auditoria", e);
+        }
+        long reference = offset << LENGTH_BITS | compressed.length;
+        synchronized (cache) {
+            cache.put(reference, ByteBuffer.wrap(raw).asReadOnlyBuffer());
+        }
+        return reference;
+    }
+
+    /**
+     * Retorna o conteúdo descomprimido de um segmento, lendo-o do arquivo se não estiver em cache.
+     * Os registros são lidos com {@link ColumnarAuditStore#read(ByteBuffer, int)}.
+     *
+     * @param reference Referência retornada por {@link #write(ColumnarAuditStore, int[], int)}
+     * @return Conteúdo bruto dos blocos do segmento, somente leitura
+     * @throws UncheckedIOException Se o segmento não puder ser lido
+     */
+    public ByteBuffer read(final long reference) {
+        synchronized (cache) {
+            var cached = cache.get(reference);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        var compressed = ByteBuffer.allocate((int) (reference & ((1 << LENGTH_BITS) - 1)));
+        long offset = reference >>> LENGTH_BITS;
+        try {
+            while (compressed.hasRemaining()) {
+                if (channel.read(compressed, offset + compressed.position()) < 0) {
+                    throw new IOException("Segmento de auditoria truncado na posicao " + offset);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao ler segmento de auditoria", e);
+        }
+        var segment = ByteBuffer.wrap(decompress(compressed.array())).asReadOnlyBuffer();
+        synchronized (cache) {
+            cache.put(reference, segment);
+        }
+        return segment;
+    }
+
+    /**
+     * Retorna o tamanho do arquivo de segmentos.
+     *
+     * @return Bytes gravados
+     */
+    public long size() {
+        return end.get();
+    }
+
+    /**
+     * Comprime o conteúdo de um segmento, coluna a coluna.
+     */
+    private static byte[] compress(final byte[] raw) {
+        var source = ByteBuffer.wrap(raw);
+        var output = new byte[SEGMENT_BYTES + COLUMN_OFFSETS.length];
+        var deltas = new byte[SEGMENT_ROWS * 10];
+        int length = 0;
+        for (int column = 0; column < COLUMN_OFFSETS.length; column++) {
+            int width = COLUMN_WIDTHS[column];
+            int deltaLength = 0;
+            long previous = 0;
+            for (int position = 0; position < SEGMENT_ROWS; position++) {
+                long value = value(source, column, position);
+                deltaLength = writeVarLong(deltas, deltaLength, value - previous);
+                previous = value;
+            }
+            if (deltaLength < SEGMENT_ROWS * width) {
+                output[length++] = DELTA;
+                System.arraycopy(deltas, 0, output, length, deltaLength);
+                length += deltaLength;
+            } else {
+                output[length++] = RAW;
+                for (int block = 0; block < SEGMENT_BLOCKS; block++) {
+                    System.arraycopy(raw, block * BLOCK_BYTES + COLUMN_OFFSETS[column], output, length, BLOCK_ROWS * width);
+                    length += BLOCK_ROWS * width;
+                }
+            }
+        }
+        return Arrays.copyOf(output, length);
+    }
+
+    /**
+     * Descomprime o conteúdo de um segmento, restaurando o formato dos blocos.
+     */
+    private static byte[] decompress(final byte[] compressed) {
+        var raw = new byte[SEGMENT_BYTES];
+        var target = ByteBuffer.wrap(raw);
+        int[] offset = {0};
+        try {
+            for (int column = 0; column < COLUMN_OFFSETS.length; column++) {
+                int width = COLUMN_WIDTHS[column];
+                byte mark = compressed[offset[0]++];
+                if (mark == DELTA) {
+                    long value = 0;
+                    for (int position = 0; position < SEGMENT_ROWS; position++) {
+                        value += readVarLong(compressed, offset);
+                        put(target, column, position, value);
+                    }
+                } else if (mark == RAW) {
+                    for (int block = 0; block < SEGMENT_BLOCKS; block++) {
+                        System.arraycopy(compressed, offset[0], raw, block * BLOCK_BYTES + COLUMN_OFFSETS[column], BLOCK_ROWS * width);
+                        offset[0] += BLOCK_ROWS * width;
+                    }
+                } else {
+                    throw new IOException("Marca de coluna invalida: " + mark);
+                }
+            }
+            if (offset[0] != compressed.length) {
+                throw new IOException("Tamanho inesperado: " + compressed.length);
+            }
+        } catch (IOException | IndexOutOfBoundsException e) {
+            throw new UncheckedIOException(new IOException("Segmento de auditoria corrompido", e));
+        }
+        return raw;
+    }
+
+    /**
+     * Lê o valor de uma coluna na posição informada do segmento.
+     */
+    private static long value(final ByteBuffer segment, final int column, final int position) {
+        int index = (position / BLOCK_ROWS) * BLOCK_BYTES + COLUMN_OFFSETS[column]
+                + (position % BLOCK_ROWS) * COLUMN_WIDTHS[column];
+        return switch (COLUMN_WIDTHS[column]) {
+            case Long.BYTES -> segment.getLong(index);
+            case Integer.BYTES -> segment.getInt(index);
+            default -> segment.get(index);
+        };
+    }
+
+    /**
+     * Grava o valor de uma coluna na posição informada do segmento.
+     */
+    private static void put(final ByteBuffer segment, final int column, final int position, final long value) {
+        int index = (position / BLOCK_ROWS) * BLOCK_BYTES + COLUMN_OFFSETS[column]
+                + (position % BLOCK_ROWS) * COLUMN_WIDTHS[column];
+        switch (COLUMN_WIDTHS[column]) {
+            case Long.BYTES -> segment.putLong(index, value);
+            case Integer.BYTES -> segment.putInt(index, (int) value);
+            default -> segment.put(index, (byte) value);
+        }
+    }
+
+    /**
+     * Grava um inteiro com sinal em tamanho variável (zigzag, 7 bits por byte).
+     *
+     * @return Posição seguinte ao valor gravado
+     */
+    private static int writeVarLong(final byte[] target, int offset, final long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            target[offset++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        target[offset++] = (byte) zigzag;
+        return offset;
+    }
+
+    /**
+     * Lê um inteiro gravado por {@link #writeVarLong(byte[], int, long)}, avançando a posição.
+     */
+    private static long readVarLong(final byte[] source, final int[] offset) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = source[offset[0]++];
+            zigzag |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Inteiro de tamanho variavel invalido");
+    }
+}
@@ -0,0 +1,677 @@
+package persistence;
+
+import model.BankService;
+import model.MoneyAudit;
+import model.TransactionType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Armazenamento colunar, fora do heap, dos registros de auditoria das carteiras.
+ * <p>
+ * Os registros ficam em um arquivo mapeado em memória, dividido em blocos de {@link #BLOCK_ROWS} linhas.
+ * Cada bloco pertence a uma única carteira e guarda seus campos em colunas: instante em nanossegundos
+ * desde a época, as duas metades do identificador, valor, ID do investimento, código da contraparte,
+ * código do serviço e código do tipo de transação.
+ * </p>
+ * <p>
+ * As chaves PIX das contrapartes são codificadas por dicionário, gravado em um segundo arquivo
+ * mapeado: o código é a posição da chave nesse arquivo, e cada chave distinta é gravada uma única vez.
+ * A chave é localizada por uma tabela de espalhamento fora do heap, com endereçamento aberto, que guarda
+ * apenas os códigos; o hash de cada chave fica gravado junto dela, para que a tabela cresça sem reler
+ * as chaves. No heap ficam apenas caches de tamanho fixo ({@link #KEY_CACHE_SIZE} chaves) das
+ * codificações e decodificações recentes.
+ * </p>
+ * <p>
+ * Blocos liberados, como os já transferidos para um {@link AuditSegmentStore}, voltam a uma lista livre
+ * e são reaproveitados nas próximas alocações, de modo que o arquivo cresce com os blocos em uso,
+ * e não com o total de registros.
+ * </p>
+ * <p>
+ * O arquivo é uma área de trabalho: seu conteúdo não é recuperado entre execuções.
+ * </p>
+ */
+public class ColumnarAuditStore {
+
+    /**
+     * Quantidade de linhas de cada bloco.
+     */
+    public static final int BLOCK_ROWS = 16;
+
+    /**
+     * Deslocamento da coluna de instantes dentro do bloco.
+     */
+    private static final int TIME_COLUMN = 0;
+
+    /**
+     * Deslocamento da coluna com a metade mais significativa do identificador.
+     */
+    private static final int ID_HIGH_COLUMN = TIME_COLUMN + BLOCK_ROWS * Long.BYTES;
+
+    /**
+     * Deslocamento da coluna com a metade menos significativa do identificador.
+     */
+    private static final int ID_LOW_COLUMN = ID_HIGH_COLUMN + BLOCK_ROWS * Long.BYTES;
+
+    /**
+     * Deslocamento da coluna de valores.
+     */
+    private static final int AMOUNT_COLUMN = ID_LOW_COLUMN + BLOCK_ROWS * Long.BYTES;
+
+    /**
+     * Deslocamento da coluna de IDs de investimento.
+     */
+    private static final int INVESTMENT_COLUMN = AMOUNT_COLUMN + BLOCK_ROWS * Long.BYTES;
+
+    /**
+     * Deslocamento da coluna de códigos de contraparte.
+     */
+    private static final int COUNTERPARTY_COLUMN = INVESTMENT_COLUMN + BLOCK_ROWS * Long.BYTES;
+
+    /**
+     * Deslocamento da coluna de códigos de serviço.
+     */
+    private static final int SERVICE_COLUMN = COUNTERPARTY_COLUMN + BLOCK_ROWS * Integer.BYTES;
+
+    /**
+     * Deslocamento da coluna de códigos de tipo de transação.
+     */
+    private static final int TYPE_COLUMN = SERVICE_COLUMN + BLOCK_ROWS;
+
+    /**
+     * Tamanho de um bloco, em bytes.
+     */
+    public static final int BLOCK_BYTES = TYPE_COLUMN + BLOCK_ROWS;
+
+    /**
+     * Deslocamento de cada coluna dentro do bloco, na ordem do bloco.
+     */
+    static final int[] COLUMN_OFFSETS = {TIME_COLUMN, ID_HIGH_COLUMN, ID_LOW_COLUMN, AMOUNT_COLUMN,
+            INVESTMENT_COLUMN, COUNTERPARTY_COLUMN, SERVICE_COLUMN, TYPE_COLUMN};
+
+    /**
+     * Tamanho dos valores de cada coluna, em bytes, na ordem de {@link #COLUMN_OFFSETS}.
+     */
+    static final int[] COLUMN_WIDTHS = {Long.BYTES, Long.BYTES, Long.BYTES, Long.BYTES,
+            Long.BYTES, Integer.BYTES, Byte.BYTES, Byte.BYTES};
+
+    /**
+     * Quantidade de blocos em cada trecho mapeado do arquivo (cerca de 64 MB).
+     */
+    private static final int BLOCKS_PER_CHUNK = (64 << 20) / BLOCK_BYTES;
+
+    /**
+     * Código usado para transações sem contraparte.
+     */
+    private static final int NO_COUNTERPARTY = -1;
+
+    /**
+     * Quantidade de chaves de contraparte mantidas em cada cache do dicionário (potência de dois),
+     * configurável pela propriedade {@code pixbank.audit.keys}.
+     */
+    public static final int KEY_CACHE_SIZE = Integer.highestOneBit(Math.max(16, Integer.getInteger("pixbank.audit.keys", 4096)));
+
+    /**
+     * Tamanho de cada trecho mapeado do dicionário de contrapartes (64 MB).
+     */
+    private static final int KEY_CHUNK_BYTES = 64 << 20;
+
+    /**
+     * Alinhamento das chaves no dicionário, em bits; o código de uma chave é a sua posição deslocada.
+     */
+    private static final int KEY_ALIGNMENT_BITS = 3;
+
+    /**
+     * Cabeçalho de cada chave no dicionário: tamanho em bytes e hash da chave.
+     */
+    private static final int KEY_HEADER_BYTES = 2 * Integer.BYTES;
+
+    /**
+     * Quantidade inicial de posições da tabela de espalhamento do dicionário (potência de dois).
+     */
+    private static final int INITIAL_INDEX_SLOTS = 1 << 12;
+
+    /**
+     * Quantidade máxima de posições da tabela de espalhamento, limitada pelo tamanho de um buffer direto.
+     */
+    private static final int MAX_INDEX_SLOTS = 1 << 29;
+
+    /**
+     * Serviços bancários indexados pelo código gravado.
+     */
+    private static final BankService[] SERVICES = BankService.values();
+
+    /**
+     * Tipos de transação indexados pelo código gravado.
+     */
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    /**
+     * Instância compartilhada usada pelas carteiras.
+     */
+    private static volatile ColumnarAuditStore shared;
+
+    /**
+     * Canal do arquivo de armazenamento.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Trechos mapeados do arquivo.
+     */
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+    /**
+     * Quantidade de blocos já alocados.
+     */
+    private int allocatedBlocks;
+
+    /**
+     * Blocos liberados, disponíveis para reaproveitamento.
+     */
+    private int[] freeBlocks = new int[0];
+
+    /**
+     * Quantidade de blocos na lista livre.
+     */
+    private int freeCount;
+
+    /**
+     * Canal do arquivo do dicionário de contrapartes.
+     */
+    private final FileChannel keyChannel;
+
+    /**
+     * Trechos mapeados do dicionário de contrapartes.
+     */
+    private volatile MappedByteBuffer[] keyChunks = new MappedByteBuffer[0];
+
+    /**
+     * Bytes já usados no dicionário de contrapartes; protegido pelo monitor de {@link #encodedKeys}.
+     */
+    private long keyBytes;
+
+    /**
+     * Tabela de espalhamento do dicionário, fora do heap: cada posição guarda o código da chave
+     * mais um, e zero indica posição vazia. Protegida pelo monitor de {@link #encodedKeys}.
+     */
+    private ByteBuffer keyIndex = ByteBuffer.allocateDirect(INITIAL_INDEX_SLOTS * Integer.BYTES);
+
+    /**
+     * Quantidade de chaves na tabela de espalhamento; protegida pelo monitor de {@link #encodedKeys}.
+     */
+    private int indexedKeys;
+
+    /**
+     * Cache das chaves codificadas recentemente, indexado pelo hash da chave.
+     */
+    private final String[] encodedKeys = new String[KEY_CACHE_SIZE];
+
+    /**
+     * Códigos das chaves em {@link #encodedKeys}, na mesma posição.
+     */
+    private final int[] encodedCodes = new int[KEY_CACHE_SIZE];
+
+    /**
+     * Cache das chaves decodificadas recentemente, indexado pelo código.
+     */
+    private final String[] decodedKeys = new String[KEY_CACHE_SIZE];
+
+    /**
+     * Códigos das chaves em {@link #decodedKeys}, na mesma posição.
+     */
+    private final int[] decodedCodes = new int[KEY_CACHE_SIZE];
+
+    /**
+     * Abre o armazenamento no arquivo informado, descartando qualquer conteúdo anterior.
+     * O dicionário de contrapartes é gravado em um arquivo ao lado, com o sufixo {@code .keys}.
+     *
+     * @param path Caminho do arquivo de armazenamento
+     * @throws IOException Se algum dos arquivos não puder ser aberto
+     */
+    public ColumnarAuditStore(final Path path) throws IOException {
+        this(path, path.resolveSibling(path.getFileName() + ".keys"));
+    }
+
+    /**
+     * Abre o armazenamento e o dicionário de contrapartes nos arquivos informados,
+     * descartando qualquer conteúdo anterior.
+     *
+     * @param path Caminho do arquivo de armazenamento
+     * @param keysPath Caminho do arquivo do dicionário de contrapartes
+     * @throws IOException Se algum dos arquivos não puder ser aberto
+     */
+    public ColumnarAuditStore(final Path path, final Path keysPath) throws IOException {
+        this.channel = FileChannel.open(path, CREATE, READ, WRITE, TRUNCATE_EXISTING);
+        try {
+            this.keyChannel = FileChannel.open(keysPath, CREATE, READ, WRITE, TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Retorna o armazenamento compartilhado pelas carteiras.
+     * O arquivo é criado no diretório indicado pela propriedade {@code pixbank.audit.dir}
+     * ou, na sua ausência, no diretório temporário do sistema, e é removido ao fim da execução.
+     *
+     * @return O armazenamento compartilhado
+     * @throws UncheckedIOException Se o arquivo não puder ser criado
+     */
+    public static ColumnarAuditStore shared() {
+        var store = shared;
+        if (store == null) {
+            synchronized (ColumnarAuditStore.class) {
+                store = shared;
+                if (store == null) {
+                    try {
+                        var dir = System.getProperty("pixbank.audit.dir");
+                        var path = dir == null
+                                ? Files.createTempFile("pixbank-audit", ".col")
+                                : Files.createTempFile(Path.of(dir), "pixbank-audit", ".col");
+                        var keysPath = path.resolveSibling(path.getFileName() + ".keys");
+                        path.toFile().deleteOnExit();
+                        keysPath.toFile().deleteOnExit();
+                        store = new ColumnarAuditStore(path, keysPath);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Falha ao criar o armazenamento de auditoria", e);
+                    }
+                    shared = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Aloca um bloco de linhas, reaproveitando um bloco liberado ou mapeando um novo trecho
+     * do arquivo quando necessário.
+     *
+     * @return Número do bloco alocado
+     * @throws UncheckedIOException Se o arquivo não puder ser ampliado
+     */
+    public synchronized int allocateBlock() {
+        if (freeCount > 0) {
+            return freeBlocks[--freeCount];
+        }
+        int block = allocatedBlocks;
+        int chunk = block / BLOCKS_PER_CHUNK;
+        if (chunk == chunks.length) {
+            try {
+                var mapped = channel.map(FileChannel.MapMode.READ_WRITE,
+                        (long) chunk * BLOCKS_PER_CHUNK * BLOCK_BYTES, (long) BLOCKS_PER_CHUNK * BLOCK_BYTES);
+                var grown = Arrays.copyOf(chunks, chunk + 1);
+                grown[chunk] = mapped;
+                chunks = grown;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao ampliar o armazenamento de auditoria", e);
+            }
+        }
+        allocatedBlocks++;
+        return block;
+    }
+
+    /**
+     * Devolve um bloco à lista livre. O bloco não deve mais ser lido pelo dono anterior.
+     *
+     * @param block Número do bloco
+     */
+    public synchronized void releaseBlock(final int block) {
+        if (freeCount == freeBlocks.length) {
+            freeBlocks = Arrays.copyOf(freeBlocks, Math.max(16, freeBlocks.length * 2));
+        }
+        freeBlocks[freeCount++] = block;
+    }
+
+    /**
+     * Copia o conteúdo bruto de um bloco, para gravação em outro meio.
+     *
+     * @param block Número do bloco
+     * @param target Destino da cópia
+     * @param offset Posição inicial no destino, com espaço para {@link #BLOCK_BYTES} bytes
+     */
+    public void copyBlock(final int block, final byte[] target, final int offset) {
+        chunks[block / BLOCKS_PER_CHUNK].get((block % BLOCKS_PER_CHUNK) * BLOCK_BYTES, target, offset, BLOCK_BYTES);
+    }
+
+    /**
+     * Grava um registro de auditoria em uma linha de um bloco.
+     *
+     * @param block Número do bloco
+     * @param row Linha dentro do bloco
+     * @param audit Registro de auditoria
+     */
+    public void write(final int block, final int row, final MoneyAudit audit) {
+        write(block, row, audit, encode(audit.counterparty()));
+    }
+
+    /**
+     * Grava um registro de auditoria em uma linha de um bloco, com a contraparte já codificada.
+     * Não falha: a codificação, que pode ampliar o dicionário, é feita antes por {@link #encode(String)}.
+     *
+     * @param block Número do bloco
+     * @param row Linha dentro do bloco
+     * @param audit Registro de auditoria
+     * @param counterpartyCode Código da contraparte do registro
+     */
+    public void write(final int block, final int row, final MoneyAudit audit, final int counterpartyCode) {
+        var buffer = chunks[block / BLOCKS_PER_CHUNK];
+        int base = (block % BLOCKS_PER_CHUNK) * BLOCK_BYTES;
+        buffer.putLong(base + TIME_COLUMN + row * Long.BYTES, epochNanos(audit.createdAt()));
+        buffer.putLong(base + ID_HIGH_COLUMN + row * Long.BYTES, audit.transactionId().getMostSignificantBits());
+        buffer.putLong(base + ID_LOW_COLUMN + row * Long.BYTES, audit.transactionId().getLeastSignificantBits());
+        buffer.putLong(base + AMOUNT_COLUMN + row * Long.BYTES, audit.amount());
+        buffer.putLong(base + INVESTMENT_COLUMN + row * Long.BYTES, audit.investmentId());
+        buffer.putInt(base + COUNTERPARTY_COLUMN + row * Integer.BYTES, counterpartyCode);
+        buffer.put(base + SERVICE_COLUMN + row, (byte) audit.targetService().ordinal());
+        buffer.put(base + TYPE_COLUMN + row, (byte) audit.type().ordinal());
+    }
+
+    /**
+     * Copia uma linha para outra posição, coluna a coluna, sem montar o registro.
+     *
+     * @param fromBlock Número do bloco de origem
+     * @param fromRow Linha de origem
+     * @param toBlock Número do bloco de destino
+     * @param toRow Linha de destino
+     */
+    public void copyRow(final int fromBlock, final int fromRow, final int toBlock, final int toRow) {
+        var from = chunks[fromBlock / BLOCKS_PER_CHUNK];
+        var to = chunks[toBlock / BLOCKS_PER_CHUNK];
+        int fromBase = (fromBlock % BLOCKS_PER_CHUNK) * BLOCK_BYTES;
+        int toBase = (toBlock % BLOCKS_PER_CHUNK) * BLOCK_BYTES;
+        for (int column = 0; column < COLUMN_OFFSETS.length; column++) {
+            int width = COLUMN_WIDTHS[column];
+            to.put(toBase + COLUMN_OFFSETS[column] + toRow * width,
+                    from, fromBase + COLUMN_OFFSETS[column] + fromRow * width, width);
+        }
+    }
+
+    /**
+     * Lê o registro de auditoria de uma linha de um bloco.
+     *
+     * @param block Número do bloco
+     * @param row Linha dentro do bloco
+     * @return O registro de auditoria
+     */
+    public MoneyAudit read(final int block, final int row) {
+        return read(chunks[block / BLOCKS_PER_CHUNK], (block % BLOCKS_PER_CHUNK) * BLOCK_BYTES, row);
+    }
+
+    /**
+     * Lê um registro de uma sequência de blocos copiados com {@link #copyBlock(int, byte[], int)}.
+     *
+     * @param blocks Conteúdo bruto dos blocos, em sequência
+     * @param position Posição do registro na sequência
+     * @return O registro de auditoria
+     */
+    public MoneyAudit read(final ByteBuffer blocks, final int position) {
+        return read(blocks, (position / BLOCK_ROWS) * BLOCK_BYTES, position % BLOCK_ROWS);
+    }
+
+    /**
+     * Lê apenas o instante de uma linha de um bloco, sem montar o registro.
+     * Usado nas buscas por intervalo de tempo.
+     *
+     * @param block Número do bloco
+     * @param row Linha dentro do bloco
+     * @return Instante do registro, em nanossegundos desde a época
+     */
+    public long readTime(final int block, final int row) {
+        var buffer = chunks[block / BLOCKS_PER_CHUNK];
+        return buffer.getLong((block % BLOCKS_PER_CHUNK) * BLOCK_BYTES + TIME_COLUMN + row * Long.BYTES);
+    }
+
+    /**
+     * Lê apenas o instante de um registro de uma sequência de blocos copiados.
+     *
+     * @param blocks Conteúdo bruto dos blocos, em sequência
+     * @param position Posição do registro na sequência
+     * @return Instante do registro, em nanossegundos desde a época
+     */
+    public static long readTime(final ByteBuffer blocks, final int position) {
+        return blocks.getLong((position / BLOCK_ROWS) * BLOCK_BYTES + TIME_COLUMN + (position % BLOCK_ROWS) * Long.BYTES);
+    }
+
+    /**
+     * Monta o registro de uma linha de um bloco que começa na posição informada do buffer.
+     */
+    private MoneyAudit read(final ByteBuffer buffer, final int base, final int row) {
+        long nanos = buffer.getLong(base + TIME_COLUMN + row * Long.BYTES);
+        var id = new UUID(buffer.getLong(base + ID_HIGH_COLUMN + row * Long.BYTES),
+                buffer.getLong(base + ID_LOW_COLUMN + row * Long.BYTES));
+        var createdAt = OffsetDateTime.ofInstant(
+                Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L), Math.floorMod(nanos, 1_000_000_000L)),
+                ZoneId.systemDefault());
+        return new MoneyAudit(
+                id,
+                SERVICES[buffer.get(base + SERVICE_COLUMN + row)],
+                TYPES[buffer.get(base + TYPE_COLUMN + row)],
+                buffer.getLong(base + AMOUNT_COLUMN + row * Long.BYTES),
+                decode(buffer.getInt(base + COUNTERPARTY_COLUMN + row * Integer.BYTES)),
+                buffer.getLong(base + INVESTMENT_COLUMN + row * Long.BYTES),
+                createdAt);
+    }
+
+    /**
+     * Converte um instante na representação gravada na coluna de instantes.
+     *
+     * @param time Instante
+     * @return Nanossegundos desde a época
+     */
+    public static long epochNanos(final OffsetDateTime time) {
+        var instant = time.toInstant();
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    /**
+     * Quantidade de bytes já usados no dicionário de contrapartes.
+     *
+     * @return Bytes usados no dicionário
+     */
+    long dictionaryBytes() {
+        synchronized (encodedKeys) {
+            return keyBytes;
+        }
+    }
+
+    /**
+     * Obtém o código de dicionário de uma chave de contraparte.
+     * Chaves fora do cache são procuradas na tabela de espalhamento; só as que nunca foram
+     * usadas são gravadas no final do dicionário.
+     *
+     * @param counterparty Chave PIX da contraparte, ou {@code null} se não houver
+     * @return Código da chave
+     * @throws IllegalArgumentException Se a chave não couber em um trecho do dicionário
+     * @throws IllegalStateException Se o dicionário atingir o limite de códigos
+     * @throws UncheckedIOException Se o arquivo do dicionário não puder ser ampliado
+     */
+    public int encode(final String counterparty) {
+        if (counterparty == null) {
+            return NO_COUNTERPARTY;
+        }
+        int hash = counterparty.hashCode();
+        int slot = hash & (KEY_CACHE_SIZE - 1);
+        synchronized (encodedKeys) {
+            if (counterparty.equals(encodedKeys[slot])) {
+                return encodedCodes[slot];
+            }
+            var bytes = counterparty.getBytes(StandardCharsets.UTF_8);
+            int code = findKey(bytes, hash);
+            if (code == NO_COUNTERPARTY) {
+                if (2 * (indexedKeys + 1) > keyIndex.capacity() / Integer.BYTES) {
+                    growIndex();
+                }
+                code = appendKey(bytes, hash);
+                keyIndex.putInt(freeIndexSlot(hash), code + 1);
+                indexedKeys++;
+            }
+            encodedKeys[slot] = counterparty;
+            encodedCodes[slot] = code;
+            return code;
+        }
+    }
+
+    /**
+     * Procura uma chave na tabela de espalhamento, comparando o hash e os bytes gravados no dicionário.
+     *
+     * @return Código da chave, ou {@link #NO_COUNTERPARTY} se ela ainda não estiver no dicionário
+     */
+    private int findKey(final byte[] bytes, final int hash) {
+        int mask = keyIndex.capacity() / Integer.BYTES - 1;
+        for (int slot = indexSlot(hash, mask); ; slot = (slot + 1) & mask) {
+            int stored = keyIndex.getInt(slot * Integer.BYTES);
+            if (stored == 0) {
+                return NO_COUNTERPARTY;
+            }
+            int code = stored - 1;
+            long offset = (long) code << KEY_ALIGNMENT_BITS;
+            var buffer = keyChunks[(int) (offset / KEY_CHUNK_BYTES)];
+            int position = (int) (offset % KEY_CHUNK_BYTES);
+            if (buffer.getInt(position + Integer.BYTES) == hash && buffer.getInt(position) == bytes.length
+                    && sameBytes(buffer, position + KEY_HEADER_BYTES, bytes)) {
+                return code;
+            }
+        }
+    }
+
+    /**
+     * Primeira posição vazia da tabela de espalhamento para o hash informado.
+     */
+    private int freeIndexSlot(final int hash) {
+        int mask = keyIndex.capacity() / Integer.BYTES - 1;
+        int slot = indexSlot(hash, mask);
+        while (keyIndex.getInt(slot * Integer.BYTES) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot * Integer.BYTES;
+    }
+
+    /**
+     * Dobra a tabela de espalhamento, reinserindo os códigos pelo hash gravado junto de cada chave.
+     *
+     * @throws IllegalStateException Se a tabela atingir o tamanho máximo
+     */
+    private void growIndex() {
+        int slots = keyIndex.capacity() / Integer.BYTES;
+        if (slots == MAX_INDEX_SLOTS) {
+            throw new IllegalStateException("Dicionario de contrapartes cheio");
+        }
+        var old = keyIndex;
+        keyIndex = ByteBuffer.allocateDirect(2 * slots * Integer.BYTES);
+        for (int i = 0; i < slots; i++) {
+            int stored = old.getInt(i * Integer.BYTES);
+            if (stored != 0) {
+                long offset = (long) (stored - 1) << KEY_ALIGNMENT_BITS;
+                int hash = keyChunks[(int) (offset / KEY_CHUNK_BYTES)].getInt((int) (offset % KEY_CHUNK_BYTES) + Integer.BYTES);
+                keyIndex.putInt(freeIndexSlot(hash), stored);
+            }
+        }
+    }
+
+    /**
+     * Posição inicial de um hash na tabela, espalhando os bits altos para reduzir colisões.
+     */
+    private static int indexSlot(final int hash, final int mask) {
+        int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Compara os bytes gravados a partir de uma posição do dicionário com os bytes de uma chave.
+     */
+    private static boolean sameBytes(final ByteBuffer buffer, final int position, final byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(position + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Grava uma chave no final do dicionário, como tamanho e hash seguidos dos bytes em UTF-8,
+     * sem atravessar o limite entre trechos mapeados.
+     *
+     * @return Código da chave gravada
+     * @throws IllegalArgumentException Se a chave não couber em um trecho do dicionário
+     * @throws IllegalStateException Se o dicionário atingir o limite de códigos
+     * @throws UncheckedIOException Se o arquivo do dicionário não puder ser ampliado
+     */
+    private int appendKey(final byte[] bytes, final int hash) {
+        int alignment = 1 << KEY_ALIGNMENT_BITS;
+        int length = (KEY_HEADER_BYTES + bytes.length + alignment - 1) & -alignment;
+        if (length > KEY_CHUNK_BYTES) {
+            throw new IllegalArgumentException("Chave de contraparte muito longa");
+        }
+        long offset = keyBytes;
+        if (offset % KEY_CHUNK_BYTES + length > KEY_CHUNK_BYTES) {
+            offset += KEY_CHUNK_BYTES - offset % KEY_CHUNK_BYTES;
+        }
+        if (offset >>> KEY_ALIGNMENT_BITS > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Dicionario de contrapartes cheio");
+        }
+        int chunk = (int) (offset / KEY_CHUNK_BYTES);
+        if (chunk == keyChunks.length) {
+            try {
+                var grown = Arrays.copyOf(keyChunks, chunk + 1);
+                grown[chunk] = keyChannel.map(FileChannel.MapMode.READ_WRITE, (long) chunk * KEY_CHUNK_BYTES, KEY_CHUNK_BYTES);
+                keyChunks = grown;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao ampliar o dicionario de contrapartes", e);
+            }
+        }
+        var buffer = keyChunks[chunk];
+        int position = (int) (offset % KEY_CHUNK_BYTES);
+        buffer.putInt(position, bytes.length);
+        buffer.putInt(position + Integer.BYTES, hash);
+        buffer.put(position + KEY_HEADER_BYTES, bytes);
+        keyBytes = offset + length;
+        return (int) (offset >>> KEY_ALIGNMENT_BITS);
+    }
+
+    /**
+     * Obtém a chave de contraparte correspondente a um código de dicionário,
+     * lendo-a do arquivo quando não estiver no cache.
+     */
+    private String decode(final int code) {
+        if (code == NO_COUNTERPARTY) {
+            return null;
+        }
+        int slot = code & (KEY_CACHE_SIZE - 1);
+        synchronized (decodedKeys) {
+            if (decodedCodes[slot] == code && decodedKeys[slot] != null) {
+                return decodedKeys[slot];
+            }
+        }
+        long offset = (long) code << KEY_ALIGNMENT_BITS;
+        var buffer = keyChunks[(int) (offset / KEY_CHUNK_BYTES)];
+        int position = (int) (offset % KEY_CHUNK_BYTES);
+        var bytes = new byte[buffer.getInt(position)];
+        buffer.get(position + KEY_HEADER_BYTES, bytes);
+        var counterparty = new String(bytes, StandardCharsets.UTF_8);
+        synchronized (decodedKeys) {
+            decodedKeys[slot] = counterparty;
+            decodedCodes[slot] = code;
+        }
+        return counterparty;
+    }
+}
@@ -0,0 +1,153 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.zip.CRC32C;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Leitor sequencial do log gravado por {@link WriteAheadLog}.
+ * Decodifica os registros a partir de uma posição do arquivo e os entrega a um {@link TransactionLog},
+ * chamando o método correspondente a cada tipo de registro.
+ * A leitura termina no fim do arquivo ou no primeiro registro incompleto ou corrompido,
+ * que corresponde a uma gravação interrompida. Um tamanho de registro maior que
+ * {@link WriteAheadLog#MAX_BODY_SIZE} ou que o restante do arquivo também é tratado como
+ * fim do log, sem que o buffer de leitura seja ampliado para ele.
+ */
+public class LogReader {
+
+    /**
+     * Tamanho do buffer de leitura, em bytes.
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Caminho do arquivo de log.
+     */
+    private final Path path;
+
+    /**
+     * Cria um leitor para o arquivo de log informado.
+     *
+     * @param path Caminho do arquivo de log
+     */
+    public LogReader(final Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Reaplica os registros do log a partir da posição informada.
+     *
+     * @param fromOffset Posição inicial, em bytes, normalmente a registrada no último snapshot
+     * @param target Destino dos registros decodificados
+     * @return Posição do fim do último registro válido
+     * @throws IOException Se o arquivo não puder ser lido
+     */
+    public long replay(final long fromOffset, final TransactionLog target) throws IOException {
+        if (!Files.exists(path)) {
+            return fromOffset;
+        }
+        try (var channel = FileChannel.open(path, READ)) {
+            long size = channel.size();
+            channel.position(fromOffset);
+            var buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.flip();
+            long offset = fromOffset;
+            while (true) {
+                if (buffer.remaining() < Integer.BYTES) {
+                    buffer = fill(channel, buffer, Integer.BYTES);
+                    if (buffer.remaining() < Integer.BYTES) {
+                        return offset;
+                    }
+                }
+                int bodySize = buffer.getInt(buffer.position());
+                if (bodySize <= 0 || bodySize > WriteAheadLog.MAX_BODY_SIZE
+                        || (long) Integer.BYTES + bodySize + Integer.BYTES > size - offset) {
+                    return offset;
+                }
+                int recordSize = Integer.BYTES + bodySize + Integer.BYTES;
+                if (buffer.remaining() < recordSize) {
+                    buffer = fill(channel, buffer, recordSize);
+                    if (buffer.remaining() < recordSize) {
+                        return offset;
+                    }
+                }
+                int bodyStart = buffer.position() + Integer.BYTES;
+                var crc = new CRC32C();
+                crc.update(buffer.array(), bodyStart, bodySize);
+                if ((int) crc.getValue() != buffer.getInt(bodyStart + bodySize)) {
+                    return offset;
+                }
+                var body = buffer.slice(bodyStart, bodySize);
+                dispatch(body, target);
+                buffer.position(buffer.position() + recordSize);
+                offset += recordSize;
+            }
+        }
+    }
+
+    /**
+     * Lê mais bytes do canal, compactando o buffer e ampliando-o se o registro não couber.
+     */
+    private static ByteBuffer fill(final FileChannel channel, ByteBuffer buffer, final int needed) throws IOException {
+        if (buffer.capacity() < needed) {
+            var larger = ByteBuffer.allocate(needed);
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < needed && channel.read(buffer) > 0) {
+            // continua lendo até ter o registro inteiro ou chegar ao fim do arquivo
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decodifica o corpo de um registro e chama o método correspondente do destino.
+     */
+    private static void dispatch(final ByteBuffer body, final TransactionLog target) {
+        var type = LogRecordType.fromCode(body.get());
+        body.getLong(); // instante da gravação
+        switch (type) {
+            case ACCOUNT_CREATED -> {
+                int count = body.getInt();
+                var pix = new ArrayList<String>(count);
+                for (int i = 0; i < count; i++) {
+                    pix.add(getString(body));
+                }
+                target.accountCreated(pix, body.getLong());
+            }
+            case DEPOSIT -> target.deposit(getString(body), body.getLong());
+            case WITHDRAW -> target.withdraw(getString(body), body.getLong());
+            case TRANSFER -> target.transfer(getString(body), getString(body), body.getLong());
+            case INVESTMENT_CREATED -> target.investmentCreated(body.getLong(), body.getLong(), body.getLong(), getString(body));
+            case INVESTMENT_WALLET_CREATED -> target.investmentWalletCreated(getString(body), body.getLong());
+            case INVESTMENT_DEPOSIT -> target.investmentDeposit(getString(body), body.getLong());
+            case INVESTMENT_WITHDRAW -> target.investmentWithdraw(getString(body), body.getLong());
+            case INVESTMENT_YIELD -> target.investmentYield(getString(body), body.getLong(), body.getLong());
+            case MOVEMENTS -> {
+                int count = body.getInt();
+                var movements = new ArrayList<Movement>(count);
+                for (int i = 0; i < count; i++) {
+                    movements.add(new Movement(getString(body), body.get() != 0, body.getLong()));
+                }
+                target.movements(movements);
+            }
+        }
+    }
+
+    private static String getString(final ByteBuffer body) {
+        int length = body.getInt();
+        var value = new String(body.array(), body.arrayOffset() + body.position(), length, UTF_8);
+        body.position(body.position() + length);
+        return value;
+    }
+}
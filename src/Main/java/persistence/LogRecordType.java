@@ -0,0 +1,92 @@
+package persistence;
+
+/**
+ * Enumeração dos tipos de registro gravados no log de transações.
+ * Cada tipo possui um código de um byte usado no formato binário do log.
+ */
+public enum LogRecordType {
+
+    /**
+     * Criação de conta com suas chaves PIX e depósito inicial.
+     */
+    ACCOUNT_CREATED(1),
+
+    /**
+     * Depósito em conta.
+     */
+    DEPOSIT(2),
+
+    /**
+     * Saque de conta.
+     */
+    WITHDRAW(3),
+
+    /**
+     * Transferência PIX entre contas.
+     */
+    TRANSFER(4),
+
+    /**
+     * Cadastro de tipo de investimento.
+     */
+    INVESTMENT_CREATED(5),
+
+    /**
+     * Criação de carteira de investimento para uma conta.
+     */
+    INVESTMENT_WALLET_CREATED(6),
+
+    /**
+     * Aporte da conta na carteira de investimento.
+     */
+    INVESTMENT_DEPOSIT(7),
+
+    /**
+     * Resgate da carteira de investimento para a conta.
+     */
+    INVESTMENT_WITHDRAW(8),
+
+    /**
+     * Rendimento creditado em uma carteira de investimento.
+     */
+    INVESTMENT_YIELD(9),
+
+    /**
+     * Conjunto de movimentações aplicadas atomicamente, como uma transação de várias pernas ou um lote.
+     */
+    MOVEMENTS(10);
+
+    /**
+     * Código binário do tipo de registro.
+     */
+    private final byte code;
+
+    LogRecordType(final int code) {
+        this.code = (byte) code;
+    }
+
+    /**
+     * Retorna o código binário do tipo de registro.
+     *
+     * @return Código de um byte
+     */
+    public byte code() {
+        return code;
+    }
+
+    /**
+     * Obtém o tipo de registro a partir do código binário.
+     *
+     * @param code Código de um byte
+     * @return O tipo correspondente
+     * @throws IllegalArgumentException Se o código for desconhecido
+     */
+    public static LogRecordType fromCode(final byte code) {
+        for (var type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Tipo de registro desconhecido: " + code);
+    }
+}
@@ -0,0 +1,15 @@
+package persistence;
+
+/**
+ * Movimentação de saldo registrada no log como parte de um conjunto atômico.
+ *
+ * @param pix Chave PIX da conta dona da carteira movimentada
+ * @param investment {@code true} se a carteira movimentada for a carteira de investimento da conta
+ * @param delta Valor somado ao saldo (negativo para débitos), em centavos
+ */
+public record Movement(
+        String pix,
+        boolean investment,
+        long delta)
+{
+}
@@ -0,0 +1,327 @@
+package persistence;
+
+import model.AccountWallet;
+import model.InvestmentWallet;
+import repository.AccountRepository;
+import repository.InvestmentRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Gerencia snapshots compactos do estado dos repositórios e a recuperação na inicialização.
+ * <p>
+ * O snapshot guarda o saldo e as chaves PIX de cada conta, o catálogo de investimentos,
+ * as carteiras de investimento e a posição do log de transações no momento em que foi gravado.
+ * Na recuperação, o snapshot mais recente é lido por mapeamento em memória e apenas os registros
+ * do log posteriores a ele são reaplicados, de modo que o tempo de inicialização depende do
+ * tamanho do snapshot e da atividade recente, e não do histórico inteiro.
+ * </p>
+ * <p>
+ * O histórico de transações das carteiras não faz parte do snapshot.
+ * </p>
+ */
+public class SnapshotManager {
+
+    /**
+     * Identificador do formato do arquivo de snapshot ("PXSN").
+     */
+    private static final int MAGIC = 0x5058534E;
+
+    /**
+     * Versão do formato do arquivo de snapshot.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Posição do identificador do formato no arquivo de snapshot.
+     */
+    private static final int MAGIC_OFFSET = 0;
+
+    /**
+     * Posição da versão do formato no arquivo de snapshot.
+     */
+    private static final int VERSION_OFFSET = Integer.BYTES;
+
+    /**
+     * Caminho do arquivo de snapshot.
+     */
+    private final Path snapshotPath;
+
+    /**
+     * Caminho do arquivo de log de transações.
+     */
+    private final Path logPath;
+
+    /**
+     * Cria o gerenciador para os arquivos de snapshot e de log informados.
+     *
+     * @param snapshotPath Caminho do arquivo de snapshot
+     * @param logPath Caminho do arquivo de log de transações
+     */
+    public SnapshotManager(final Path snapshotPath, final Path logPath) {
+        this.snapshotPath = snapshotPath;
+        this.logPath = logPath;
+    }
+
+    /**
+     * Grava um snapshot do estado atual dos repositórios.
+     * O estado e a posição do log são capturados em memória sem operações em andamento, com o monitor
+     * do repositório de investimentos e as travas de todas as faixas do motor de transações, que deve
+     * ser compartilhado pelos dois repositórios; o arquivo é gravado depois de liberadas as travas.
+     * O arquivo anterior só é substituído depois que o novo snapshot estiver completo e sincronizado com o disco.
+     *
+     * @param accounts Repositório de contas
+     * @param investments Repositório de investimentos
+     * @param log Log de transações em uso
+     * @throws IOException Se o snapshot não puder ser gravado
+     */
+    public void snapshot(final AccountRepository accounts, final InvestmentRepository investments,
+                         final TransactionLog log) throws IOException {
+        byte[] content = investments.callQuiescent(() -> capture(accounts, investments, log));
+        var crc = new CRC32C();
+        crc.update(content);
+        var temp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(temp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            var buffers = new ByteBuffer[] {
+                    ByteBuffer.wrap(content), ByteBuffer.allocate(Integer.BYTES).putInt((int) crc.getValue()).flip()};
+            while (buffers[1].hasRemaining()) {
+                channel.write(buffers);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, snapshotPath, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    /**
+     * Sincroniza o log e serializa o estado dos repositórios, sem o CRC final.
+     * Carteiras de investimento já encerradas, ainda não removidas do índice, não são gravadas.
+     */
+    private static byte[] capture(final AccountRepository accounts, final InvestmentRepository investments,
+                                  final TransactionLog log) {
+        long logOffset = log.sync();
+        var bytes = new ByteArrayOutputStream(1 << 16);
+        var out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(logOffset);
+
+            List<AccountWallet> accountList = accounts.list();
+            out.writeInt(accountList.size());
+            for (var account : accountList) {
+                out.writeInt(account.getPix().size());
+                for (var key : account.getPix()) {
+                    writeString(out, key);
+                }
+                out.writeLong(account.getFunds());
+            }
+
+            var investmentList = investments.list();
+            out.writeInt(investmentList.size());
+            for (var investment : investmentList) {
+                out.writeLong(investment.id());
+                out.writeLong(investment.tax());
+                out.writeLong(investment.initialFunds());
+                writeString(out, investment.nome());
+            }
+
+            List<InvestmentWallet> walletList = investments.listWallets().stream()
+                    .filter(wallet -> !wallet.isClosed())
+                    .toList();
+            out.writeInt(walletList.size());
+            for (var wallet : walletList) {
+                writeString(out, wallet.getAccount().getPix().get(0));
+                out.writeLong(wallet.getInvestment().id());
+                out.writeLong(wallet.getFunds());
+            }
+            out.flush();
+        } catch (IOException e) {
+            // Não ocorre ao gravar em memória
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Recupera o estado dos repositórios a partir do último snapshot e do log de transações.
+     * Os repositórios devem estar vazios. Um registro final incompleto no log, resultado de uma
+     * gravação interrompida, é descartado para que novos registros sejam acrescentados após
+     * o último registro válido.
+     *
+     * @param accounts Repositório de contas a ser preenchido
+     * @param investments Repositório de investimentos a ser preenchido
+     * @return Posição do fim do log após a recuperação
+     * @throws IOException Se o snapshot estiver corrompido ou os arquivos não puderem ser lidos
+     */
+    public long recover(final AccountRepository accounts, final InvestmentRepository investments) throws IOException {
+        long logOffset = Files.exists(snapshotPath) ? loadSnapshot(accounts, investments) : 0;
+        long logEnd = new LogReader(logPath).replay(logOffset, new Replay(accounts, investments));
+        if (Files.exists(logPath) && Files.size(logPath) > logEnd) {
+            try (var channel = FileChannel.open(logPath, WRITE)) {
+                channel.truncate(logEnd);
+                channel.force(true);
+            }
+        }
+        return logEnd;
+    }
+
+    /**
+     * Lê o snapshot por mapeamento em memória e restaura seu conteúdo nos repositórios.
+     *
+     * @return Posição do log registrada no snapshot
+     */
+    private long loadSnapshot(final AccountRepository accounts, final InvestmentRepository investments) throws IOException {
+        try (var channel = FileChannel.open(snapshotPath, READ)) {
+            long size = channel.size();
+            if (size < 2 * Integer.BYTES + Long.BYTES + Integer.BYTES) {
+                throw new IOException("Snapshot corrompido: " + snapshotPath);
+            }
+            var in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            var crc = new CRC32C();
+            crc.update(in.slice(0, (int) size - Integer.BYTES));
+            if (in.getInt(MAGIC_OFFSET) != MAGIC || in.getInt(VERSION_OFFSET) != VERSION
+                    || in.getInt((int) size - Integer.BYTES) != (int) crc.getValue()) {
+                throw new IOException("Snapshot corrompido: " + snapshotPath);
+            }
+            in.position(VERSION_OFFSET + Integer.BYTES);
+            long logOffset = in.getLong();
+
+            int accountCount = in.getInt();
+            for (int i = 0; i < accountCount; i++) {
+                int keyCount = in.getInt();
+                var pix = new ArrayList<String>(keyCount);
+                for (int k = 0; k < keyCount; k++) {
+                    pix.add(readString(in));
+                }
+                accounts.restore(pix, in.getLong());
+            }
+
+            int investmentCount = in.getInt();
+            for (int i = 0; i < investmentCount; i++) {
+                investments.restoreInvestment(in.getLong(), in.getLong(), in.getLong(), readString(in));
+            }
+
+            int walletCount = in.getInt();
+            for (int i = 0; i < walletCount; i++) {
+                var account = accounts.findByPix(readString(in));
+                investments.restoreWallet(account, in.getLong(), in.getLong());
+            }
+            return logOffset;
+        }
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        var bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final ByteBuffer in) {
+        var bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Aplica os registros do log aos repositórios, restaurando o efeito de cada operação
+     * sem revalidá-la e sem registrá-la novamente no log.
+     */
+    private static final class Replay implements TransactionLog {
+
+        private final AccountRepository accounts;
+
+        private final InvestmentRepository investments;
+
+        private Replay(final AccountRepository accounts, final InvestmentRepository investments) {
+            this.accounts = accounts;
+            this.investments = investments;
+        }
+
+        @Override
+        public void accountCreated(final List<String> pix, final long initialFunds) {
+            accounts.restore(pix, initialFunds);
+        }
+
+        @Override
+        public void deposit(final String pix, final long amount) {
+            accounts.findByPix(pix).restoreMoney(amount);
+        }
+
+        @Override
+        public void withdraw(final String pix, final long amount) {
+            accounts.findByPix(pix).restoreMoney(-amount);
+        }
+
+        @Override
+        public void transfer(final String sourcePix, final String targetPix, final long amount) {
+            accounts.findByPix(sourcePix).restoreMoney(-amount);
+            accounts.findByPix(targetPix).restoreMoney(amount);
+        }
+
+        @Override
+        public void investmentCreated(final long id, final long tax, final long initialFunds, final String nome) {
+            investments.restoreInvestment(id, tax, initialFunds, nome);
+        }
+
+        @Override
+        public void investmentWalletCreated(final String pix, final long investmentId) {
+            var account = accounts.findByPix(pix);
+            long initialFunds = investments.findById(investmentId).initialFunds();
+            account.restoreMoney(-initialFunds);
+            investments.restoreWallet(account, investmentId, initialFunds);
+        }
+
+        @Override
+        public void investmentDeposit(final String pix, final long amount) {
+            var wallet = investments.findWalletByAccountPix(pix);
+            wallet.getAccount().restoreMoney(-amount);
+            wallet.restoreMoney(amount);
+        }
+
+        @Override
+        public void investmentWithdraw(final String pix, final long amount) {
+            var wallet = investments.findWalletByAccountPix(pix);
+            wallet.restoreMoney(-amount);
+            wallet.getAccount().restoreMoney(amount);
+            investments.removeIfEmpty(wallet);
+        }
+
+        @Override
+        public void investmentYield(final String pix, final long percent, final long earnings) {
+            investments.findWalletByAccountPix(pix).restoreMoney(earnings);
+        }
+
+        @Override
+        public void movements(final List<Movement> movements) {
+            var touched = new ArrayList<InvestmentWallet>();
+            for (var movement : movements) {
+                if (movement.investment()) {
+                    var wallet = investments.findWalletByAccountPix(movement.pix());
+                    wallet.restoreMoney(movement.delta());
+                    touched.add(wallet);
+                } else {
+                    accounts.findByPix(movement.pix()).restoreMoney(movement.delta());
+                }
+            }
+            touched.forEach(investments::removeIfEmpty);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package persistence;
+
+import java.util.List;
+
+/**
+ * Registro das operações aplicadas aos repositórios.
+ * Cada método é chamado depois que a operação correspondente foi validada e aplicada,
+ * e grava o efeito da operação (não a intenção), de modo que a reaplicação não dependa de revalidação.
+ * <p>
+ * Os repositórios verificam o log com {@link #checkWritable()} antes de alterar o estado, registram a operação
+ * com as mesmas travas com que a aplicam e só depois de liberá-las aguardam a gravação em disco com
+ * {@link #awaitDurability()}.
+ * </p>
+ * A implementação padrão de todos os métodos não faz nada, mantendo o estado apenas em memória.
+ */
+public interface TransactionLog extends AutoCloseable {
+
+    /**
+     * Log vazio, usado quando não há persistência configurada.
+     */
+    TransactionLog NONE = new TransactionLog() { };
+
+    /**
+     * Registra a criação de uma conta.
+     *
+     * @param pix Chaves PIX da conta
+     * @param initialFunds Depósito inicial (em centavos)
+     */
+    default void accountCreated(List<String> pix, long initialFunds) {
+    }
+
+    /**
+     * Registra um depósito em conta.
+     *
+     * @param pix Chave PIX da conta
+     * @param amount Valor depositado (em centavos)
+     */
+    default void deposit(String pix, long amount) {
+    }
+
+    /**
+     * Registra um saque de conta.
+     *
+     * @param pix Chave PIX da conta
+     * @param amount Valor sacado (em centavos)
+     */
+    default void withdraw(String pix, long amount) {
+    }
+
+    /**
+     * Registra uma transferência PIX entre contas.
+     *
+     * @param sourcePix Chave PIX da conta de origem
+     * @param targetPix Chave PIX da conta de destino
+     * @param amount Valor transferido (em centavos)
+     */
+    default void transfer(String sourcePix, String targetPix, long amount) {
+    }
+
+    /**
+     * Registra o cadastro de um tipo de investimento.
+     *
+     * @param id ID do investimento
+     * @param tax Taxa de rendimento (em porcentagem)
+     * @param initialFunds Valor mínimo inicial (em centavos)
+     * @param nome Nome do investimento
+     */
+    default void investmentCreated(long id, long tax, long initialFunds, String nome) {
+    }
+
+    /**
+     * Registra a criação de uma carteira de investimento.
+     *
+     * @param pix Chave PIX da conta dona da carteira
+     * @param investmentId ID do tipo de investimento
+     */
+    default void investmentWalletCreated(String pix, long investmentId) {
+    }
+
+    /**
+     * Registra um aporte na carteira de investimento.
+     *
+     * @param pix Chave PIX da conta dona da carteira
+     * @param amount Valor aplicado (em centavos)
+     */
+    default void investmentDeposit(String pix, long amount) {
+    }
+
+    /**
+     * Registra um resgate da carteira de investimento.
+     *
+     * @param pix Chave PIX da conta dona da carteira
+     * @param amount Valor resgatado (em centavos)
+     */
+    default void investmentWithdraw(String pix, long amount) {
+    }
+
+    /**
+     * Registra o rendimento creditado em uma carteira de investimento.
+     *
+     * @param pix Chave PIX da conta dona da carteira
+     * @param percent Taxa aplicada (em porcentagem)
+     * @param earnings Valor creditado (em centavos)
+     */
+    default void investmentYield(String pix, long percent, long earnings) {
+    }
+
+    /**
+     * Registra um conjunto de movimentações aplicadas como uma única unidade atômica.
+     * O conjunto é gravado em um único registro, de modo que é reaplicado por inteiro ou não é reaplicado.
+     *
+     * @param movements Movimentações aplicadas
+     */
+    default void movements(List<Movement> movements) {
+    }
+
+    /**
+     * Verifica se o log aceita novos registros. Chamado antes de a operação alterar o estado,
+     * para que uma falha já conhecida do log rejeite a operação em vez de deixá-la aplicada e sem registro.
+     *
+     * @throws java.io.UncheckedIOException Se o log estiver fechado ou a gravação tiver falhado
+     */
+    default void checkWritable() {
+    }
+
+    /**
+     * Aguarda, se o log estiver configurado para isso, que os registros já feitos estejam gravados
+     * de forma durável. Chamado depois de liberadas as travas da operação.
+     *
+     * @throws java.io.UncheckedIOException Se a gravação do log tiver falhado
+     */
+    default void awaitDurability() {
+    }
+
+    /**
+     * Garante que os registros já feitos estejam gravados de forma durável.
+     *
+     * @return Tamanho do log, em bytes, após a sincronização
+     */
+    default long sync() {
+        return 0;
+    }
+
+    /**
+     * Fecha o log, garantindo a gravação dos registros pendentes.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,466 @@
+package persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Log binário de transações, somente de acréscimo, gravado com {@link FileChannel}.
+ * <p>
+ * Os registros são acumulados em memória e gravados por uma thread dedicada em lotes
+ * (group commit): cada lote é escrito e sincronizado com o disco com uma única chamada a
+ * {@link FileChannel#force(boolean)}, independentemente de quantos registros contenha.
+ * Quando configurado para aguardar durabilidade, cada operação só retorna depois que o lote
+ * que contém seu registro foi sincronizado; a espera é feita em {@link #awaitDurability()},
+ * fora das travas da operação, e não ao acrescentar o registro.
+ * </p>
+ * <p>
+ * Se a gravação falhar, {@link #checkWritable()} passa a rejeitar novas operações antes que elas alterem
+ * o estado. Um registro acrescentado depois da falha, por uma operação que já passou pela verificação,
+ * é descartado sem exceção, e a falha é informada pela espera da durabilidade.
+ * </p>
+ * <p>
+ * Formato de cada registro: tamanho do corpo ({@code int}), corpo e CRC32C do corpo ({@code int}).
+ * O corpo contém o código do tipo ({@code byte}), o instante da gravação em milissegundos ({@code long})
+ * e os campos da operação; textos são gravados como tamanho ({@code int}) seguido dos bytes em UTF-8.
+ * </p>
+ */
+public class WriteAheadLog implements TransactionLog {
+
+    /**
+     * Capacidade inicial de cada buffer de gravação, em bytes.
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Tamanho máximo do corpo de um registro, em bytes. Na leitura, um tamanho maior indica
+     * um registro corrompido.
+     */
+    static final int MAX_BODY_SIZE = 1 << 28;
+
+    /**
+     * Bytes ocupados pelo cabeçalho do corpo: tipo e instante da gravação.
+     */
+    private static final int BODY_HEADER_SIZE = Byte.BYTES + Long.BYTES;
+
+    /**
+     * Canal do arquivo de log.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Indica se as operações aguardam a sincronização do seu registro com o disco.
+     */
+    private final boolean awaitDurability;
+
+    /**
+     * Tempo que a thread de gravação aguarda para acumular mais registros em um lote.
+     */
+    private final long commitDelayNanos;
+
+    /**
+     * Monitor que protege os buffers e os contadores de sequência.
+     */
+    private final Object monitor = new Object();
+
+    /**
+     * Buffer que recebe os novos registros.
+     */
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * Buffer em gravação pela thread de group commit.
+     */
+    private ByteBuffer flushing = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * Sequência do último registro acrescentado ao buffer.
+     */
+    private long appendedSequence;
+
+    /**
+     * Sequência do último registro sincronizado com o disco.
+     */
+    private long durableSequence;
+
+    /**
+     * Indica se o log foi fechado.
+     */
+    private boolean closed;
+
+    /**
+     * Falha de gravação que interrompeu o log, se houver.
+     */
+    private IOException failure;
+
+    /**
+     * Thread responsável pelo group commit.
+     */
+    private final Thread flusher;
+
+    /**
+     * Abre o log no arquivo informado, aguardando a durabilidade de cada operação.
+     *
+     * @param path Caminho do arquivo de log
+     * @throws IOException Se o arquivo não puder ser aberto
+     */
+    public WriteAheadLog(final Path path) throws IOException {
+        this(path, true, 0);
+    }
+
+    /**
+     * Abre o log no arquivo informado.
+     *
+     * @param path Caminho do arquivo de log
+     * @param awaitDurability Se {@code true}, cada operação aguarda a sincronização do seu registro
+     * @param commitDelayMicros Tempo, em microssegundos, para acumular registros antes de cada lote
+     * @throws IOException Se o arquivo não puder ser aberto
+     */
+    public WriteAheadLog(final Path path, final boolean awaitDurability, final long commitDelayMicros) throws IOException {
+        this.channel = FileChannel.open(path, CREATE, WRITE, APPEND);
+        this.awaitDurability = awaitDurability;
+        this.commitDelayNanos = TimeUnit.MICROSECONDS.toNanos(commitDelayMicros);
+        this.flusher = new Thread(this::flushLoop, "wal-group-commit");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public void accountCreated(final List<String> pix, final long initialFunds) {
+        var keys = new byte[pix.size()][];
+        int size = Integer.BYTES + Long.BYTES;
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = pix.get(i).getBytes(UTF_8);
+            size += sizeOf(keys[i]);
+        }
+        var record = start(LogRecordType.ACCOUNT_CREATED, size).putInt(keys.length);
+        for (var key : keys) {
+            putString(record, key);
+        }
+        record.putLong(initialFunds);
+        append(record);
+    }
+
+    @Override
+    public void deposit(final String pix, final long amount) {
+        appendMovement(LogRecordType.DEPOSIT, pix, amount);
+    }
+
+    @Override
+    public void withdraw(final String pix, final long amount) {
+        appendMovement(LogRecordType.WITHDRAW, pix, amount);
+    }
+
+    @Override
+    public void transfer(final String sourcePix, final String targetPix, final long amount) {
+        var source = bytes(sourcePix);
+        var target = bytes(targetPix);
+        var record = start(LogRecordType.TRANSFER, sizeOf(source) + sizeOf(target) + Long.BYTES);
+        putString(record, source);
+        putString(record, target);
+        record.putLong(amount);
+        append(record);
+    }
+
+    @Override
+    public void investmentCreated(final long id, final long tax, final long initialFunds, final String nome) {
+        var text = bytes(nome);
+        var record = start(LogRecordType.INVESTMENT_CREATED, 3 * Long.BYTES + sizeOf(text))
+                .putLong(id)
+                .putLong(tax)
+                .putLong(initialFunds);
+        putString(record, text);
+        append(record);
+    }
+
+    @Override
+    public void investmentWalletCreated(final String pix, final long investmentId) {
+        var key = bytes(pix);
+        var record = start(LogRecordType.INVESTMENT_WALLET_CREATED, sizeOf(key) + Long.BYTES);
+        putString(record, key);
+        record.putLong(investmentId);
+        append(record);
+    }
+
+    @Override
+    public void investmentDeposit(final String pix, final long amount) {
+        appendMovement(LogRecordType.INVESTMENT_DEPOSIT, pix, amount);
+    }
+
+    @Override
+    public void investmentWithdraw(final String pix, final long amount) {
+        appendMovement(LogRecordType.INVESTMENT_WITHDRAW, pix, amount);
+    }
+
+    @Override
+    public void investmentYield(final String pix, final long percent, final long earnings) {
+        var key = bytes(pix);
+        var record = start(LogRecordType.INVESTMENT_YIELD, sizeOf(key) + 2 * Long.BYTES);
+        putString(record, key);
+        record.putLong(percent).putLong(earnings);
+        append(record);
+    }
+
+    @Override
+    public void movements(final List<Movement> movements) {
+        var keys = new byte[movements.size()][];
+        int size = Integer.BYTES;
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = bytes(movements.get(i).pix());
+            size += sizeOf(keys[i]) + Byte.BYTES + Long.BYTES;
+        }
+        var record = start(LogRecordType.MOVEMENTS, size).putInt(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            var movement = movements.get(i);
+            putString(record, keys[i]);
+            record.put((byte) (movement.investment() ? 1 : 0)).putLong(movement.delta());
+        }
+        append(record);
+    }
+
+    /**
+     * Verifica se o log aceita novos registros.
+     *
+     * @throws UncheckedIOException Se o log estiver fechado ou a gravação tiver falhado
+     */
+    @Override
+    public void checkWritable() {
+        synchronized (monitor) {
+            checkFailure();
+            checkOpen();
+        }
+    }
+
+    /**
+     * Se configurado para aguardar durabilidade, aguarda até que todos os registros já acrescentados,
+     * incluindo os da operação que chama, estejam sincronizados com o disco.
+     *
+     * @throws UncheckedIOException Se a gravação do log tiver falhado
+     */
+    @Override
+    public void awaitDurability() {
+        if (awaitDurability) {
+            synchronized (monitor) {
+                checkFailure();
+                awaitDurable(appendedSequence);
+            }
+        }
+    }
+
+    /**
+     * Aguarda até que todos os registros já acrescentados estejam sincronizados com o disco.
+     *
+     * @return Tamanho do arquivo de log, em bytes, após a sincronização
+     * @throws UncheckedIOException Se a gravação do log tiver falhado
+     */
+    @Override
+    public long sync() {
+        synchronized (monitor) {
+            awaitDurable(appendedSequence);
+        }
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao consultar o log de transacoes", e);
+        }
+    }
+
+    /**
+     * Fecha o log, gravando e sincronizando os registros pendentes.
+     *
+     * @throws UncheckedIOException Se a gravação ou o fechamento do arquivo falharem
+     */
+    @Override
+    public void close() {
+        synchronized (monitor) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            monitor.notifyAll();
+        }
+        try {
+            flusher.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao fechar o log de transacoes", e);
+        }
+        synchronized (monitor) {
+            checkFailure();
+        }
+    }
+
+    /**
+     * Grava uma movimentação de valor identificada por uma chave PIX.
+     */
+    private void appendMovement(final LogRecordType type, final String pix, final long amount) {
+        var key = bytes(pix);
+        var record = start(type, sizeOf(key) + Long.BYTES);
+        putString(record, key);
+        record.putLong(amount);
+        append(record);
+    }
+
+    /**
+     * Acrescenta um registro completo ao buffer pendente, sem aguardar sua durabilidade.
+     * Como a operação já foi aplicada, uma falha de gravação não é lançada aqui: o registro é descartado
+     * e a falha é informada por {@link #awaitDurability()} e pelas verificações seguintes.
+     *
+     * @param record Registro com o corpo já preenchido
+     * @throws UncheckedIOException Se o log estiver fechado
+     */
+    private void append(final ByteBuffer record) {
+        finish(record);
+        synchronized (monitor) {
+            checkOpen();
+            while (failure == null && pending.remaining() < record.remaining()) {
+                if (pending.position() == 0) {
+                    pending = ByteBuffer.allocate(Math.max(BUFFER_SIZE, record.remaining()));
+                    break;
+                }
+                monitor.notifyAll();
+                waitOnMonitor();
+            }
+            if (failure != null) {
+                return;
+            }
+            pending.put(record);
+            ++appendedSequence;
+            monitor.notifyAll();
+        }
+    }
+
+    /**
+     * Laço da thread de group commit: troca os buffers, grava o lote e sincroniza com o disco.
+     */
+    private void flushLoop() {
+        try {
+            while (true) {
+                long batchSequence;
+                synchronized (monitor) {
+                    while (pending.position() == 0 && !closed) {
+                        monitor.wait();
+                    }
+                    if (pending.position() == 0) {
+                        return;
+                    }
+                    if (commitDelayNanos > 0 && !closed) {
+                        TimeUnit.NANOSECONDS.timedWait(monitor, commitDelayNanos);
+                    }
+                    var batch = pending;
+                    pending = flushing;
+                    flushing = batch;
+                    batchSequence = appendedSequence;
+                    monitor.notifyAll();
+                }
+                flushing.flip();
+                while (flushing.hasRemaining()) {
+                    channel.write(flushing);
+                }
+                channel.force(false);
+                flushing.clear();
+                synchronized (monitor) {
+                    durableSequence = batchSequence;
+                    monitor.notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            synchronized (monitor) {
+                failure = e;
+                monitor.notifyAll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Aguarda a sincronização do registro de sequência informada. Deve ser chamado com o monitor.
+     */
+    private void awaitDurable(final long sequence) {
+        while (durableSequence < sequence) {
+            checkFailure();
+            waitOnMonitor();
+        }
+    }
+
+    /**
+     * Aguarda uma notificação no monitor, preservando o estado de interrupção da thread.
+     */
+    private void waitOnMonitor() {
+        try {
+            monitor.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new IOException("Gravacao do log interrompida", e));
+        }
+    }
+
+    /**
+     * Lança exceção se o log já tiver sido fechado. Deve ser chamado com o monitor.
+     */
+    private void checkOpen() {
+        if (closed) {
+            throw new UncheckedIOException(new IOException("Log de transacoes fechado"));
+        }
+    }
+
+    /**
+     * Lança a falha de gravação registrada pela thread de group commit, se houver.
+     */
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Falha na gravacao do log de transacoes", failure);
+        }
+    }
+
+    /**
+     * Inicia um registro, reservando o campo de tamanho e gravando o cabeçalho do corpo.
+     *
+     * @throws IllegalArgumentException Se o corpo exceder {@link #MAX_BODY_SIZE}
+     */
+    private static ByteBuffer start(final LogRecordType type, final int payloadSize) {
+        if (payloadSize < 0 || payloadSize > MAX_BODY_SIZE - BODY_HEADER_SIZE) {
+            throw new IllegalArgumentException("Registro excede o tamanho maximo do log: " + type);
+        }
+        int bodySize = BODY_HEADER_SIZE + payloadSize;
+        return ByteBuffer.allocate(Integer.BYTES + bodySize + Integer.BYTES)
+                .putInt(bodySize)
+                .put(type.code())
+                .putLong(System.currentTimeMillis());
+    }
+
+    /**
+     * Finaliza um registro, acrescentando o CRC32C do corpo e preparando-o para leitura.
+     */
+    private static void finish(final ByteBuffer record) {
+        var crc = new CRC32C();
+        crc.update(record.array(), Integer.BYTES, record.position() - Integer.BYTES);
+        record.putInt((int) crc.getValue());
+        record.flip();
+    }
+
+    private static byte[] bytes(final String value) {
+        return value == null ? new byte[0] : value.getBytes(UTF_8);
+    }
+
+    private static int sizeOf(final byte[] value) {
+        return Integer.BYTES + value.length;
+    }
+
+    private static void putString(final ByteBuffer record, final byte[] value) {
+        record.putInt(value.length).put(value);
+    }
+}
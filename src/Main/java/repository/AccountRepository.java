@@ -2,63 +2,193 @@ package repository;
 
 import exception.AccountNotFoundException;
 import exception.PixInUseException;
+import metrics.Metrics;
+import metrics.Operation;
 import model.AccountWallet;
+import model.BatchResult;
+import model.HistoryPage;
 import model.MoneyAudit;
+import model.OperationResult;
+import model.OperationResult.Reason;
+import model.TransactionType;
+import model.TransferOrder;
+import persistence.TransactionLog;
 
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
-import static repository.CommonsRepository.checkFundsForTransaction;
 import static java.time.temporal.ChronoUnit.SECONDS;
 
 /**
  * Repositório responsável pela gestão de contas bancárias.
  * Gerencia operações como criação de contas, depósitos, saques e transferências PIX.
+ * As operações são seguras para uso concorrente: depósitos e saques travam a conta, e transferências são
+ * executadas pelo {@link TransactionEngine} como uma única operação atômica. Cada operação é registrada no log
+ * com as mesmas travas com que é aplicada, de modo que a ordem do log é a ordem em que os saldos mudaram.
+ * <p>
+ * Depósitos, saques e transferências têm uma variante {@code try*} que descreve a rejeição em um
+ * {@link OperationResult} em vez de lançar exceção; os métodos com exceções delegam a ela.
+ * </p>
  */
 public class AccountRepository {
 
     /**
      * Lista de contas bancárias cadastradas no sistema.
      */
-    private final List<AccountWallet> accounts = new ArrayList<>();
+    private final List<AccountWallet> accounts = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Registro das chaves PIX em uso, indexadas pela conta dona.
+     * Permite localizar a conta de uma chave e validar unicidade em tempo constante.
+     */
+    private final PixKeyRegistry pixRegistry = new PixKeyRegistry();
+
+    /**
+     * Motor que executa as transações de várias pernas, com as travas por faixa das contas.
+     */
+    private final TransactionEngine engine;
+
+    /**
+     * Log onde as operações aplicadas são registradas.
+     */
+    private final TransactionLog log;
+
+    /**
+     * Cria o repositório com a quantidade padrão de faixas de travas, mantendo o estado apenas em memória.
+     */
+    public AccountRepository() {
+        this(StripedLocks.DEFAULT_STRIPES);
+    }
+
+    /**
+     * Cria o repositório com a quantidade de faixas de travas informada, mantendo o estado apenas em memória.
+     *
+     * @param lockStripes Quantidade de faixas de travas para as contas
+     */
+    public AccountRepository(final int lockStripes) {
+        this(lockStripes, TransactionLog.NONE);
+    }
+
+    /**
+     * Cria o repositório registrando as operações no log informado.
+     *
+     * @param log Log de transações
+     */
+    public AccountRepository(final TransactionLog log) {
+        this(StripedLocks.DEFAULT_STRIPES, log);
+    }
+
+    /**
+     * Cria o repositório com a quantidade de faixas de travas e o log informados.
+     *
+     * @param lockStripes Quantidade de faixas de travas para as contas
+     * @param log Log de transações
+     */
+    public AccountRepository(final int lockStripes, final TransactionLog log) {
+        this.engine = new TransactionEngine(new StripedLocks(lockStripes), log);
+        this.log = log;
+    }
 
     /**
      * Cria uma nova conta bancária com chaves PIX.
      *
      * @param pix Lista de chaves PIX associadas à conta
      * @param initialFunds Valor inicial do depósito (em centavos)
-     * @param depositDescription Descrição do depósito inicial
      * @return A conta criada
      * @throws PixInUseException Se alguma chave PIX já estiver em uso
+     * @throws IllegalArgumentException Se o depósito inicial for menor ou igual a zero
      */
-    public AccountWallet create(final List<String> pix, final long initialFunds, final String depositDescription) {
-        if (!accounts.isEmpty()) {
-            var pixInUse = accounts.stream().flatMap(a -> a.getPix().stream()).toList();
-            for (var p : pix) {
-                if (pixInUse.contains(p)) {
-                    throw new PixInUseException("O pix '" + p + "' já está em uso");
-                }
-            }
+    public AccountWallet create(final List<String> pix, final long initialFunds) {
+        if (initialFunds <= 0) {
+            throw new IllegalArgumentException("Valor deve ser positivo");
+        }
+        // A conta, com histórico e depósito inicial, só é construída depois que as chaves forem reservadas
+        pixRegistry.reserveAll(pix);
+        AccountWallet newAccount;
+        try {
+            newAccount = new AccountWallet(initialFunds, pix);
+            // Registrada no log antes de ficar visível, para que nenhuma operação sobre a conta seja gravada
+            // antes dela, e com a trava da conta, para que um snapshot veja o registro e a conta juntos
+            engine.callLocked(newAccount, () -> {
+                log.checkWritable();
+                log.accountCreated(pix, initialFunds);
+                accounts.add(newAccount);
+                pixRegistry.publishAll(pix, newAccount);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            pixRegistry.releaseAll(pix);
+            throw e;
         }
-        var newAccount = new AccountWallet(initialFunds, pix, depositDescription);
-        accounts.add(newAccount);
+        log.awaitDurability();
         return newAccount;
     }
 
+    /**
+     * Restaura uma conta a partir de um snapshot ou do log de transações.
+     * Não registra a operação no log nem no histórico da conta.
+     *
+     * @param pix Lista de chaves PIX associadas à conta
+     * @param balance Saldo da conta (em centavos)
+     * @return A conta restaurada
+     * @throws PixInUseException Se alguma chave PIX já estiver em uso
+     */
+    public AccountWallet restore(final List<String> pix, final long balance) {
+        pixRegistry.reserveAll(pix);
+        var account = new AccountWallet(pix);
+        account.restoreMoney(balance);
+        accounts.add(account);
+        pixRegistry.publishAll(pix, account);
+        return account;
+    }
+
     /**
      * Realiza um depósito em uma conta existente.
      *
      * @param pix Chave PIX da conta de destino
      * @param fundsAmount Valor do depósito (em centavos)
-     * @param depositDescription Descrição do depósito
      * @throws AccountNotFoundException Se a conta não for encontrada
      */
-    public void deposit(final String pix, final long fundsAmount, final String depositDescription) {
-        var target = findByPix(pix);
-        target.addMoney(fundsAmount, depositDescription);
+    public void deposit(final String pix, final long fundsAmount) {
+        tryDeposit(pix, fundsAmount).orElseThrow();
+    }
+
+    /**
+     * Realiza um depósito em uma conta existente, descrevendo a rejeição no resultado.
+     *
+     * @param pix Chave PIX da conta de destino
+     * @param fundsAmount Valor do depósito (em centavos)
+     * @return Sucesso, ou a rejeição por conta inexistente ou valor inválido
+     */
+    public OperationResult<Void> tryDeposit(final String pix, final long fundsAmount) {
+        long start = Metrics.start();
+        try {
+            OperationResult<Void> result;
+            var target = pixRegistry.find(pix);
+            if (target == null) {
+                result = OperationResult.rejected(Reason.ACCOUNT_NOT_FOUND, pix);
+            } else if (fundsAmount <= 0) {
+                result = OperationResult.rejected(Reason.INVALID_AMOUNT);
+            } else {
+                // Aplica e registra o depósito com a trava da conta, na mesma ordem das demais operações sobre ela
+                result = engine.callLocked(target, () -> {
+                    log.checkWritable();
+                    target.addMoney(fundsAmount, TransactionType.DEPOSIT);
+                    log.deposit(pix, fundsAmount);
+                    return OperationResult.done();
+                });
+                log.awaitDurability();
+            }
+            Metrics.complete(Operation.ACCOUNT_DEPOSIT, start, result);
+            return result;
+        } catch (RuntimeException e) {
+            Metrics.failure(Operation.ACCOUNT_DEPOSIT, start, e);
+            throw e;
+        }
     }
 
     /**
@@ -71,16 +201,45 @@ public class AccountRepository {
      * @throws -NoFundsEnoughException- Se o saldo for insuficiente
      */
     public long withdraw(final String pix, final long amount) {
-        var source = findByPix(pix);
-        checkFundsForTransaction(source, amount);
-
-        // Descrição formatada do saque
-        String withdrawDescription = "Saque no valor de: R$" + (amount/100) + "," + String.format("%02d", amount%100);
-
-        // Realiza o saque e já registra no histórico
-        long amountWithdrawn = source.reduceMoney(amount, withdrawDescription);
+        return tryWithdraw(pix, amount).orElseThrow();
+    }
 
-        return amountWithdrawn;
+    /**
+     * Realiza um saque de uma conta existente, descrevendo a rejeição no resultado.
+     *
+     * @param pix Chave PIX da conta
+     * @param amount Valor do saque (em centavos)
+     * @return O valor sacado, ou a rejeição por conta inexistente, valor inválido ou saldo insuficiente
+     */
+    public OperationResult<Long> tryWithdraw(final String pix, final long amount) {
+        long start = Metrics.start();
+        try {
+            OperationResult<Long> result;
+            var source = pixRegistry.find(pix);
+            if (source == null) {
+                result = OperationResult.rejected(Reason.ACCOUNT_NOT_FOUND, pix);
+            } else if (amount <= 0) {
+                result = OperationResult.rejected(Reason.INVALID_AMOUNT);
+            } else {
+                // Verifica o saldo e realiza o saque em um único passo atômico, serializado com as transações da conta
+                result = engine.callLocked(source, () -> {
+                    log.checkWritable();
+                    if (!source.tryReduceMoney(amount, TransactionType.WITHDRAW, null, MoneyAudit.NO_INVESTMENT)) {
+                        return OperationResult.rejected(Reason.NO_FUNDS);
+                    }
+                    log.withdraw(pix, amount);
+                    return OperationResult.success(amount);
+                });
+                if (result.isSuccess()) {
+                    log.awaitDurability();
+                }
+            }
+            Metrics.complete(Operation.ACCOUNT_WITHDRAW, start, result);
+            return result;
+        } catch (RuntimeException e) {
+            Metrics.failure(Operation.ACCOUNT_WITHDRAW, start, e);
+            throw e;
+        }
     }
 
     /**
@@ -89,23 +248,100 @@ public class AccountRepository {
      * @param sourcePix Chave PIX da conta de origem
      * @param targetPix Chave PIX da conta de destino
      * @param amount Valor da transferência (em centavos)
-     * @param transfDescription Descrição da transferência
      * @throws AccountNotFoundException Se alguma conta não for encontrada
      * @throws -NoFundsEnoughException- Se o saldo for insuficiente
      */
-    public void transferMoney(final String sourcePix, final String targetPix, final long amount, final String transfDescription) {
-        var source = findByPix(sourcePix);
-        checkFundsForTransaction(source, amount);
-        var target = findByPix(targetPix);
+    public void transferMoney(final String sourcePix, final String targetPix, final long amount) {
+        tryTransfer(sourcePix, targetPix, amount).orElseThrow();
+    }
+
+    /**
+     * Realiza uma transferência PIX entre contas, descrevendo a rejeição no resultado.
+     *
+     * @param sourcePix Chave PIX da conta de origem
+     * @param targetPix Chave PIX da conta de destino
+     * @param amount Valor da transferência (em centavos)
+     * @return Sucesso, ou a rejeição por conta inexistente, valor inválido ou saldo insuficiente
+     */
+    public OperationResult<Void> tryTransfer(final String sourcePix, final String targetPix, final long amount) {
+        long start = Metrics.start();
+        try {
+            OperationResult<Void> result;
+            var source = pixRegistry.find(sourcePix);
+            var target = source == null ? null : pixRegistry.find(targetPix);
+            if (source == null) {
+                result = OperationResult.rejected(Reason.ACCOUNT_NOT_FOUND, sourcePix);
+            } else if (target == null) {
+                result = OperationResult.rejected(Reason.ACCOUNT_NOT_FOUND, targetPix);
+            } else {
+                result = engine.tryExecute(transferLegs(source, sourcePix, target, targetPix, amount));
+            }
+            Metrics.complete(Operation.ACCOUNT_TRANSFER, start, result);
+            return result;
+        } catch (RuntimeException e) {
+            Metrics.failure(Operation.ACCOUNT_TRANSFER, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Realiza um lote de transferências PIX, como um arquivo de folha de pagamento.
+     * Cada transferência é atômica; as que envolvem contas inexistentes, valores inválidos
+     * ou saldo insuficiente são rejeitadas sem afetar as demais. O lote inteiro é processado
+     * com uma única aquisição de travas e um único registro no log.
+     *
+     * @param orders Ordens de transferência
+     * @return Resultado com a quantidade de transferências realizadas e as posições das rejeitadas
+     */
+    public BatchResult transferBatch(final List<TransferOrder> orders) {
+        long start = Metrics.start();
+        try {
+            var transactions = new ArrayList<List<Leg>>(orders.size());
+            var unknown = new ArrayList<Integer>();
+            for (int i = 0; i < orders.size(); i++) {
+                var order = orders.get(i);
+                var source = pixRegistry.find(order.sourcePix());
+                var target = source == null ? null : pixRegistry.find(order.targetPix());
+                if (target == null) {
+                    unknown.add(i);
+                    transactions.add(List.of());
+                } else {
+                    transactions.add(transferLegs(source, order.sourcePix(), target, order.targetPix(), order.amount()));
+                }
+            }
+            var result = engine.executeBatch(transactions);
+            if (!unknown.isEmpty()) {
+                var rejected = new ArrayList<>(unknown);
+                rejected.addAll(result.rejected());
+                rejected.sort(null);
+                result = new BatchResult(result.committed() - unknown.size(), List.copyOf(rejected));
+            }
+            Metrics.success(Operation.ACCOUNT_TRANSFER_BATCH, start);
+            return result;
+        } catch (RuntimeException e) {
+            Metrics.failure(Operation.ACCOUNT_TRANSFER_BATCH, start, e);
+            throw e;
+        }
+    }
 
-        // Cria mensagens descritivas para ambas as contas com o valor formatado
-        String sourceDescription = "Transferência PIX enviada de " + transfDescription + " para conta " + targetPix;
-        String targetDescription = "Transferência PIX recebida de " + transfDescription + " da conta " + sourcePix;
+    /**
+     * Monta as pernas de uma transferência; cada conta registra a chave PIX da outra como contraparte.
+     */
+    private static List<Leg> transferLegs(final AccountWallet source, final String sourcePix,
+                                          final AccountWallet target, final String targetPix, final long amount) {
+        return List.of(
+                Leg.debit(source, amount, TransactionType.PIX_SENT, targetPix, MoneyAudit.NO_INVESTMENT),
+                Leg.credit(target, amount, TransactionType.PIX_RECEIVED, sourcePix, MoneyAudit.NO_INVESTMENT));
+    }
 
-        // Realiza a transferência com os registros de histórico
-        long transferredAmount = source.reduceMoney(amount, sourceDescription);
-        target.addMoney(transferredAmount, targetDescription);
-        System.out.println("\n---------------Transferencia Realizada com Sucesso---------------\n");
+    /**
+     * Retorna o motor de transações do repositório, para que outras operações sobre as contas
+     * compartilhem as mesmas travas.
+     *
+     * @return O motor de transações
+     */
+    public TransactionEngine getTransactionEngine() {
+        return engine;
     }
 
     /**
@@ -116,10 +352,15 @@ public class AccountRepository {
      * @throws AccountNotFoundException Se a conta não for encontrada
      */
     public AccountWallet findByPix(final String pix) {
-        return accounts.stream()
-                .filter(a -> a.getPix().contains(pix))
-                .findFirst()
-                .orElseThrow(() -> new AccountNotFoundException("Conta não encontrada para PIX: " + pix));
+        long start = Metrics.start();
+        var account = pixRegistry.find(pix);
+        if (account == null) {
+            var error = new AccountNotFoundException("Conta não encontrada para PIX: " + pix);
+            Metrics.failure(Operation.ACCOUNT_FIND, start, error);
+            throw error;
+        }
+        Metrics.success(Operation.ACCOUNT_FIND, start);
+        return account;
     }
 
     /**
@@ -128,19 +369,55 @@ public class AccountRepository {
      * @return Lista de contas bancárias
      */
     public List<AccountWallet> list() {
-        return new ArrayList<>(this.accounts);
+        synchronized (this.accounts) {
+            return new ArrayList<>(this.accounts);
+        }
     }
 
     /**
      * Obtém o histórico de transações de uma conta agrupado por data/hora.
+     * Como o histórico está em ordem cronológica, cada grupo é um trecho contínuo
+     * e é devolvido como visão do histórico, sem cópia dos registros.
      *
      * @param pix Chave PIX da conta
-     * @return Mapa de transações agrupadas por timestamp (truncado para segundos)
+     * @return Mapa de transações agrupadas por timestamp (truncado para segundos), em ordem cronológica
      * @throws AccountNotFoundException Se a conta não for encontrada
      */
     public Map<OffsetDateTime, List<MoneyAudit>> getHistory(final String pix) {
-        var wallet = findByPix(pix);
-        return wallet.getFinancialTransactions().stream()
-                .collect(Collectors.groupingBy(t -> t.createdAt().truncatedTo(SECONDS)));
+        var transactions = findByPix(pix).getFinancialTransactions();
+        Map<OffsetDateTime, List<MoneyAudit>> history = new LinkedHashMap<>();
+        int start = 0;
+        OffsetDateTime second = null;
+        for (int i = 0; i < transactions.size(); i++) {
+            var current = transactions.get(i).createdAt().truncatedTo(SECONDS);
+            if (!current.equals(second)) {
+                if (second != null) {
+                    history.put(second, transactions.subList(start, i));
+                }
+                second = current;
+                start = i;
+            }
+        }
+        if (second != null) {
+            history.put(second, transactions.subList(start, transactions.size()));
+        }
+        return history;
+    }
+
+    /**
+     * Consulta uma página do histórico de uma conta em um intervalo de tempo.
+     *
+     * @param pix Chave PIX da conta
+     * @param from Início do intervalo (inclusivo), ou {@code null} para o início do histórico
+     * @param to Fim do intervalo (exclusivo), ou {@code null} para o fim do histórico
+     * @param limit Quantidade máxima de registros da página
+     * @param token Token de continuação da página anterior, ou {@code null} para a primeira página
+     * @return A página com os registros e o token da próxima página
+     * @throws AccountNotFoundException Se a conta não for encontrada
+     * @throws IllegalArgumentException Se o limite não for positivo ou o token for inválido
+     */
+    public HistoryPage getHistoryPage(final String pix, final OffsetDateTime from, final OffsetDateTime to,
+                                      final int limit, final String token) {
+        return findByPix(pix).getHistoryPage(from, to, limit, token);
     }
-}
\ No newline at end of file
+}
@@ -1,15 +1,14 @@
 package repository;
 
 import exception.NoFundsEnoughException;
+import model.AuditClocks;
 import model.Money;
 import model.MoneyAudit;
+import model.TransactionType;
 import model.Wallet;
 import lombok.NoArgsConstructor;
 
-import java.time.OffsetDateTime;
-import java.util.List;
 import java.util.UUID;
-import java.util.stream.Stream;
 
 import static model.BankService.ACCOUNT;
 import static lombok.AccessLevel.PRIVATE;
@@ -29,22 +28,35 @@ public final class CommonsRepository {
      * @throws NoFundsEnoughException Se o saldo for insuficiente para a transação
      */
     public static void checkFundsForTransaction(final Wallet source, final long amount) {
-        if (source.getFunds() < amount) {
-            throw new NoFundsEnoughException("Sua conta nao tem dinheiro o suficiente para realizar essa transacao");
+        if (!hasFunds(source, amount)) {
+            throw NoFundsEnoughException.INSTANCE;
         }
     }
 
     /**
-     * Gera uma lista de objetos Money para representar uma quantia em dinheiro.
-     * Cada unidade de Money é associada ao mesmo histórico de transação.
+     * Indica se há fundos suficientes em uma carteira para uma transação, sem lançar exceção.
+     *
+     * @param source Carteira de origem dos fundos
+     * @param amount Valor a ser verificado (em centavos)
+     * @return {@code true} se o saldo cobrir o valor
+     */
+    public static boolean hasFunds(final Wallet source, final long amount) {
+        return source.getFunds() >= amount;
+    }
+
+    /**
+     * Gera um objeto Money representando uma quantia em dinheiro.
+     * O valor inteiro é guardado em uma única instância associada ao histórico da transação,
+     * com custo constante independentemente do valor.
      *
      * @param transactionId ID único da transação
-     * @param funds Quantidade de unidades monetárias a serem geradas
-     * @param description Descrição da transação
-     * @return Lista de objetos Money representando o valor total
+     * @param funds Valor a ser gerado (em centavos)
+     * @param type Tipo da transação
+     * @return Objeto Money representando o valor total
      */
-    public static List<Money> generateMoney(final UUID transactionId, final long funds, final String description) {
-        var history = new MoneyAudit(transactionId, ACCOUNT, description, OffsetDateTime.now());
-        return Stream.generate(() -> new Money(history)).limit(funds).toList();
+    public static Money generateMoney(final UUID transactionId, final long funds, final TransactionType type) {
+        var history = new MoneyAudit(transactionId, ACCOUNT, type, funds, null, MoneyAudit.NO_INVESTMENT,
+                AuditClocks.current().now());
+        return new Money(funds, history);
     }
 }
\ No newline at end of file
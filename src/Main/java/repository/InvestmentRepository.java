@@ -2,19 +2,43 @@ package repository;
 
 import exception.AccountWithInvestmentException;
 import exception.InvestmentNotFoundException;
+import exception.NoFundsEnoughException;
 import exception.WalletNotFoundException;
+import metrics.Metrics;
+import metrics.Operation;
 import model.AccountWallet;
+import model.AuditClocks;
 import model.Investment;
 import model.InvestmentWallet;
+import model.OperationResult;
+import model.OperationResult.Reason;
+import model.TransactionType;
+import model.YieldSummary;
+import persistence.Movement;
+import persistence.TransactionLog;
 
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
 
 import static repository.CommonsRepository.checkFundsForTransaction;
 
 /**
  * Repositório responsável pela gestão de investimentos e carteiras de investimento.
  * Mantém os registros de tipos de investimento e carteiras associadas a contas.
+ * O catálogo e a lista de carteiras são protegidos pelo monitor do repositório; a busca de carteira
+ * por chave PIX, usada em todo aporte e resgate, não trava.
+ * Aportes e resgates têm uma variante {@code try*} que descreve a rejeição em um {@link OperationResult}
+ * em vez de lançar exceção.
  */
 public class InvestmentRepository {
 
@@ -29,9 +53,59 @@ public class InvestmentRepository {
     private final List<Investment> investments = new ArrayList<>();
 
     /**
-     * Lista de carteiras de investimento associadas a contas.
+     * Índice dos tipos de investimento pelo ID.
      */
-    private final List<InvestmentWallet> wallets = new ArrayList<>();
+    private final LongKeyMap<Investment> investmentsById = new LongKeyMap<>();
+
+    /**
+     * Carteiras de investimento indexadas pela conta dona, em ordem de criação.
+     * As contas não redefinem {@code equals}, de modo que a chave é a identidade da conta.
+     */
+    private final Map<AccountWallet, InvestmentWallet> wallets = new LinkedHashMap<>();
+
+    /**
+     * Carteiras de investimento indexadas por cada chave PIX da conta dona.
+     */
+    private final Map<String, InvestmentWallet> walletsByPix = new ConcurrentHashMap<>();
+
+    /**
+     * Log onde as operações aplicadas são registradas.
+     */
+    private final TransactionLog log;
+
+    /**
+     * Motor que executa aportes e resgates como transações atômicas entre a conta e a carteira.
+     */
+    private final TransactionEngine engine;
+
+    /**
+     * Cria o repositório mantendo o estado apenas em memória.
+     */
+    public InvestmentRepository() {
+        this(TransactionLog.NONE);
+    }
+
+    /**
+     * Cria o repositório registrando as operações no log informado, com travas próprias.
+     *
+     * @param log Log de transações
+     */
+    public InvestmentRepository(final TransactionLog log) {
+        this(log, new TransactionEngine(new StripedLocks(), log));
+    }
+
+    /**
+     * Cria o repositório registrando as operações no log informado e executando as movimentações
+     * pelo motor de transações informado. Para que débitos concorrentes em uma mesma conta sejam
+     * serializados, deve ser o mesmo motor do {@link AccountRepository}.
+     *
+     * @param log Log de transações
+     * @param engine Motor de transações
+     */
+    public InvestmentRepository(final TransactionLog log, final TransactionEngine engine) {
+        this.log = log;
+        this.engine = engine;
+    }
 
     /**
      * Cria um novo tipo de investimento no sistema.
@@ -42,9 +116,34 @@ public class InvestmentRepository {
      * @return O investimento criado
      */
     public Investment create(final long tax, final long initialFunds, final String nome) {
-        this.nextId++;
-        var investment = new Investment(this.nextId, tax, initialFunds, nome);
+        Investment investment;
+        synchronized (this) {
+            log.checkWritable();
+            this.nextId++;
+            investment = new Investment(this.nextId, tax, initialFunds, nome);
+            investments.add(investment);
+            investmentsById.put(investment.id(), investment);
+            log.investmentCreated(investment.id(), tax, initialFunds, nome);
+        }
+        log.awaitDurability();
+        return investment;
+    }
+
+    /**
+     * Restaura um tipo de investimento a partir de um snapshot ou do log de transações.
+     * Não registra a operação no log.
+     *
+     * @param id ID do investimento
+     * @param tax Taxa de rendimento do investimento (em porcentagem)
+     * @param initialFunds Valor mínimo inicial para aplicação (em centavos)
+     * @param nome Nome(s) do tipo de investimento
+     * @return O investimento restaurado
+     */
+    public synchronized Investment restoreInvestment(final long id, final long tax, final long initialFunds, final String nome) {
+        var investment = new Investment(id, tax, initialFunds, nome);
         investments.add(investment);
+        investmentsById.put(id, investment);
+        this.nextId = Math.max(this.nextId, id);
         return investment;
     }
 
@@ -58,16 +157,48 @@ public class InvestmentRepository {
      * @throws InvestmentNotFoundException Se o tipo de investimento não for encontrado
      */
     public InvestmentWallet initInvestment(final AccountWallet account, final long id) {
-        if (!wallets.isEmpty()) {
-            var accountsInUse = wallets.stream().map(InvestmentWallet::getAccount).toList();
-            if (accountsInUse.contains(account)) {
-                throw new AccountWithInvestmentException("A conta'" + account + "'ja possui um investimento");
+        long start = Metrics.start();
+        try {
+            InvestmentWallet wallet;
+            synchronized (this) {
+                // Uma carteira encerrada ainda não retirada do índice por conta é tratada como ausente
+                var existing = wallets.get(account);
+                if (existing != null && !existing.isClosed()) {
+                    throw new AccountWithInvestmentException("A conta'" + account + "'ja possui um investimento");
+                }
+                var investment = findById(id);
+                wallet = engine.callLocked(account, () -> {
+                    checkFundsForTransaction(account, investment.initialFunds());
+                    log.checkWritable();
+                    var created = new InvestmentWallet(investment, account, investment.initialFunds());
+                    log.investmentWalletCreated(account.getPix().get(0), id);
+                    return created;
+                });
+                index(wallet);
             }
+            log.awaitDurability();
+            Metrics.success(Operation.INVESTMENT_OPEN, start);
+            return wallet;
+        } catch (RuntimeException e) {
+            Metrics.failure(Operation.INVESTMENT_OPEN, start, e);
+            throw e;
         }
-        var investment = findById(id);
-        checkFundsForTransaction(account, investment.initialFunds());
-        var wallet = new InvestmentWallet(investment, account, investment.initialFunds());
-        wallets.add(wallet);
+    }
+
+    /**
+     * Restaura uma carteira de investimento a partir de um snapshot ou do log de transações.
+     * Não movimenta a conta associada nem registra a operação no log.
+     *
+     * @param account Conta associada à carteira de investimento
+     * @param id ID do tipo de investimento
+     * @param balance Saldo da carteira (em centavos)
+     * @return A carteira de investimento restaurada
+     * @throws InvestmentNotFoundException Se o tipo de investimento não for encontrado
+     */
+    public synchronized InvestmentWallet restoreWallet(final AccountWallet account, final long id, final long balance) {
+        var wallet = new InvestmentWallet(findById(id), account);
+        wallet.restoreMoney(balance);
+        index(wallet);
         return wallet;
     }
 
@@ -76,23 +207,43 @@ public class InvestmentRepository {
      *
      * @param pix Chave PIX da conta
      * @param funds Valor a ser depositado (em centavos)
-     * @param investmentDescription Descrição da operação
      * @return A carteira de investimento atualizada
      * @throws WalletNotFoundException Se a carteira não for encontrada
+     * @throws NoFundsEnoughException Se a conta não tiver saldo suficiente
      */
-    public InvestmentWallet deposit(final String pix, final long funds, final String investmentDescription) {
-        var wallet = findWalletByAccountPix(pix);
-
-        // Remove o valor da conta com registro no histórico
-        long transferredAmount = wallet.getAccount().reduceMoney(funds, investmentDescription);
-
-        // Descrição para a operação no investimento
-        String depositDescription = "Aporte de R$" + (funds / 100) + "," + String.format("%02d", funds % 100);
+    public InvestmentWallet deposit(final String pix, final long funds) {
+        return tryDeposit(pix, funds).orElseThrow();
+    }
 
-        // Adiciona na carteira de investimento
-        wallet.addMoney(transferredAmount, depositDescription);
+    /**
+     * Realiza um depósito na carteira de investimento associada a uma conta, descrevendo a rejeição no resultado.
+     *
+     * @param pix Chave PIX da conta
+     * @param funds Valor a ser depositado (em centavos)
+     * @return A carteira atualizada, ou a rejeição por carteira inexistente, valor inválido ou saldo insuficiente
+     */
+    public OperationResult<InvestmentWallet> tryDeposit(final String pix, final long funds) {
+        long start = Metrics.start();
+        try {
+            OperationResult<InvestmentWallet> result;
+            var wallet = walletsByPix.get(pix);
+            if (wallet == null) {
+                result = OperationResult.rejected(Reason.WALLET_NOT_FOUND);
+            } else {
+                long investmentId = wallet.getInvestment().id();
 
-        return wallet;
+                // Débito na conta e crédito na carteira de investimento como uma única transação
+                var executed = engine.tryExecute(List.of(
+                        Leg.debit(wallet.getAccount(), funds, TransactionType.INVESTMENT_CONTRIBUTION, null, investmentId),
+                        Leg.credit(wallet, funds, TransactionType.INVESTMENT_CONTRIBUTION_RECEIVED, null, investmentId)));
+                result = executed.isSuccess() ? OperationResult.success(wallet) : rejection(executed);
+            }
+            Metrics.complete(Operation.INVESTMENT_DEPOSIT, start, result);
+            return result;
+        } catch (RuntimeException e) {
+            Metrics.failure(Operation.INVESTMENT_DEPOSIT, start, e);
+            throw e;
+        }
     }
 
     /**
@@ -100,30 +251,137 @@ public class InvestmentRepository {
      *
      * @param pix Chave PIX da conta
      * @param funds Valor a ser resgatado (em centavos)
-     * @param investmentDescription Descrição da operação
      * @return A carteira de investimento atualizada
      * @throws WalletNotFoundException Se a carteira não for encontrada
+     * @throws NoFundsEnoughException Se a carteira não tiver saldo suficiente
      */
-    public InvestmentWallet withdraw(final String pix, final long funds, String investmentDescription) {
-        var wallet = findWalletByAccountPix(pix);
-        checkFundsForTransaction(wallet, funds);
+    public InvestmentWallet withdraw(final String pix, final long funds) {
+        return tryWithdraw(pix, funds).orElseThrow();
+    }
 
-        // Remove o valor da carteira de investimento e devolve para a conta
-        long withdrawnAmount = wallet.reduceMoney(funds);
-        // Usa a descrição formatada para o depósito na conta
-        wallet.getAccount().addMoney(withdrawnAmount, investmentDescription);
+    /**
+     * Realiza um resgate da carteira de investimento para a conta associada, descrevendo a rejeição no resultado.
+     *
+     * @param pix Chave PIX da conta
+     * @param funds Valor a ser resgatado (em centavos)
+     * @return A carteira atualizada, ou a rejeição por carteira inexistente, valor inválido ou saldo insuficiente
+     */
+    public OperationResult<InvestmentWallet> tryWithdraw(final String pix, final long funds) {
+        long start = Metrics.start();
+        try {
+            OperationResult<InvestmentWallet> result;
+            var wallet = walletsByPix.get(pix);
+            if (wallet == null) {
+                result = OperationResult.rejected(Reason.WALLET_NOT_FOUND);
+            } else {
+                long investmentId = wallet.getInvestment().id();
 
-        if (wallet.getFunds() == 0) {
-            wallets.remove(wallet);
+                // Débito na carteira de investimento e devolução para a conta como uma única transação
+                var executed = engine.tryExecute(List.of(
+                        Leg.debit(wallet, funds, TransactionType.INVESTMENT_RESCUE, null, investmentId),
+                        Leg.credit(wallet.getAccount(), funds, TransactionType.INVESTMENT_RESCUE, null, investmentId)),
+                        () -> closeIfEmpty(wallet));
+                if (executed.isSuccess()) {
+                    if (wallet.isClosed()) {
+                        unindex(wallet);
+                    }
+                    result = OperationResult.success(wallet);
+                } else {
+                    result = rejection(executed);
+                }
+            }
+            Metrics.complete(Operation.INVESTMENT_WITHDRAW, start, result);
+            return result;
+        } catch (RuntimeException e) {
+            Metrics.failure(Operation.INVESTMENT_WITHDRAW, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Repassa a rejeição de uma transação do motor como rejeição de uma operação com outro tipo de valor.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> OperationResult<T> rejection(final OperationResult<?> rejected) {
+        return (OperationResult<T>) rejected;
+    }
+
+    /**
+     * Remove a carteira de investimento se o seu saldo tiver sido totalmente resgatado.
+     *
+     * @param wallet Carteira de investimento
+     */
+    public synchronized void removeIfEmpty(final InvestmentWallet wallet) {
+        closeIfEmpty(wallet);
+        if (wallet.isClosed()) {
+            unindex(wallet);
         }
-        return wallet;
+    }
+
+    /**
+     * Encerra a carteira se o seu saldo tiver sido totalmente resgatado, retirando-a da busca por chave PIX.
+     * Chamado com a trava da carteira, logo após a movimentação que a esvaziou, para que nenhuma
+     * operação posterior sobre a carteira seja aplicada ou registrada no log.
+     */
+    private void closeIfEmpty(final InvestmentWallet wallet) {
+        if (wallet.getFunds() == 0 && !wallet.isClosed()) {
+            wallet.markClosed();
+            // Só remove a carteira indexada, nunca uma carteira aberta depois para a mesma conta
+            wallet.getAccount().getPix().forEach(key -> walletsByPix.remove(key, wallet));
+        }
+    }
+
+    /**
+     * Registra uma carteira nos índices por conta e por chave PIX.
+     */
+    private void index(final InvestmentWallet wallet) {
+        wallets.put(wallet.getAccount(), wallet);
+        wallet.getAccount().getPix().forEach(key -> walletsByPix.put(key, wallet));
+    }
+
+    /**
+     * Retira uma carteira encerrada do índice por conta, se ela ainda não tiver sido substituída
+     * por uma carteira aberta depois para a mesma conta.
+     */
+    private synchronized void unindex(final InvestmentWallet wallet) {
+        wallets.remove(wallet.getAccount(), wallet);
     }
 
     /**
      * Atualiza os valores das carteiras de investimento aplicando a taxa de rendimento.
+     * As carteiras são divididas em partes processadas em paralelo no pool fork-join comum;
+     * todos os registros de rendimento da execução compartilham o mesmo identificador de lote
+     * e o mesmo instante. Como cada carteira é atualizada uma única vez, o resultado é o mesmo
+     * da atualização sequencial.
+     * <p>
+     * Cada parte é aplicada com as travas das suas carteiras e gravada no log em um único registro
+     * de movimentações. As carteiras são ordenadas pela faixa de trava, de modo que cada parte trava
+     * poucas faixas e as partes não se bloqueiam. A espera pela durabilidade é feita uma única vez,
+     * ao final da execução e fora do pool, que nunca fica bloqueado aguardando o disco.
+     * </p>
+     *
+     * @return Resumo da execução, com a quantidade de carteiras e o total creditado
      */
-    public void updateAmount() {
-        wallets.forEach(w -> w.updateAmount(w.getInvestment().tax()));
+    public YieldSummary updateAmount() {
+        long start = Metrics.start();
+        try {
+            final InvestmentWallet[] batch;
+            synchronized (this) {
+                batch = wallets.values().toArray(new InvestmentWallet[0]);
+            }
+            Arrays.sort(batch, Comparator.comparingInt(engine::stripeOf));
+            var clock = AuditClocks.current();
+            var batchId = clock.nextId();
+            var appliedAt = clock.now();
+            long totalPaid = ForkJoinPool.commonPool().invoke(new YieldTask(batch, 0, batch.length, batchId, appliedAt));
+            log.awaitDurability();
+            var summary = new YieldSummary(batchId, appliedAt, batch.length, totalPaid);
+            Metrics.success(Operation.INVESTMENT_YIELD, start);
+            return summary;
+        } catch (RuntimeException e) {
+            Metrics.failure(Operation.INVESTMENT_YIELD, start, e);
+            throw e;
+        }
     }
 
     /**
@@ -133,12 +391,12 @@ public class InvestmentRepository {
      * @return O investimento encontrado
      * @throws InvestmentNotFoundException Se o investimento não for encontrado
      */
-    public Investment findById(final long id) {
-        return investments.stream().filter(a -> a.id() == id)
-                .findFirst()
-                .orElseThrow(
-                        () -> new InvestmentNotFoundException("O investimento '" + id + "' nao foi encontrado")
-                );
+    public synchronized Investment findById(final long id) {
+        var investment = investmentsById.get(id);
+        if (investment == null) {
+            throw new InvestmentNotFoundException("O investimento '" + id + "' nao foi encontrado");
+        }
+        return investment;
     }
 
     /**
@@ -149,12 +407,11 @@ public class InvestmentRepository {
      * @throws WalletNotFoundException Se a carteira não for encontrada
      */
     public InvestmentWallet findWalletByAccountPix(final String pix) {
-        return wallets.stream()
-                .filter(w -> w.getAccount().getPix().contains(pix))
-                .findFirst()
-                .orElseThrow(
-                        () -> new WalletNotFoundException("A carteira nao foi encontrada")
-                );
+        var wallet = walletsByPix.get(pix);
+        if (wallet == null) {
+            throw WalletNotFoundException.INSTANCE;
+        }
+        return wallet;
     }
 
     /**
@@ -162,8 +419,8 @@ public class InvestmentRepository {
      *
      * @return Lista de carteiras de investimento
      */
-    public List<InvestmentWallet> listWallets() {
-        return this.wallets;
+    public synchronized List<InvestmentWallet> listWallets() {
+        return new ArrayList<>(this.wallets.values());
     }
 
     /**
@@ -171,7 +428,97 @@ public class InvestmentRepository {
      *
      * @return Lista de investimentos
      */
-    public List<Investment> list() {
-        return this.investments;
+    public synchronized List<Investment> list() {
+        return new ArrayList<>(this.investments);
+    }
+
+    /**
+     * Executa uma ação sem nenhuma operação em andamento sobre os investimentos nem sobre as carteiras
+     * protegidas pelo motor de transações: o monitor do repositório é adquirido antes das travas de todas
+     * as faixas, na mesma ordem usada pelas operações que precisam de ambos.
+     *
+     * @param action Ação a ser executada
+     * @return O resultado da ação
+     */
+    public synchronized <T> T callQuiescent(final Supplier<T> action) {
+        return engine.callExclusive(action);
+    }
+
+    /**
+     * Tarefa fork-join que aplica o rendimento a um intervalo das carteiras de um lote.
+     * Intervalos maiores que {@link #THRESHOLD} são divididos ao meio; a tarefa retorna
+     * a soma dos rendimentos creditados no intervalo. As tarefas existem apenas durante
+     * uma execução e nunca são serializadas.
+     */
+    @SuppressWarnings("serial")
+    private final class YieldTask extends RecursiveTask<Long> {
+
+        /**
+         * Quantidade máxima de carteiras processadas sem nova divisão.
+         */
+        private static final int THRESHOLD = 1024;
+
+        private final InvestmentWallet[] batch;
+
+        private final int from;
+
+        private final int to;
+
+        private final UUID batchId;
+
+        private final OffsetDateTime appliedAt;
+
+        private YieldTask(final InvestmentWallet[] batch, final int from, final int to,
+                          final UUID batchId, final OffsetDateTime appliedAt) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+            this.batchId = batchId;
+            this.appliedAt = appliedAt;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= THRESHOLD) {
+                return engine.callLocked(Arrays.asList(batch).subList(from, to), this::applyRange);
+            }
+            int middle = (from + to) >>> 1;
+            var left = new YieldTask(batch, from, middle, batchId, appliedAt);
+            left.fork();
+            long right = new YieldTask(batch, middle, to, batchId, appliedAt).compute();
+            return right + left.join();
+        }
+
+        /**
+         * Aplica o rendimento às carteiras do intervalo, já travadas, e grava os créditos em um
+         * único registro, na mesma ordem dos aportes e resgates sobre elas. Carteiras encerradas
+         * desde a montagem do lote são ignoradas.
+         *
+         * @return A soma dos rendimentos creditados (em centavos)
+         */
+        private long applyRange() {
+            log.checkWritable();
+            var movements = new ArrayList<Movement>(to - from);
+            long total = 0;
+            try {
+                for (int i = from; i < to; i++) {
+                    var wallet = batch[i];
+                    if (wallet.isClosed()) {
+                        continue;
+                    }
+                    long earnings = wallet.updateAmount(wallet.getInvestment().tax(), batchId, appliedAt);
+                    if (earnings != 0) {
+                        movements.add(new Movement(wallet.getAccount().getPix().get(0), true, earnings));
+                    }
+                    total += earnings;
+                }
+            } finally {
+                // Se o histórico de uma carteira não puder ser reservado, as anteriores já foram creditadas
+                if (!movements.isEmpty()) {
+                    log.movements(movements);
+                }
+            }
+            return total;
+        }
     }
 }
\ No newline at end of file
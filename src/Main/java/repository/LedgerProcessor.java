@@ -0,0 +1,456 @@
+package repository;
+
+import model.AccountWallet;
+import model.Investment;
+import model.InvestmentWallet;
+import model.YieldSummary;
+import persistence.TransactionLog;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Processador de comandos com um único escritor, no estilo LMAX.
+ * <p>
+ * Os comandos são publicados por qualquer thread em um buffer circular pré-alocado e aplicados,
+ * na ordem de publicação, por uma única thread de negócio, de modo que a ordem de gravação no log
+ * é determinística. Cada publicação retorna um {@link CompletableFuture} concluído com o resultado
+ * do comando, ou com a exceção que o rejeitou.
+ * </p>
+ * <p>
+ * Os comandos são processados em lotes: a thread de negócio aplica todos os comandos já publicados,
+ * sincroniza o log uma única vez e só então conclui os resultados do lote. Os comandos são delegados
+ * ao {@link AccountRepository} e ao {@link InvestmentRepository}, cujas travas nunca são disputadas neste
+ * modo; assim, as métricas e o formato dos registros no log são os mesmos da execução direta. O log deve
+ * ser aberto sem espera de durabilidade por operação, que é substituída pela sincronização do lote.
+ * Enquanto o processador estiver em uso, todas as alterações de saldo devem passar por ele.
+ * </p>
+ * <p>
+ * A reserva de posições e o encerramento são mutuamente exclusivos: depois de {@link #close()},
+ * nenhuma sequência nova é reservada, e todas as reservadas antes dele são aplicadas e concluídas.
+ * </p>
+ */
+public class LedgerProcessor implements AutoCloseable {
+
+    /**
+     * Capacidade padrão do buffer circular (potência de dois).
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+
+    /**
+     * Quantidade de tentativas em espera ativa antes de ceder o processador.
+     */
+    private static final int SPIN_TRIES = 100;
+
+    /**
+     * Quantidade de tentativas, somadas às de espera ativa, antes de passar a aguardar suspenso.
+     */
+    private static final int YIELD_TRIES = 200;
+
+    /**
+     * Tempo de suspensão quando não há progresso, em nanossegundos.
+     */
+    private static final long IDLE_PARK_NANOS = 50_000;
+
+    /**
+     * Tipos de comando aceitos pelo processador.
+     */
+    private enum CommandType {
+        CREATE, DEPOSIT, WITHDRAW, TRANSFER, INVEST, RESCUE, CREATE_INVESTMENT, OPEN_WALLET, YIELD
+    }
+
+    /**
+     * Bit do contador de sequências que indica o processador encerrado.
+     */
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    /**
+     * Posição do buffer circular, reutilizada a cada volta.
+     */
+    private static final class Slot {
+
+        /**
+         * Sequência do comando publicado nesta posição; escrita por último pelo produtor.
+         */
+        private volatile long sequence = -1;
+
+        private CommandType type;
+
+        private List<String> pixKeys;
+
+        private String pix;
+
+        private String targetPix;
+
+        private long amount;
+
+        private long tax;
+
+        private long investmentId;
+
+        private String name;
+
+        private CompletableFuture<Object> completion;
+
+        private Object result;
+
+        private RuntimeException failure;
+    }
+
+    /**
+     * Posições do buffer circular.
+     */
+    private final Slot[] ring;
+
+    /**
+     * Máscara para converter uma sequência em posição do buffer.
+     */
+    private final int mask;
+
+    /**
+     * Próxima sequência a ser reservada por um produtor, com o bit {@link #CLOSED}
+     * ligado a partir do encerramento.
+     */
+    private final AtomicLong cursor = new AtomicLong();
+
+    /**
+     * Última sequência processada e concluída pela thread de negócio.
+     */
+    private volatile long processed = -1;
+
+    /**
+     * Repositório de contas onde os comandos são aplicados.
+     */
+    private final AccountRepository accounts;
+
+    /**
+     * Repositório de investimentos onde os aportes e resgates são aplicados.
+     */
+    private final InvestmentRepository investments;
+
+    /**
+     * Log de transações, sincronizado uma vez por lote de comandos.
+     */
+    private final TransactionLog log;
+
+    /**
+     * Thread de negócio, única a aplicar os comandos.
+     */
+    private final Thread writer;
+
+    /**
+     * Cria o processador com a capacidade padrão.
+     *
+     * @param accounts Repositório de contas
+     * @param investments Repositório de investimentos
+     * @param log Log de transações usado pelos repositórios
+     */
+    public LedgerProcessor(final AccountRepository accounts, final InvestmentRepository investments,
+                           final TransactionLog log) {
+        this(accounts, investments, log, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Cria o processador e inicia a thread de negócio.
+     * A capacidade é arredondada para a próxima potência de dois.
+     *
+     * @param accounts Repositório de contas
+     * @param investments Repositório de investimentos
+     * @param log Log de transações usado pelos repositórios
+     * @param capacity Quantidade mínima de posições do buffer circular
+     * @throws IllegalArgumentException Se a capacidade não for positiva
+     */
+    public LedgerProcessor(final AccountRepository accounts, final InvestmentRepository investments,
+                           final TransactionLog log, final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacidade deve ser positiva");
+        }
+        int length = Integer.highestOneBit(capacity);
+        if (length < capacity) {
+            length <<= 1;
+        }
+        this.ring = new Slot[length];
+        for (int i = 0; i < length; i++) {
+            ring[i] = new Slot();
+        }
+        this.mask = length - 1;
+        this.accounts = accounts;
+        this.investments = investments;
+        this.log = log;
+        this.writer = new Thread(this::processLoop, "ledger-processor");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Publica a criação de uma conta.
+     *
+     * @param pix Chaves PIX da conta
+     * @param initialFunds Depósito inicial (em centavos)
+     * @return Resultado com a conta criada
+     */
+    public CompletableFuture<AccountWallet> create(final List<String> pix, final long initialFunds) {
+        return publish(CommandType.CREATE, pix, null, null, initialFunds);
+    }
+
+    /**
+     * Publica um depósito em conta.
+     *
+     * @param pix Chave PIX da conta
+     * @param amount Valor do depósito (em centavos)
+     * @return Resultado concluído após o depósito
+     */
+    public CompletableFuture<Void> deposit(final String pix, final long amount) {
+        return publish(CommandType.DEPOSIT, null, pix, null, amount);
+    }
+
+    /**
+     * Publica um saque de conta.
+     *
+     * @param pix Chave PIX da conta
+     * @param amount Valor do saque (em centavos)
+     * @return Resultado com o valor sacado
+     */
+    public CompletableFuture<Long> withdraw(final String pix, final long amount) {
+        return publish(CommandType.WITHDRAW, null, pix, null, amount);
+    }
+
+    /**
+     * Publica uma transferência PIX entre contas.
+     *
+     * @param sourcePix Chave PIX da conta de origem
+     * @param targetPix Chave PIX da conta de destino
+     * @param amount Valor da transferência (em centavos)
+     * @return Resultado concluído após a transferência
+     */
+    public CompletableFuture<Void> transfer(final String sourcePix, final String targetPix, final long amount) {
+        return publish(CommandType.TRANSFER, null, sourcePix, targetPix, amount);
+    }
+
+    /**
+     * Publica um aporte na carteira de investimento de uma conta.
+     *
+     * @param pix Chave PIX da conta
+     * @param amount Valor do aporte (em centavos)
+     * @return Resultado com a carteira de investimento atualizada
+     */
+    public CompletableFuture<InvestmentWallet> invest(final String pix, final long amount) {
+        return publish(CommandType.INVEST, null, pix, null, amount);
+    }
+
+    /**
+     * Publica um resgate da carteira de investimento de uma conta.
+     *
+     * @param pix Chave PIX da conta
+     * @param amount Valor do resgate (em centavos)
+     * @return Resultado com a carteira de investimento atualizada
+     */
+    public CompletableFuture<InvestmentWallet> rescue(final String pix, final long amount) {
+        return publish(CommandType.RESCUE, null, pix, null, amount);
+    }
+
+    /**
+     * Publica o cadastro de um tipo de investimento.
+     *
+     * @param tax Taxa de rendimento (percentual)
+     * @param initialFunds Aporte mínimo inicial (em centavos)
+     * @param nome Nome(s) do investimento
+     * @return Resultado com o investimento cadastrado
+     */
+    public CompletableFuture<Investment> createInvestment(final long tax, final long initialFunds, final String nome) {
+        long sequence = claim();
+        var slot = ring[(int) sequence & mask];
+        slot.type = CommandType.CREATE_INVESTMENT;
+        slot.tax = tax;
+        slot.amount = initialFunds;
+        slot.name = nome;
+        return publish(slot, sequence);
+    }
+
+    /**
+     * Publica a abertura da carteira de investimento de uma conta.
+     *
+     * @param pix Chave PIX da conta
+     * @param investmentId ID do investimento
+     * @return Resultado com a carteira de investimento criada
+     */
+    public CompletableFuture<InvestmentWallet> openWallet(final String pix, final long investmentId) {
+        long sequence = claim();
+        var slot = ring[(int) sequence & mask];
+        slot.type = CommandType.OPEN_WALLET;
+        slot.pix = pix;
+        slot.investmentId = investmentId;
+        return publish(slot, sequence);
+    }
+
+    /**
+     * Publica a aplicação dos rendimentos em todas as carteiras de investimento.
+     *
+     * @return Resultado com o resumo da execução
+     */
+    public CompletableFuture<YieldSummary> updateYield() {
+        long sequence = claim();
+        var slot = ring[(int) sequence & mask];
+        slot.type = CommandType.YIELD;
+        return publish(slot, sequence);
+    }
+
+    /**
+     * Deixa de aceitar comandos e aguarda a conclusão dos já publicados.
+     * Produtores que reservaram uma posição antes do encerramento têm o comando aplicado;
+     * os demais recebem {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        cursor.getAndUpdate(current -> current | CLOSED);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reserva uma posição do buffer, preenche o comando e o publica para a thread de negócio.
+     *
+     * @throws IllegalStateException Se o processador estiver fechado
+     */
+    private <T> CompletableFuture<T> publish(final CommandType type, final List<String> pixKeys,
+                                             final String pix, final String targetPix, final long amount) {
+        long sequence = claim();
+        var slot = ring[(int) sequence & mask];
+        slot.type = type;
+        slot.pixKeys = pixKeys;
+        slot.pix = pix;
+        slot.targetPix = targetPix;
+        slot.amount = amount;
+        return publish(slot, sequence);
+    }
+
+    /**
+     * Reserva a próxima sequência, na mesma operação atômica que verifica o encerramento.
+     * Se o buffer estiver cheio, aguarda até que a posição seja liberada.
+     *
+     * @return Sequência reservada
+     * @throws IllegalStateException Se o processador estiver fechado
+     */
+    private long claim() {
+        long sequence;
+        do {
+            sequence = cursor.get();
+            if ((sequence & CLOSED) != 0) {
+                throw new IllegalStateException("Processador de comandos encerrado");
+            }
+        } while (!cursor.compareAndSet(sequence, sequence + 1));
+        int tries = 0;
+        while (sequence - ring.length > processed) {
+            backOff(++tries);
+        }
+        return sequence;
+    }
+
+    /**
+     * Publica para a thread de negócio o comando já preenchido em uma posição reservada.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> publish(final Slot slot, final long sequence) {
+        var completion = new CompletableFuture<Object>();
+        slot.completion = completion;
+        slot.sequence = sequence;
+        return (CompletableFuture<T>) completion;
+    }
+
+    /**
+     * Laço da thread de negócio: aplica os comandos publicados em lotes, sincroniza o log
+     * uma vez por lote e conclui os resultados.
+     */
+    private void processLoop() {
+        int idle = 0;
+        while (true) {
+            long first = processed + 1;
+            long last = first - 1;
+            while (ring[(int) (last + 1) & mask].sequence == last + 1) {
+                last++;
+                apply(ring[(int) last & mask]);
+            }
+            if (last < first) {
+                long next = cursor.get();
+                if ((next & CLOSED) != 0 && processed == (next & ~CLOSED) - 1) {
+                    return;
+                }
+                backOff(++idle);
+                continue;
+            }
+            idle = 0;
+
+            RuntimeException syncFailure = null;
+            try {
+                log.sync();
+            } catch (RuntimeException e) {
+                syncFailure = e;
+            }
+            for (long sequence = first; sequence <= last; sequence++) {
+                complete(ring[(int) sequence & mask], syncFailure);
+            }
+            processed = last;
+        }
+    }
+
+    /**
+     * Aplica o comando de uma posição, guardando o resultado ou a falha para conclusão após o lote.
+     */
+    private void apply(final Slot slot) {
+        try {
+            slot.result = switch (slot.type) {
+                case CREATE -> accounts.create(slot.pixKeys, slot.amount);
+                case DEPOSIT -> accounts.tryDeposit(slot.pix, slot.amount).orElseThrow();
+                case WITHDRAW -> accounts.tryWithdraw(slot.pix, slot.amount).orElseThrow();
+                case TRANSFER -> accounts.tryTransfer(slot.pix, slot.targetPix, slot.amount).orElseThrow();
+                case INVEST -> investments.deposit(slot.pix, slot.amount);
+                case RESCUE -> investments.withdraw(slot.pix, slot.amount);
+                case CREATE_INVESTMENT -> investments.create(slot.tax, slot.amount, slot.name);
+                case OPEN_WALLET -> investments.initInvestment(accounts.findByPix(slot.pix), slot.investmentId);
+                case YIELD -> investments.updateAmount();
+            };
+        } catch (RuntimeException e) {
+            slot.failure = e;
+        }
+    }
+
+    /**
+     * Aguarda progresso de forma progressiva: espera ativa, depois cessão do processador
+     * e, por fim, suspensão curta, para não disputar CPU com as demais threads.
+     */
+    private static void backOff(final int tries) {
+        if (tries < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (tries < YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Conclui o resultado de uma posição e a libera para reutilização.
+     */
+    private static void complete(final Slot slot, final RuntimeException syncFailure) {
+        var completion = slot.completion;
+        var failure = slot.failure != null ? slot.failure : syncFailure;
+        var result = slot.result;
+        slot.pixKeys = null;
+        slot.pix = null;
+        slot.targetPix = null;
+        slot.name = null;
+        slot.completion = null;
+        slot.result = null;
+        slot.failure = null;
+        if (failure != null) {
+            completion.completeExceptionally(failure);
+        } else {
+            completion.complete(result);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package repository;
+
+import model.MoneyAudit;
+import model.TransactionType;
+import model.Wallet;
+
+/**
+ * Perna de uma transação: um débito ou crédito em uma única carteira.
+ * As pernas de uma transação são validadas e aplicadas juntas pelo {@link TransactionEngine}.
+ *
+ * @param wallet Carteira movimentada
+ * @param debit {@code true} para débito, {@code false} para crédito
+ * @param amount Valor movimentado (em centavos)
+ * @param type Tipo da transação registrado no histórico da carteira
+ * @param counterparty Chave PIX da contraparte, ou {@code null} se não houver
+ * @param investmentId ID do investimento envolvido, ou {@link MoneyAudit#NO_INVESTMENT}
+ */
+public record Leg(
+        Wallet wallet,
+        boolean debit,
+        long amount,
+        TransactionType type,
+        String counterparty,
+        long investmentId)
+{
+    /**
+     * Cria uma perna de débito.
+     *
+     * @param wallet Carteira debitada
+     * @param amount Valor debitado (em centavos)
+     * @param type Tipo da transação
+     * @param counterparty Chave PIX da contraparte, ou {@code null} se não houver
+     * @param investmentId ID do investimento envolvido, ou {@link MoneyAudit#NO_INVESTMENT}
+     * @return A perna de débito
+     */
+    public static Leg debit(final Wallet wallet, final long amount, final TransactionType type,
+                            final String counterparty, final long investmentId) {
+        return new Leg(wallet, true, amount, type, counterparty, investmentId);
+    }
+
+    /**
+     * Cria uma perna de crédito.
+     *
+     * @param wallet Carteira creditada
+     * @param amount Valor creditado (em centavos)
+     * @param type Tipo da transação
+     * @param counterparty Chave PIX da contraparte, ou {@code null} se não houver
+     * @param investmentId ID do investimento envolvido, ou {@link MoneyAudit#NO_INVESTMENT}
+     * @return A perna de crédito
+     */
+    public static Leg credit(final Wallet wallet, final long amount, final TransactionType type,
+                             final String counterparty, final long investmentId) {
+        return new Leg(wallet, false, amount, type, counterparty, investmentId);
+    }
+}
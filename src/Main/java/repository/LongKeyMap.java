@@ -0,0 +1,119 @@
+package repository;
+
+/**
+ * Mapa de chaves {@code long} para valores, com endereçamento aberto e sondagem linear.
+ * As chaves ficam em um vetor primitivo, sem objetos {@link Long} intermediários.
+ * Valores {@code null} não são aceitos; não há suporte a remoção.
+ *
+ * @param <V> Tipo dos valores
+ */
+public class LongKeyMap<V> {
+
+    /**
+     * Capacidade inicial da tabela (potência de dois).
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Constante multiplicativa usada para espalhar as chaves pela tabela.
+     */
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Chaves de cada posição da tabela.
+     */
+    private long[] keys = new long[INITIAL_CAPACITY];
+
+    /**
+     * Valores de cada posição da tabela; {@code null} indica posição livre.
+     */
+    private Object[] values = new Object[INITIAL_CAPACITY];
+
+    /**
+     * Quantidade de entradas do mapa.
+     */
+    private int size;
+
+    /**
+     * Busca o valor associado a uma chave.
+     *
+     * @param key Chave
+     * @return O valor associado, ou {@code null} se a chave não estiver no mapa
+     */
+    @SuppressWarnings("unchecked")
+    public V get(final long key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Associa um valor a uma chave, substituindo o valor anterior, se houver.
+     *
+     * @param key Chave
+     * @param value Valor (não nulo)
+     * @throws NullPointerException Se o valor for nulo
+     */
+    public void put(final long key, final V value) {
+        if (value == null) {
+            throw new NullPointerException("Valor nulo para a chave " + key);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    /**
+     * Retorna a quantidade de entradas do mapa.
+     *
+     * @return Quantidade de entradas
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Calcula a posição inicial de uma chave na tabela.
+     */
+    private static int slot(final long key, final int mask) {
+        long hash = key * GOLDEN_RATIO;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Dobra a capacidade da tabela, redistribuindo as entradas.
+     */
+    private void resize() {
+        var oldKeys = keys;
+        var oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slot(oldKeys[i], mask);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
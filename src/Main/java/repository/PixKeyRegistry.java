@@ -0,0 +1,81 @@
+package repository;
+
+import exception.PixInUseException;
+import model.AccountWallet;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de unicidade das chaves PIX do sistema.
+ * Associa cada chave à conta dona e garante que uma chave pertença a uma única conta.
+ * <p>
+ * O cadastro é feito em duas etapas: as chaves são reservadas antes de a conta existir e só são
+ * associadas à conta quando ela estiver pronta, de modo que uma conta rejeitada nunca chega a ser
+ * construída e uma conta em construção nunca é encontrada pelas buscas.
+ * </p>
+ */
+public class PixKeyRegistry {
+
+    /**
+     * Mapa das chaves PIX registradas para a conta dona de cada uma.
+     */
+    private final Map<String, AccountWallet> owners = new ConcurrentHashMap<>();
+
+    /**
+     * Chaves reservadas para contas ainda em construção. Protegido pelo monitor do registro.
+     */
+    private final Set<String> reserved = new HashSet<>();
+
+    /**
+     * Reserva todas as chaves PIX para uma conta que ainda será construída.
+     * A reserva é atômica: ou todas as chaves são reservadas, ou nenhuma é.
+     * Cada reserva deve terminar em {@link #publishAll(List, AccountWallet)} ou {@link #releaseAll(List)}.
+     *
+     * @param keys Chaves PIX a serem reservadas
+     * @throws PixInUseException Se alguma chave já estiver em uso ou reservada
+     */
+    public synchronized void reserveAll(final List<String> keys) {
+        for (var key : keys) {
+            if (owners.containsKey(key) || reserved.contains(key)) {
+                throw new PixInUseException("O pix '" + key + "' já está em uso");
+            }
+        }
+        reserved.addAll(keys);
+    }
+
+    /**
+     * Associa as chaves reservadas à conta construída, tornando-a visível para as buscas.
+     *
+     * @param keys Chaves PIX reservadas
+     * @param owner Conta dona das chaves
+     */
+    public synchronized void publishAll(final List<String> keys, final AccountWallet owner) {
+        for (var key : keys) {
+            owners.put(key, owner);
+            reserved.remove(key);
+        }
+    }
+
+    /**
+     * Libera as chaves reservadas para uma conta que não chegou a ser cadastrada.
+     *
+     * @param keys Chaves PIX reservadas
+     */
+    public synchronized void releaseAll(final List<String> keys) {
+        keys.forEach(reserved::remove);
+    }
+
+    /**
+     * Busca a conta dona de uma chave PIX.
+     *
+     * @param key Chave PIX
+     * @return A conta dona da chave, ou {@code null} se a chave não estiver registrada
+     */
+    public AccountWallet find(final String key) {
+        return owners.get(key);
+    }
+}
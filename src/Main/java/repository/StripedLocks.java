@@ -0,0 +1,146 @@
+package repository;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Conjunto de travas distribuídas em faixas (lock striping) para proteger operações sobre carteiras.
+ * Cada carteira é mapeada para uma faixa fixa, permitindo que operações em carteiras diferentes
+ * executem em paralelo. Operações envolvendo várias carteiras adquirem as travas sempre em ordem
+ * crescente de faixa, evitando deadlocks.
+ */
+public class StripedLocks {
+
+    /**
+     * Quantidade padrão de faixas de travas.
+     */
+    public static final int DEFAULT_STRIPES = 64;
+
+    /**
+     * Travas de cada faixa.
+     */
+    private final ReentrantLock[] stripes;
+
+    /**
+     * Cria o conjunto com a quantidade padrão de faixas.
+     */
+    public StripedLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Cria o conjunto de travas com a quantidade de faixas informada.
+     * A quantidade é arredondada para a próxima potência de dois.
+     *
+     * @param size Quantidade mínima de faixas
+     * @throws IllegalArgumentException Se a quantidade não for positiva
+     */
+    public StripedLocks(final int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Quantidade de faixas deve ser positiva");
+        }
+        int length = Integer.highestOneBit(size);
+        if (length < size) {
+            length <<= 1;
+        }
+        this.stripes = new ReentrantLock[length];
+        for (int i = 0; i < length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Executa uma ação com a trava da faixa do objeto informado e retorna seu resultado.
+     *
+     * @param key Objeto protegido (normalmente uma carteira)
+     * @param action Ação a ser executada
+     * @return O resultado da ação
+     */
+    public <T> T callLocked(final Object key, final Supplier<T> action) {
+        var lock = stripes[indexOf(key)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Executa uma ação com as travas das faixas de todos os objetos informados.
+     * Cada faixa é travada uma única vez, em ordem crescente, o que permite proteger
+     * um lote inteiro de operações com uma única aquisição por faixa.
+     *
+     * @param keys Objetos protegidos
+     * @param action Ação a ser executada
+     */
+    public void runLocked(final Collection<?> keys, final Runnable action) {
+        callLocked(keys, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Executa uma ação com as travas das faixas de todos os objetos informados e retorna seu resultado.
+     * As faixas são travadas como em {@link #runLocked(Collection, Runnable)}.
+     *
+     * @param keys Objetos protegidos
+     * @param action Ação a ser executada
+     * @return O resultado da ação
+     */
+    public <T> T callLocked(final Collection<?> keys, final Supplier<T> action) {
+        var indexes = new BitSet(stripes.length);
+        keys.forEach(key -> indexes.set(indexOf(key)));
+        int[] order = indexes.stream().toArray();
+        int locked = 0;
+        try {
+            for (int index : order) {
+                stripes[index].lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[order[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Executa uma ação com as travas de todas as faixas, adquiridas em ordem crescente.
+     * Enquanto a ação executa, nenhuma operação protegida por estas travas está em andamento.
+     *
+     * @param action Ação a ser executada
+     * @return O resultado da ação
+     */
+    public <T> T callAllLocked(final Supplier<T> action) {
+        int locked = 0;
+        try {
+            for (var stripe : stripes) {
+                stripe.lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * Calcula a faixa de um objeto a partir do seu hash de identidade.
+     * Objetos ordenados pela faixa podem ser travados em grupos que disputam poucas faixas entre si.
+     *
+     * @param key Objeto protegido
+     * @return Índice da faixa
+     */
+    public int indexOf(final Object key) {
+        int h = System.identityHashCode(key);
+        h ^= (h >>> 16);
+        return h & (stripes.length - 1);
+    }
+}
@@ -0,0 +1,288 @@
+package repository;
+
+import exception.NoFundsEnoughException;
+import model.AccountWallet;
+import model.BatchResult;
+import model.InvestmentWallet;
+import model.OperationResult;
+import model.OperationResult.Reason;
+import model.Wallet;
+import persistence.Movement;
+import persistence.TransactionLog;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static repository.CommonsRepository.hasFunds;
+
+/**
+ * Executa transações de várias pernas como unidades atômicas.
+ * <p>
+ * As carteiras envolvidas são travadas em ordem fixa de faixa, todas as pernas são validadas
+ * antes de qualquer alteração e, só então, os débitos e os créditos são aplicados. Se a validação
+ * falhar, nenhuma carteira é alterada. As movimentações aplicadas são gravadas no log em um único
+ * registro, ainda com as travas, de modo que a recuperação reaplica a transação inteira ou nada dela;
+ * a espera pela durabilidade do registro é feita depois de liberadas as travas.
+ * </p>
+ * <p>
+ * Lotes de transações, como um arquivo de folha de pagamento, são processados com uma única
+ * aquisição de travas e um único registro no log para o lote inteiro.
+ * </p>
+ * <p>
+ * A validação não lança exceções: uma transação rejeitada é descrita por um {@link OperationResult},
+ * e só {@link #execute(List)} converte a rejeição em exceção, para quem usa a API com exceções.
+ * </p>
+ */
+public class TransactionEngine {
+
+    /**
+     * Travas por faixa das carteiras.
+     */
+    private final StripedLocks locks;
+
+    /**
+     * Log onde as movimentações aplicadas são registradas.
+     */
+    private final TransactionLog log;
+
+    /**
+     * Cria o motor de transações.
+     *
+     * @param locks Travas por faixa das carteiras, compartilhadas com as demais operações de débito
+     * @param log Log de transações
+     */
+    public TransactionEngine(final StripedLocks locks, final TransactionLog log) {
+        this.locks = locks;
+        this.log = log;
+    }
+
+    /**
+     * Executa uma transação atomicamente: ou todas as pernas são aplicadas, ou nenhuma.
+     *
+     * @param legs Pernas da transação
+     * @throws NoFundsEnoughException Se alguma carteira não tiver saldo para os seus débitos
+     * @throws IllegalArgumentException Se alguma perna tiver valor menor ou igual a zero
+     */
+    public void execute(final List<Leg> legs) {
+        tryExecute(legs).orElseThrow();
+    }
+
+    /**
+     * Executa uma transação atomicamente, como {@link #execute(List)}, mas descreve a rejeição
+     * no resultado em vez de lançar exceção.
+     *
+     * @param legs Pernas da transação
+     * @return Sucesso, ou a rejeição por saldo insuficiente ou valor inválido, sem alteração nas carteiras
+     */
+    public OperationResult<Void> tryExecute(final List<Leg> legs) {
+        return tryExecute(legs, null);
+    }
+
+    /**
+     * Executa uma transação atomicamente, como {@link #tryExecute(List)}, e, se ela for aplicada,
+     * executa uma ação ainda com as travas das carteiras, depois da gravação no log.
+     * Permite que efeitos da transação, como o encerramento de uma carteira esvaziada, sejam
+     * observados pelas demais operações na mesma ordem em que são reaplicados a partir do log.
+     *
+     * @param legs Pernas da transação
+     * @param onApplied Ação executada após a aplicação, ou {@code null}
+     * @return Sucesso, ou a rejeição por saldo insuficiente, valor inválido ou carteira encerrada
+     */
+    public OperationResult<Void> tryExecute(final List<Leg> legs, final Runnable onApplied) {
+        OperationResult<Void> result = locks.callLocked(walletsOf(List.of(legs)), () -> {
+            var reason = validate(legs);
+            if (reason != null) {
+                return OperationResult.rejected(reason);
+            }
+            log.checkWritable();
+            var movements = new ArrayList<Movement>(legs.size());
+            apply(legs, movements);
+            log.movements(movements);
+            if (onApplied != null) {
+                onApplied.run();
+            }
+            return OperationResult.done();
+        });
+        if (result.isSuccess()) {
+            log.awaitDurability();
+        }
+        return result;
+    }
+
+    /**
+     * Executa um lote de transações. Cada transação continua atômica: as que não passam
+     * na validação são rejeitadas sem afetar as demais. As travas de todas as carteiras do lote
+     * são adquiridas uma única vez, e as movimentações aplicadas são gravadas em um único registro.
+     *
+     * @param transactions Transações do lote, cada uma com suas pernas
+     * @return Resultado com a quantidade de transações aplicadas e as posições das rejeitadas
+     */
+    public BatchResult executeBatch(final List<List<Leg>> transactions) {
+        var rejected = new ArrayList<Integer>();
+        var movements = new ArrayList<Movement>();
+        locks.runLocked(walletsOf(transactions), () -> {
+            log.checkWritable();
+            try {
+                for (int i = 0; i < transactions.size(); i++) {
+                    var legs = transactions.get(i);
+                    if (validate(legs) != null) {
+                        rejected.add(i);
+                        continue;
+                    }
+                    apply(legs, movements);
+                }
+            } finally {
+                // Se uma transação falhar, as anteriores do lote já foram aplicadas e são registradas
+                if (!movements.isEmpty()) {
+                    log.movements(movements);
+                }
+            }
+        });
+        if (!movements.isEmpty()) {
+            log.awaitDurability();
+        }
+        return new BatchResult(transactions.size() - rejected.size(), List.copyOf(rejected));
+    }
+
+    /**
+     * Executa uma ação com a trava da carteira informada, serializando-a com as transações
+     * que envolvem a mesma carteira. Usado pelas operações de débito fora do motor.
+     *
+     * @param wallet Carteira protegida
+     * @param action Ação a ser executada
+     * @return O resultado da ação
+     */
+    public <T> T callLocked(final Wallet wallet, final Supplier<T> action) {
+        return locks.callLocked(wallet, action);
+    }
+
+    /**
+     * Executa uma ação com as travas de todas as carteiras informadas, adquiridas uma única vez por faixa.
+     * Usado pelas operações que alteram várias carteiras sem formar uma transação, como o rendimento.
+     *
+     * @param wallets Carteiras protegidas
+     * @param action Ação a ser executada
+     * @return O resultado da ação
+     */
+    public <T> T callLocked(final Collection<? extends Wallet> wallets, final Supplier<T> action) {
+        return locks.callLocked(wallets, action);
+    }
+
+    /**
+     * Executa uma ação com as travas de todas as faixas, sem nenhuma operação sobre carteiras em andamento.
+     * Usado pelo snapshot para capturar um estado que corresponda exatamente a uma posição do log.
+     *
+     * @param action Ação a ser executada
+     * @return O resultado da ação
+     */
+    public <T> T callExclusive(final Supplier<T> action) {
+        return locks.callAllLocked(action);
+    }
+
+    /**
+     * Retorna a faixa de trava de uma carteira.
+     *
+     * @param wallet Carteira
+     * @return Índice da faixa
+     */
+    public int stripeOf(final Wallet wallet) {
+        return locks.indexOf(wallet);
+    }
+
+    /**
+     * Verifica os valores das pernas, se alguma carteira de investimento já foi encerrada
+     * e se cada carteira tem saldo para a soma dos seus débitos.
+     * Retorna o motivo da rejeição, ou {@code null} se a transação puder ser aplicada.
+     */
+    private static Reason validate(final List<Leg> legs) {
+        Map<Wallet, Long> debits = null;
+        for (var leg : legs) {
+            if (leg.amount() <= 0) {
+                return Reason.INVALID_AMOUNT;
+            }
+            if (leg.wallet() instanceof InvestmentWallet investment && investment.isClosed()) {
+                return Reason.WALLET_NOT_FOUND;
+            }
+            if (leg.debit()) {
+                if (debits == null) {
+                    debits = new IdentityHashMap<>();
+                }
+                debits.merge(leg.wallet(), leg.amount(), Long::sum);
+            }
+        }
+        if (debits != null) {
+            for (var entry : debits.entrySet()) {
+                if (!hasFunds(entry.getKey(), entry.getValue())) {
+                    return Reason.NO_FUNDS;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Aplica as pernas já validadas, primeiro os débitos e depois os créditos.
+     * O histórico de todas as pernas é reservado antes de qualquer alteração de saldo: se o armazenamento
+     * de auditoria falhar, a transação é rejeitada inteira, sem nenhuma perna aplicada.
+     */
+    private static void apply(final List<Leg> legs, final List<Movement> movements) {
+        var reservations = new int[legs.size()];
+        int reserved = 0;
+        try {
+            for (; reserved < legs.size(); reserved++) {
+                var leg = legs.get(reserved);
+                reservations[reserved] = leg.wallet().reserveAudit(leg.counterparty());
+            }
+        } catch (RuntimeException e) {
+            for (int i = 0; i < reserved; i++) {
+                legs.get(i).wallet().releaseAudit();
+            }
+            throw e;
+        }
+        for (int i = 0; i < legs.size(); i++) {
+            var leg = legs.get(i);
+            if (leg.debit()) {
+                if (!leg.wallet().tryReduceMoney(leg.amount(), leg.type(), leg.counterparty(), leg.investmentId(),
+                        reservations[i])) {
+                    // Não ocorre enquanto todos os débitos da carteira passarem pelas mesmas travas
+                    throw new IllegalStateException("Saldo alterado durante a transacao");
+                }
+                movements.add(movementOf(leg.wallet(), -leg.amount()));
+            }
+        }
+        for (int i = 0; i < legs.size(); i++) {
+            var leg = legs.get(i);
+            if (!leg.debit()) {
+                leg.wallet().addMoney(leg.amount(), leg.type(), leg.counterparty(), leg.investmentId(), reservations[i]);
+                movements.add(movementOf(leg.wallet(), leg.amount()));
+            }
+        }
+    }
+
+    /**
+     * Converte a alteração de saldo de uma carteira na movimentação gravada no log,
+     * identificando a carteira pela primeira chave PIX da conta dona.
+     */
+    private static Movement movementOf(final Wallet wallet, final long delta) {
+        if (wallet instanceof InvestmentWallet investment) {
+            return new Movement(investment.getAccount().getPix().get(0), true, delta);
+        }
+        if (wallet instanceof AccountWallet account) {
+            return new Movement(account.getPix().get(0), false, delta);
+        }
+        throw new IllegalArgumentException("Carteira sem chave PIX: " + wallet);
+    }
+
+    /**
+     * Reúne as carteiras de todas as pernas das transações informadas.
+     */
+    private static List<Wallet> walletsOf(final List<List<Leg>> transactions) {
+        var wallets = new ArrayList<Wallet>();
+        transactions.forEach(legs -> legs.forEach(leg -> wallets.add(leg.wallet())));
+        return wallets;
+    }
+}
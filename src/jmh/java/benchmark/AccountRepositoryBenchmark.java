@@ -0,0 +1,83 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import model.AccountWallet;
+import repository.AccountRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Benchmarks das operações de conta mais frequentes: busca por chave PIX e transferência.
+ * Parametrizado pela quantidade de contas e de chaves PIX por conta.
+ */
+@State(Scope.Benchmark)
+public class AccountRepositoryBenchmark {
+
+    /**
+     * Quantidade de contas cadastradas.
+     */
+    @Param({"1000", "100000", "1000000"})
+    public int accounts;
+
+    /**
+     * Quantidade de chaves PIX de cada conta.
+     */
+    @Param({"1", "3"})
+    public int keysPerAccount;
+
+    /**
+     * Repositório em teste.
+     */
+    private AccountRepository repository;
+
+    /**
+     * Todas as chaves PIX cadastradas.
+     */
+    private String[] keys;
+
+    /**
+     * Cadastra as contas com saldo suficiente para todas as transferências da medição.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        repository = new AccountRepository();
+        keys = new String[accounts * keysPerAccount];
+        for (int i = 0; i < accounts; i++) {
+            List<String> pix = new ArrayList<>(keysPerAccount);
+            for (int k = 0; k < keysPerAccount; k++) {
+                var key = "conta" + i + "-chave" + k;
+                pix.add(key);
+                keys[i * keysPerAccount + k] = key;
+            }
+            repository.create(pix, 1_000_000_000_00L);
+        }
+    }
+
+    /**
+     * Busca uma conta por uma chave PIX aleatória.
+     *
+     * @return A conta encontrada
+     */
+    @Benchmark
+    public AccountWallet findByPix() {
+        return repository.findByPix(keys[ThreadLocalRandom.current().nextInt(keys.length)]);
+    }
+
+    /**
+     * Transfere um centavo entre duas contas aleatórias distintas.
+     */
+    @Benchmark
+    public void transferMoney() {
+        var random = ThreadLocalRandom.current();
+        int source = random.nextInt(accounts);
+        int target = (source + 1 + random.nextInt(accounts - 1)) % accounts;
+        repository.transferMoney(keys[source * keysPerAccount], keys[target * keysPerAccount], 1);
+    }
+}
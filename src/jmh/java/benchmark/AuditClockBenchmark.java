@@ -0,0 +1,65 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import model.AuditClock;
+import model.TimeOrderedAuditClock;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Compara o custo de gerar o identificador e o instante de um registro de auditoria
+ * com {@link AuditClock#SYSTEM} e com {@link TimeOrderedAuditClock}, com quatro threads concorrentes.
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+public class AuditClockBenchmark {
+
+    /**
+     * Fonte ordenada por tempo, compartilhada entre as threads.
+     */
+    private final AuditClock timeOrdered = new TimeOrderedAuditClock();
+
+    /**
+     * Identificador com {@link UUID#randomUUID()}.
+     *
+     * @return Identificador gerado
+     */
+    @Benchmark
+    public UUID systemId() {
+        return AuditClock.SYSTEM.nextId();
+    }
+
+    /**
+     * Identificador UUID versão 7.
+     *
+     * @return Identificador gerado
+     */
+    @Benchmark
+    public UUID timeOrderedId() {
+        return timeOrdered.nextId();
+    }
+
+    /**
+     * Instante com {@link OffsetDateTime#now()}.
+     *
+     * @return Instante gerado
+     */
+    @Benchmark
+    public OffsetDateTime systemNow() {
+        return AuditClock.SYSTEM.now();
+    }
+
+    /**
+     * Instante do relógio em cache.
+     *
+     * @return Instante gerado
+     */
+    @Benchmark
+    public OffsetDateTime cachedNow() {
+        return timeOrdered.now();
+    }
+}
@@ -0,0 +1,91 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import model.HistoryPage;
+import model.MoneyAudit;
+import repository.AccountRepository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmarks da consulta de histórico de uma conta, parametrizados pela profundidade do histórico.
+ */
+@State(Scope.Benchmark)
+public class HistoryBenchmark {
+
+    /**
+     * Chave PIX da conta consultada.
+     */
+    private static final String PIX = "historico";
+
+    /**
+     * Quantidade de transações no histórico da conta.
+     */
+    @Param({"10", "1000", "100000"})
+    public int historyDepth;
+
+    /**
+     * Repositório em teste.
+     */
+    private AccountRepository repository;
+
+    /**
+     * Instante do meio do histórico, usado como início do intervalo consultado.
+     */
+    private OffsetDateTime middle;
+
+    /**
+     * Cria a conta e preenche seu histórico com depósitos.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        repository = new AccountRepository();
+        repository.create(List.of(PIX), 100);
+        for (int i = 1; i < historyDepth; i++) {
+            repository.deposit(PIX, i);
+        }
+        var transactions = repository.findByPix(PIX).getFinancialTransactions();
+        middle = transactions.get(transactions.size() / 2).createdAt();
+    }
+
+    /**
+     * Agrupa o histórico da conta por segundo.
+     *
+     * @return Histórico agrupado
+     */
+    @Benchmark
+    public Map<OffsetDateTime, List<MoneyAudit>> getHistory() {
+        return repository.getHistory(PIX);
+    }
+
+    /**
+     * Percorre o histórico da conta somando os valores das transações.
+     *
+     * @return Soma dos valores
+     */
+    @Benchmark
+    public long scanTransactions() {
+        long total = 0;
+        for (var transaction : repository.findByPix(PIX).getFinancialTransactions()) {
+            total += transaction.amount();
+        }
+        return total;
+    }
+
+    /**
+     * Consulta uma página de 50 registros a partir do meio do histórico.
+     *
+     * @return Página consultada
+     */
+    @Benchmark
+    public HistoryPage pageFromMiddle() {
+        return repository.getHistoryPage(PIX, middle, null, 50, null);
+    }
+}
@@ -0,0 +1,55 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import model.YieldSummary;
+import repository.AccountRepository;
+import repository.InvestmentRepository;
+
+import java.util.List;
+
+/**
+ * Benchmark da atualização de rendimentos de todas as carteiras de investimento.
+ */
+@State(Scope.Benchmark)
+public class InvestmentRepositoryBenchmark {
+
+    /**
+     * Quantidade de carteiras de investimento.
+     */
+    @Param({"1000", "100000"})
+    public int wallets;
+
+    /**
+     * Repositório em teste.
+     */
+    private InvestmentRepository investments;
+
+    /**
+     * Cria uma conta e uma carteira de investimento para cada posição.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        var accounts = new AccountRepository();
+        investments = new InvestmentRepository();
+        var investment = investments.create(1, 1_000_00, "CDB");
+        for (int i = 0; i < wallets; i++) {
+            var account = accounts.create(List.of("investidor" + i), 10_000_00);
+            investments.initInvestment(account, investment.id());
+        }
+    }
+
+    /**
+     * Credita os rendimentos em todas as carteiras.
+     *
+     * @return Resumo da execução
+     */
+    @Benchmark
+    public YieldSummary updateAmount() {
+        return investments.updateAmount();
+    }
+}
@@ -0,0 +1,77 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import model.MoneyFormatter;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compara a formatação de saldos com {@link String#format} e com {@link MoneyFormatter}
+ * ao montar a listagem de um conjunto grande de contas.
+ */
+@State(Scope.Thread)
+public class MoneyFormatterBenchmark {
+
+    /**
+     * Quantidade de saldos listados.
+     */
+    @Param({"1000", "100000"})
+    public int accounts;
+
+    /**
+     * Saldos a serem formatados (em centavos).
+     */
+    private long[] balances;
+
+    /**
+     * Buffer reutilizado pela listagem.
+     */
+    private final StringBuilder line = new StringBuilder(128);
+
+    /**
+     * Gera saldos aleatórios, incluindo valores com separador de milhares.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        var random = ThreadLocalRandom.current();
+        balances = new long[accounts];
+        for (int i = 0; i < accounts; i++) {
+            balances[i] = random.nextLong(100_000_000_00L);
+        }
+    }
+
+    /**
+     * Listagem com a formatação anterior, baseada em {@link String#format}.
+     *
+     * @return Total de caracteres gerados
+     */
+    @Benchmark
+    public long stringFormat() {
+        long length = 0;
+        for (long balance : balances) {
+            String formattedBalance = "R$" + (balance / 100) + "," + String.format("%02d", balance % 100);
+            length += formattedBalance.length();
+        }
+        return length;
+    }
+
+    /**
+     * Listagem com {@link MoneyFormatter} escrevendo em um buffer reutilizado.
+     *
+     * @return Total de caracteres gerados
+     */
+    @Benchmark
+    public long moneyFormatter() {
+        long length = 0;
+        for (long balance : balances) {
+            line.setLength(0);
+            length += MoneyFormatter.append(line, balance).length();
+        }
+        return length;
+    }
+}
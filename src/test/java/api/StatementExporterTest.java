@@ -0,0 +1,129 @@
+package api;
+
+import model.MoneyAudit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import persistence.TransactionLog;
+import repository.AccountRepository;
+import repository.InvestmentRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Testes da saída do {@link StatementExporter} em CSV e em JSON.
+ */
+class StatementExporterTest {
+
+    /**
+     * Chave com vírgula e aspas, que exige aspas no CSV e escape no JSON.
+     */
+    private static final String QUOTED_PIX = "joão,\"silva\"";
+
+    private AccountRepository accounts;
+
+    private InvestmentRepository investments;
+
+    private StatementExporter exporter;
+
+    @BeforeEach
+    void createAccounts() {
+        accounts = new AccountRepository();
+        investments = new InvestmentRepository(TransactionLog.NONE, accounts.getTransactionEngine());
+        exporter = new StatementExporter(accounts, investments);
+        var ana = accounts.create(List.of("ana", "ana@pix"), 10_000);
+        accounts.create(List.of(QUOTED_PIX), 500);
+        accounts.transferMoney("ana", QUOTED_PIX, 250);
+        investments.initInvestment(ana, investments.create(2, 1_000, "CDB").id());
+    }
+
+    /**
+     * O CSV tem o cabeçalho, os registros da conta e depois os da carteira, com a contraparte entre aspas.
+     */
+    @Test
+    void exportsAccountAndInvestmentAsCsv() throws Exception {
+        var out = new ByteArrayOutputStream();
+        long count = exporter.exportAccount("ana@pix", StatementExporter.Format.CSV, Channels.newChannel(out));
+
+        var lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, count);
+        assertEquals(1 + count, lines.length);
+        assertEquals("pix,wallet,id,createdAt,type,service,amount,counterparty,investmentId", lines[0]);
+
+        var transactions = accounts.findByPix("ana").getFinancialTransactions();
+        assertEquals(csv("account", transactions.get(0), ""), lines[1]);
+        assertEquals(csv("account", transactions.get(1), "\"joão,\"\"silva\"\"\""), lines[2]);
+        assertEquals(csv("account", transactions.get(2), ""), lines[3]);
+        var investment = investments.findWalletByAccountPix("ana").getFinancialTransactions().get(0);
+        assertEquals(csv("investment", investment, ""), lines[4]);
+    }
+
+    /**
+     * Cada linha JSON é um objeto válido, com os textos escapados e o instante completo, com nanossegundos.
+     */
+    @Test
+    void exportsJsonLinesReadableBack() throws Exception {
+        var out = new ByteArrayOutputStream();
+        long count = exporter.exportAccount(QUOTED_PIX, StatementExporter.Format.JSON, Channels.newChannel(out));
+
+        var lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, count);
+        assertEquals(2, lines.length);
+
+        var transactions = accounts.findByPix(QUOTED_PIX).getFinancialTransactions();
+        var initial = FlatJson.parse(lines[0]);
+        assertEquals(QUOTED_PIX, initial.get("pix"));
+        assertEquals("account", initial.get("wallet"));
+        assertEquals(transactions.get(0).transactionId().toString(), initial.get("id"));
+        assertEquals(transactions.get(0).createdAt().toInstant(),
+                OffsetDateTime.parse((String) initial.get("createdAt")).toInstant());
+        assertEquals("INITIAL_DEPOSIT", initial.get("type"));
+        assertEquals(500L, initial.get("amount"));
+        assertNull(initial.get("counterparty"));
+
+        var received = FlatJson.parse(lines[1]);
+        assertEquals("PIX_RECEIVED", received.get("type"));
+        assertEquals("ana", received.get("counterparty"));
+        assertEquals(250L, received.get("amount"));
+        assertEquals(MoneyAudit.NO_INVESTMENT, received.get("investmentId"));
+    }
+
+    /**
+     * Exportações maiores que o buffer de gravação são gravadas por inteiro, uma linha por registro.
+     */
+    @Test
+    void exportAllLargerThanBufferKeepsEveryLine() throws Exception {
+        for (int i = 0; i < 2_000; i++) {
+            accounts.deposit(QUOTED_PIX, 1 + i);
+        }
+
+        var out = new ByteArrayOutputStream();
+        long count = exporter.exportAll(StatementExporter.Format.JSON, Channels.newChannel(out));
+
+        var text = out.toString(StandardCharsets.UTF_8);
+        assertEquals(4 + 2 + 2_000, count);
+        assertEquals(count, text.lines().count());
+        text.lines().forEach(FlatJson::parse);
+        var lastDeposit = text.lines().skip(3 + 2 + 1_999).findFirst().orElseThrow();
+        assertEquals(2_000L, FlatJson.parse(lastDeposit).get("amount"));
+    }
+
+    private static String csv(final String kind, final MoneyAudit audit, final String counterparty) {
+        return String.join(",", "ana", kind, audit.transactionId().toString(), iso(audit.createdAt()),
+                audit.type().name(), audit.targetService().name(), Long.toString(audit.amount()), counterparty,
+                Long.toString(audit.investmentId()));
+    }
+
+    /**
+     * Data e hora no formato usado pelo exportador: sempre com os nove dígitos de nanossegundos.
+     */
+    private static String iso(final OffsetDateTime time) {
+        return String.format("%tFT%<tT.%09d%s", time, time.getNano(), time.getOffset().getId());
+    }
+}
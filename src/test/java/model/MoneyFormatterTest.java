@@ -0,0 +1,74 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Testes da formatação de valores em reais do {@link MoneyFormatter}.
+ */
+class MoneyFormatterTest {
+
+    private static final Locale BRAZIL = Locale.of("pt", "BR");
+
+    /**
+     * Centavos, separadores de milhares e sinal, inclusive nos limites de {@code long}.
+     */
+    @Test
+    void formatsEdgeCases() {
+        assertEquals("R$0,00", MoneyFormatter.format(0));
+        assertEquals("R$0,05", MoneyFormatter.format(5));
+        assertEquals("R$0,99", MoneyFormatter.format(99));
+        assertEquals("R$1,00", MoneyFormatter.format(100));
+        assertEquals("R$999,99", MoneyFormatter.format(99_999));
+        assertEquals("R$1.000,00", MoneyFormatter.format(100_000));
+        assertEquals("R$1.234,56", MoneyFormatter.format(123_456));
+        assertEquals("R$1.000.000,01", MoneyFormatter.format(100_000_001));
+        assertEquals("-R$0,01", MoneyFormatter.format(-1));
+        assertEquals("-R$1.234,56", MoneyFormatter.format(-123_456));
+        assertEquals("R$92.233.720.368.547.758,07", MoneyFormatter.format(Long.MAX_VALUE));
+        assertEquals("-R$92.233.720.368.547.758,08", MoneyFormatter.format(Long.MIN_VALUE));
+    }
+
+    /**
+     * Valores aleatórios de todas as magnitudes coincidem com a formatação de referência.
+     */
+    @Test
+    void matchesReferenceFormatting() {
+        var random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            long cents = random.nextLong() >> random.nextInt(64);
+            assertEquals(reference(cents), MoneyFormatter.format(cents), "centavos=" + cents);
+        }
+    }
+
+    /**
+     * A escrita em um destino existente acrescenta o valor ao final, sem apagar o conteúdo anterior.
+     */
+    @Test
+    void appendsToExistingContent() throws Exception {
+        var builder = new StringBuilder("Saldo: ");
+        MoneyFormatter.append(builder, 250).append(" | ");
+        MoneyFormatter.append(builder, -7);
+        assertEquals("Saldo: R$2,50 | -R$0,07", builder.toString());
+
+        var writer = new StringWriter();
+        MoneyFormatter.appendTo(writer, 1_234_567_890L);
+        assertEquals("R$12.345.678,90", writer.toString());
+    }
+
+    /**
+     * Formatação de referência com o agrupamento de milhares do português do Brasil.
+     */
+    private static String reference(final long cents) {
+        var value = BigInteger.valueOf(cents).abs();
+        var parts = value.divideAndRemainder(BigInteger.valueOf(100));
+        return (cents < 0 ? "-" : "") + "R$" + String.format(BRAZIL, "%,d", parts[0])
+                + String.format(",%02d", parts[1].intValue());
+    }
+}
@@ -0,0 +1,249 @@
+package model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import persistence.AuditSegmentStore;
+import persistence.ColumnarAuditStore;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Testes da paginação e da ordem do {@link TransactionHistory}, incluindo os registros
+ * já transferidos para segmentos comprimidos.
+ */
+class TransactionHistoryTest {
+
+    private static final OffsetDateTime START = OffsetDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private static final int RECORDS = 1_000;
+
+    @TempDir
+    Path dir;
+
+    private TransactionHistory history;
+
+    @BeforeEach
+    void openStores() throws Exception {
+        history = new TransactionHistory(new ColumnarAuditStore(dir.resolve("audit.col")),
+                new AuditSegmentStore(dir.resolve("audit.seg")), ColumnarAuditStore.BLOCK_ROWS);
+    }
+
+    /**
+     * A sequência de páginas percorre todo o histórico, atravessando os segmentos e os blocos recentes.
+     */
+    @Test
+    void pagesCoverHistoryAcrossSpilledSegments() {
+        fill(RECORDS);
+        assertTrue(history.spilledSize() >= 3 * AuditSegmentStore.SEGMENT_ROWS);
+
+        var amounts = new ArrayList<Long>();
+        String token = null;
+        do {
+            var page = history.page(null, null, 37, token);
+            page.transactions().forEach(audit -> amounts.add(audit.amount()));
+            token = page.nextToken();
+        } while (token != null);
+
+        assertEquals(expected(0, RECORDS), amounts);
+    }
+
+    /**
+     * Intervalos que começam ou terminam nas bordas dos segmentos localizam exatamente os registros do intervalo.
+     */
+    @Test
+    void rangesAtSegmentBoundariesFindExactRecords() {
+        fill(RECORDS);
+        int rows = AuditSegmentStore.SEGMENT_ROWS;
+        int spilled = history.spilledSize();
+        for (int i : new int[] {0, 1, rows - 1, rows, rows + 1, 2 * rows - 1, 2 * rows, spilled - 1, spilled,
+                spilled + 1, RECORDS - 1}) {
+            var single = history.page(time(i), time(i + 1), 10, null);
+            assertEquals(List.of((long) i), amounts(single), "registro " + i);
+            assertNull(single.nextToken());
+
+            var tail = history.page(time(i), null, 3, null);
+            assertEquals(expected(i, Math.min(RECORDS, i + 3)), amounts(tail), "registro " + i);
+        }
+        assertEquals(List.of(), amounts(history.page(time(RECORDS), null, 10, null)));
+    }
+
+    /**
+     * Páginas de um intervalo param no fim do intervalo, e a visão de uma página não inclui
+     * registros acrescentados depois da consulta.
+     */
+    @Test
+    void rangePagesStopAtRangeEndAndIgnoreLaterRecords() {
+        fill(100);
+
+        var first = history.page(time(10), time(25), 10, null);
+        var second = history.page(time(10), time(25), 10, first.nextToken());
+        history.add(new MoneyAudit(new UUID(3, 3), BankService.ACCOUNT, TransactionType.DEPOSIT, 500, null,
+                MoneyAudit.NO_INVESTMENT, time(200)));
+
+        assertEquals(expected(10, 20), amounts(first));
+        assertEquals(expected(20, 25), amounts(second));
+        assertNull(second.nextToken());
+        assertEquals(101, history.size());
+    }
+
+    /**
+     * Limite não positivo e tokens inválidos são rejeitados.
+     */
+    @Test
+    void invalidLimitAndTokensAreRejected() {
+        fill(10);
+
+        assertThrows(IllegalArgumentException.class, () -> history.page(null, null, 0, null));
+        assertThrows(IllegalArgumentException.class, () -> history.page(null, null, 5, "abc"));
+        assertThrows(IllegalArgumentException.class, () -> history.page(null, null, 5, "10"));
+        assertThrows(IllegalArgumentException.class, () -> history.page(null, null, 5, "10_abc"));
+        assertThrows(IllegalArgumentException.class, () -> history.page(null, null, 5, "x_" + new UUID(0, 1)));
+        var afterLast = ColumnarAuditStore.epochNanos(time(9)) + "_" + new UUID(0, 9);
+        assertEquals(List.of(), amounts(history.page(null, null, 5, afterLast)));
+    }
+
+    /**
+     * O token identifica o último registro devolvido: um registro inserido fora de ordem antes dele
+     * não repete nem pula registros na página seguinte, e um registro com o mesmo instante depois dele
+     * aparece na página seguinte.
+     */
+    @Test
+    void tokenResumesAfterLastRecordDespiteLateInserts() {
+        fill(20);
+        var first = history.page(null, null, 5, null);
+        history.add(new MoneyAudit(new UUID(6, 6), BankService.ACCOUNT, TransactionType.DEPOSIT, 600, null,
+                MoneyAudit.NO_INVESTMENT, time(2).plusNanos(500)));
+        history.add(new MoneyAudit(new UUID(7, 7), BankService.ACCOUNT, TransactionType.DEPOSIT, 700, null,
+                MoneyAudit.NO_INVESTMENT, time(4)));
+
+        var second = history.page(null, null, 5, first.nextToken());
+
+        assertEquals(expected(0, 5), amounts(first));
+        assertEquals(List.of(700L, 5L, 6L, 7L, 8L), amounts(second));
+    }
+
+    /**
+     * Um registro mais antigo que os últimos é inserido na sua posição, com o instante original.
+     */
+    @Test
+    void lateRecordIsInsertedInOrderWithOriginalTime() {
+        fill(10);
+        var late = new MoneyAudit(new UUID(1, 1), BankService.ACCOUNT, TransactionType.DEPOSIT, 99, null,
+                MoneyAudit.NO_INVESTMENT, time(4).minusNanos(500));
+
+        var stored = history.add(late);
+
+        assertEquals(late.createdAt(), stored.createdAt());
+        assertEquals(List.of(0L, 1L, 2L, 3L, 99L, 4L, 5L, 6L, 7L, 8L, 9L), amounts(history.view()));
+        var found = history.page(late.createdAt(), time(4), 10, null).transactions();
+        assertEquals(1, found.size());
+        assertEquals(late.createdAt().toInstant(), found.get(0).createdAt().toInstant());
+    }
+
+    /**
+     * Um registro anterior aos já transferidos para segmentos é gravado com o instante do último
+     * registro transferido, logo após ele, e as buscas por intervalo continuam exatas.
+     */
+    @Test
+    void recordOlderThanSpilledRowsIsClampedAfterThem() {
+        fill(RECORDS);
+        int spilled = history.spilledSize();
+        var late = new MoneyAudit(new UUID(4, 4), BankService.ACCOUNT, TransactionType.DEPOSIT, 7_777, null,
+                MoneyAudit.NO_INVESTMENT, time(0).minusSeconds(1));
+
+        var stored = history.add(late);
+
+        assertEquals(time(spilled - 1).toInstant(), stored.createdAt().toInstant());
+        assertEquals(late.transactionId(), stored.transactionId());
+        var view = history.view();
+        assertEquals(7_777, view.get(spilled).amount());
+        for (int i = 1; i < view.size(); i++) {
+            assertTrue(!view.get(i).createdAt().isBefore(view.get(i - 1).createdAt()), "registro " + i);
+        }
+        assertEquals(List.of((long) spilled - 1, 7_777L), amounts(history.page(time(spilled - 1), time(spilled), 10, null)));
+        assertEquals(expected(spilled, spilled + 3), amounts(history.page(time(spilled), null, 3, null)));
+    }
+
+    /**
+     * Reservas desfeitas não ocupam posições, e um registro reservado é gravado com a contraparte
+     * codificada na reserva, mesmo quando a reserva atravessa a transferência para um segmento.
+     */
+    @Test
+    void reservedRecordsAreWrittenAndReleasedReservationsLeaveNoRows() {
+        int code = history.reserve("ana@pix");
+        history.release();
+        assertEquals(0, history.size());
+
+        code = history.reserve("ana@pix");
+        fill(RECORDS);
+        history.add(new MoneyAudit(new UUID(5, 5), BankService.ACCOUNT, TransactionType.PIX_RECEIVED, 42, "ana@pix",
+                MoneyAudit.NO_INVESTMENT, time(RECORDS)), code);
+
+        assertEquals(RECORDS + 1, history.size());
+        var last = history.view().get(RECORDS);
+        assertEquals(42, last.amount());
+        assertEquals("ana@pix", last.counterparty());
+        assertEquals(expected(0, RECORDS), amounts(history.view().subList(0, RECORDS)));
+    }
+
+    /**
+     * Um rendimento com o instante de um lote anterior mantém esse instante no histórico e nos agregados.
+     */
+    @Test
+    void yieldKeepsBatchTimeInHistoryAndAggregates() {
+        var wallet = new InvestmentWallet(new Investment(1, 10, 100, "CDB"), new AccountWallet(List.of("ana")));
+        wallet.restoreMoney(1_000);
+        wallet.addMoney(50, TransactionType.DEPOSIT);
+        var yesterday = OffsetDateTime.now().minusDays(1);
+
+        wallet.updateAmount(10, new UUID(2, 2), yesterday);
+
+        var first = wallet.getFinancialTransactions().get(0);
+        assertEquals(TransactionType.YIELD, first.type());
+        assertEquals(yesterday.toInstant(), first.createdAt().toInstant());
+        var day = LocalDate.ofInstant(yesterday.toInstant(), ZoneId.systemDefault());
+        var totals = wallet.getAggregates().daily(day, day);
+        assertEquals(1, totals.size());
+        assertEquals(105, totals.get(0).credits());
+    }
+
+    private void fill(final int count) {
+        for (int i = 0; i < count; i++) {
+            history.add(new MoneyAudit(new UUID(0, i), BankService.ACCOUNT, TransactionType.DEPOSIT, i,
+                    "pix-" + i % 3, MoneyAudit.NO_INVESTMENT, time(i)));
+        }
+    }
+
+    private static OffsetDateTime time(final int index) {
+        return START.plusSeconds(index);
+    }
+
+    private static List<Long> amounts(final HistoryPage page) {
+        return amounts(page.transactions());
+    }
+
+    private static List<Long> amounts(final List<MoneyAudit> audits) {
+        return audits.stream().map(MoneyAudit::amount).toList();
+    }
+
+    private static List<Long> expected(final int from, final int to) {
+        var amounts = new ArrayList<Long>();
+        for (long i = from; i < to; i++) {
+            amounts.add(i);
+        }
+        return amounts;
+    }
+}
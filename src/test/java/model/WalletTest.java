@@ -0,0 +1,109 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Testes das atualizações de saldo por compare-and-set da {@link Wallet} sob disputa.
+ */
+class WalletTest {
+
+    private static final int THREADS = 8;
+
+    /**
+     * Saques concorrentes nunca deixam o saldo negativo: exatamente o saldo inicial é sacado,
+     * e cada saque realizado é registrado no histórico.
+     */
+    @Test
+    void concurrentWithdrawsNeverOverdraw() throws Exception {
+        var wallet = new AccountWallet(10_000, List.of("ana"));
+        var withdrawn = new AtomicLong();
+        var minimum = new AtomicLong(Long.MAX_VALUE);
+
+        runConcurrently(() -> {
+            for (int i = 0; i < 2_000; i++) {
+                if (wallet.tryReduceMoney(1, TransactionType.WITHDRAW, null, MoneyAudit.NO_INVESTMENT)) {
+                    withdrawn.incrementAndGet();
+                }
+                minimum.accumulateAndGet(wallet.getFunds(), Math::min);
+            }
+        });
+
+        assertEquals(10_000, withdrawn.get());
+        assertEquals(0, wallet.getFunds());
+        assertEquals(0, minimum.get());
+        assertEquals(1 + 10_000, wallet.getFinancialTransactions().size());
+        assertFalse(wallet.tryReduceMoney(1, TransactionType.WITHDRAW, null, MoneyAudit.NO_INVESTMENT));
+    }
+
+    /**
+     * Créditos e débitos concorrentes não perdem atualizações: o saldo final é o inicial mais os créditos
+     * menos os débitos realizados.
+     */
+    @Test
+    void concurrentCreditsAndDebitsConserveBalance() throws Exception {
+        var wallet = new AccountWallet(500, List.of("ana"));
+        var debited = new AtomicLong();
+
+        runConcurrently(() -> {
+            for (int i = 0; i < 1_000; i++) {
+                wallet.addMoney(3, TransactionType.DEPOSIT);
+                if (wallet.tryReduceMoney(5, TransactionType.WITHDRAW, null, MoneyAudit.NO_INVESTMENT)) {
+                    debited.addAndGet(5);
+                }
+            }
+        });
+
+        assertEquals(500 + THREADS * 1_000 * 3 - debited.get(), wallet.getFunds());
+    }
+
+    /**
+     * Valores não positivos são rejeitados sem alterar o saldo.
+     */
+    @Test
+    void nonPositiveAmountsAreRejected() {
+        var wallet = new AccountWallet(100, List.of("ana"));
+
+        assertThrows(IllegalArgumentException.class, () -> wallet.addMoney(0, TransactionType.DEPOSIT));
+        assertThrows(IllegalArgumentException.class,
+                () -> wallet.tryReduceMoney(-1, TransactionType.WITHDRAW, null, MoneyAudit.NO_INVESTMENT));
+        assertThrows(IllegalArgumentException.class, () -> wallet.reduceMoney(101, TransactionType.WITHDRAW));
+        assertEquals(100, wallet.getFunds());
+    }
+
+    /**
+     * Executa a mesma tarefa em várias threads, liberadas ao mesmo tempo.
+     */
+    private static void runConcurrently(final Runnable task) throws Exception {
+        var start = new CountDownLatch(1);
+        var threads = new ArrayList<Thread>();
+        var failures = new ArrayList<Throwable>();
+        for (int t = 0; t < THREADS; t++) {
+            var thread = new Thread(() -> {
+                try {
+                    start.await();
+                    task.run();
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (var thread : threads) {
+            thread.join();
+        }
+        assertEquals(List.of(), failures);
+    }
+}
@@ -0,0 +1,84 @@
+package persistence;
+
+import model.BankService;
+import model.MoneyAudit;
+import model.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static persistence.ColumnarAuditStore.BLOCK_ROWS;
+
+/**
+ * Testes do dicionário de contrapartes do {@link ColumnarAuditStore}.
+ */
+class ColumnarAuditStoreTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Mais chaves do que cabem nos caches são gravadas e lidas de volta do dicionário mapeado,
+     * inclusive as que saíram do cache e voltaram a ser usadas.
+     */
+    @Test
+    void counterpartiesBeyondCacheRoundTrip() throws Exception {
+        var store = new ColumnarAuditStore(dir.resolve("audit.col"));
+        int rows = ColumnarAuditStore.KEY_CACHE_SIZE * 3;
+        var blocks = new int[rows / BLOCK_ROWS];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = store.allocateBlock();
+        }
+        var now = OffsetDateTime.now();
+        for (int i = 0; i < rows; i++) {
+            store.write(blocks[i / BLOCK_ROWS], i % BLOCK_ROWS, new MoneyAudit(new UUID(0, i), BankService.ACCOUNT,
+                    TransactionType.PIX_SENT, i, counterparty(i), MoneyAudit.NO_INVESTMENT, now));
+        }
+
+        for (int i = rows - 1; i >= 0; i--) {
+            var audit = store.read(blocks[i / BLOCK_ROWS], i % BLOCK_ROWS);
+            assertEquals(counterparty(i), audit.counterparty(), "linha " + i);
+            assertEquals(i, audit.amount());
+        }
+    }
+
+    /**
+     * Cada chave distinta é gravada uma única vez: reutilizar chaves que já saíram do cache,
+     * mesmo depois de a tabela de espalhamento crescer, não amplia o dicionário.
+     */
+    @Test
+    void reusedCounterpartiesAreWrittenOnce() throws Exception {
+        var store = new ColumnarAuditStore(dir.resolve("audit.col"));
+        int keys = ColumnarAuditStore.KEY_CACHE_SIZE * 4;
+        int block = store.allocateBlock();
+        var now = OffsetDateTime.now();
+        for (int i = 0; i < keys; i++) {
+            store.write(block, i % BLOCK_ROWS, new MoneyAudit(new UUID(0, i), BankService.ACCOUNT,
+                    TransactionType.PIX_RECEIVED, i, "chave-" + i, MoneyAudit.NO_INVESTMENT, now));
+        }
+        long written = store.dictionaryBytes();
+
+        for (int i = keys - 1; i >= 0; i--) {
+            store.write(block, i % BLOCK_ROWS, new MoneyAudit(new UUID(1, i), BankService.ACCOUNT,
+                    TransactionType.PIX_SENT, i, "chave-" + i, MoneyAudit.NO_INVESTMENT, now));
+            assertEquals("chave-" + i, store.read(block, i % BLOCK_ROWS).counterparty());
+        }
+
+        assertEquals(written, store.dictionaryBytes());
+    }
+
+    /**
+     * Chaves novas nas linhas pares e uma chave antiga, já fora do cache, nas ímpares; a cada
+     * sete linhas, uma transação sem contraparte.
+     */
+    private static String counterparty(final int row) {
+        if (row % 7 == 0) {
+            return null;
+        }
+        return row % 2 == 0 ? "chave-" + row + "@banco.com.br" : "chave-" + (row / 2) + "@banco.com.br";
+    }
+}
@@ -0,0 +1,132 @@
+package persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import repository.AccountRepository;
+import repository.InvestmentRepository;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Testes da leitura do log com finais incompletos ou corrompidos.
+ */
+class LogReaderTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Um tamanho de corpo inválido no fim do log encerra a leitura no último registro válido,
+     * sem tentar ler o corpo anunciado.
+     */
+    @Test
+    void invalidLengthEndsReplayAtLastValidRecord() throws Exception {
+        for (int bodySize : new int[] {Integer.MAX_VALUE, Integer.MAX_VALUE - 4, WriteAheadLog.MAX_BODY_SIZE + 1, 4096, -1}) {
+            var path = writeDeposits(3);
+            long valid = Files.size(path);
+            append(path, ByteBuffer.allocate(16).putInt(bodySize).putLong(42).flip());
+
+            var deposits = new ArrayList<Long>();
+            long end = new LogReader(path).replay(0, depositsInto(deposits));
+
+            assertEquals(valid, end, "bodySize=" + bodySize);
+            assertEquals(List.of(1L, 2L, 3L), deposits);
+        }
+    }
+
+    /**
+     * Um registro cortado no meio, como em uma gravação interrompida, é descartado.
+     */
+    @Test
+    void partialRecordIsDiscarded() throws Exception {
+        var path = writeDeposits(3);
+        long full = Files.size(path);
+        try (var channel = FileChannel.open(path, WRITE)) {
+            channel.truncate(full - 5);
+        }
+
+        var deposits = new ArrayList<Long>();
+        long end = new LogReader(path).replay(0, depositsInto(deposits));
+
+        assertEquals(List.of(1L, 2L), deposits);
+        assertEquals(full / 3 * 2, end);
+    }
+
+    /**
+     * Um registro com CRC inválido encerra a leitura, mesmo que haja registros válidos depois dele.
+     */
+    @Test
+    void corruptedRecordEndsReplay() throws Exception {
+        var path = writeDeposits(3);
+        long recordSize = Files.size(path) / 3;
+        try (var channel = FileChannel.open(path, WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), recordSize + Integer.BYTES + 12);
+        }
+
+        var deposits = new ArrayList<Long>();
+        long end = new LogReader(path).replay(0, depositsInto(deposits));
+
+        assertEquals(List.of(1L), deposits);
+        assertEquals(recordSize, end);
+    }
+
+    /**
+     * A recuperação trunca o final inválido, de modo que novos registros são acrescentados
+     * logo após o último registro válido e lidos na recuperação seguinte.
+     */
+    @Test
+    void recoveryTruncatesTornTailBeforeNewRecords() throws Exception {
+        var path = dir.resolve("bank.wal");
+        try (var log = new WriteAheadLog(path)) {
+            new AccountRepository(log).create(List.of("ana"), 1_000);
+        }
+        long valid = Files.size(path);
+        append(path, ByteBuffer.allocate(6).putInt(Integer.MAX_VALUE).putShort((short) 7).flip());
+
+        var snapshot = dir.resolve("bank.snapshot");
+        var accounts = new AccountRepository();
+        assertEquals(valid, new SnapshotManager(snapshot, path).recover(accounts, new InvestmentRepository()));
+        assertEquals(valid, Files.size(path));
+
+        try (var log = new WriteAheadLog(path)) {
+            log.deposit("ana", 500);
+        }
+        var recovered = new AccountRepository();
+        new SnapshotManager(snapshot, path).recover(recovered, new InvestmentRepository());
+        assertEquals(1_500, recovered.findByPix("ana").getFunds());
+    }
+
+    private Path writeDeposits(final int count) throws Exception {
+        var path = Files.createTempFile(dir, "deposits", ".wal");
+        try (var log = new WriteAheadLog(path)) {
+            for (int i = 1; i <= count; i++) {
+                log.deposit("ana", i);
+            }
+        }
+        return path;
+    }
+
+    private static void append(final Path path, final ByteBuffer bytes) throws Exception {
+        try (var channel = FileChannel.open(path, APPEND)) {
+            channel.write(bytes);
+        }
+    }
+
+    private static TransactionLog depositsInto(final List<Long> deposits) {
+        return new TransactionLog() {
+            @Override
+            public void deposit(final String pix, final long amount) {
+                deposits.add(amount);
+            }
+        };
+    }
+}
@@ -0,0 +1,140 @@
+package persistence;
+
+import model.InvestmentWallet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import repository.AccountRepository;
+import repository.InvestmentRepository;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Verifica que o log gravado por operações concorrentes é reaplicado até o mesmo estado em memória.
+ */
+class ReplayOrderTest {
+
+    private static final int THREADS = 4;
+
+    private static final int ACCOUNTS_PER_THREAD = 300;
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Intercala criações, depósitos em contas recém-publicadas, rendimentos e resgates totais,
+     * e compara o estado reaplicado a partir do log com o estado final.
+     */
+    @Test
+    void replayOfInterleavedOperationsMatchesLiveState() throws Exception {
+        var logPath = dir.resolve("bank.wal");
+        var log = new WriteAheadLog(logPath, false, 0);
+        var accounts = new AccountRepository(log);
+        var investments = new InvestmentRepository(log, accounts.getTransactionEngine());
+        var investment = investments.create(1, 100, "CDB");
+
+        var created = new ArrayList<String>();
+        var running = new AtomicBoolean(true);
+        var yields = new Thread(() -> {
+            while (running.get()) {
+                investments.updateAmount();
+            }
+        });
+        yields.start();
+
+        var workers = new ArrayList<Thread>();
+        var failures = new ArrayList<Throwable>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            // Deposita em cada conta assim que a chave passa a ser encontrada, disputando com a criação
+            workers.add(new Thread(() -> {
+                for (int i = 0; i < ACCOUNTS_PER_THREAD; i++) {
+                    var pix = "t" + thread + "-" + i;
+                    while (!accounts.tryDeposit(pix, 1).isSuccess()) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }));
+            workers.add(new Thread(() -> {
+                var random = ThreadLocalRandom.current();
+                for (int i = 0; i < ACCOUNTS_PER_THREAD; i++) {
+                    var pix = "t" + thread + "-" + i;
+                    var account = accounts.create(List.of(pix), 10_000);
+                    synchronized (created) {
+                        created.add(pix);
+                    }
+                    depositIntoRandomAccount(accounts, created, random);
+                    investments.initInvestment(account, investment.id());
+                    investments.tryDeposit(pix, 1_000 + random.nextInt(1_000));
+                    depositIntoRandomAccount(accounts, created, random);
+                    if (random.nextBoolean()) {
+                        rescueAll(investments, pix);
+                    }
+                }
+            }));
+        }
+        for (var worker : workers) {
+            worker.setUncaughtExceptionHandler((th, e) -> {
+                synchronized (failures) {
+                    failures.add(e);
+                }
+            });
+            worker.start();
+        }
+        for (var worker : workers) {
+            worker.join();
+        }
+        running.set(false);
+        yields.join();
+        log.close();
+        assertEquals(List.of(), failures);
+
+        var restoredAccounts = new AccountRepository();
+        var restoredInvestments = new InvestmentRepository();
+        new SnapshotManager(dir.resolve("bank.snapshot"), logPath).recover(restoredAccounts, restoredInvestments);
+
+        assertEquals(accounts.list().size(), restoredAccounts.list().size());
+        for (var account : accounts.list()) {
+            var pix = account.getPix().get(0);
+            assertEquals(account.getFunds(), restoredAccounts.findByPix(pix).getFunds(), pix);
+        }
+        assertEquals(fundsByPix(investments.listWallets()), fundsByPix(restoredInvestments.listWallets()));
+    }
+
+    /**
+     * Deposita em uma conta qualquer já publicada, possivelmente criada por outra thread.
+     */
+    private static void depositIntoRandomAccount(final AccountRepository accounts, final List<String> created,
+                                                 final ThreadLocalRandom random) {
+        String pix;
+        synchronized (created) {
+            pix = created.get(random.nextInt(created.size()));
+        }
+        accounts.deposit(pix, 1 + random.nextInt(500));
+    }
+
+    /**
+     * Resgata todo o saldo da carteira, disputando com os rendimentos, até que ela seja encerrada.
+     */
+    private static void rescueAll(final InvestmentRepository investments, final String pix) {
+        var wallet = investments.findWalletByAccountPix(pix);
+        while (!wallet.isClosed()) {
+            investments.tryWithdraw(pix, wallet.getFunds());
+        }
+        assertFalse(investments.listWallets().contains(wallet));
+    }
+
+    private static Map<String, Long> fundsByPix(final List<InvestmentWallet> wallets) {
+        var funds = new HashMap<String, Long>();
+        wallets.forEach(wallet -> funds.put(wallet.getAccount().getPix().get(0), wallet.getFunds()));
+        return funds;
+    }
+}
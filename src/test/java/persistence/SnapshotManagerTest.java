@@ -0,0 +1,152 @@
+package persistence;
+
+import model.AccountWallet;
+import model.InvestmentWallet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import repository.AccountRepository;
+import repository.InvestmentRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica que a recuperação por snapshot mais o final do log chega ao mesmo estado
+ * que a reaplicação do log inteiro e que o estado em memória.
+ */
+class SnapshotManagerTest {
+
+    private static final int THREADS = 4;
+
+    private static final int ACCOUNTS = 8;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void snapshotPlusReplayMatchesFullReplayAndLiveState() throws Exception {
+        var logPath = dir.resolve("bank.wal");
+        var snapshotPath = dir.resolve("bank.snapshot");
+        var log = new WriteAheadLog(logPath);
+        var accounts = new AccountRepository(log);
+        var investments = new InvestmentRepository(log, accounts.getTransactionEngine());
+        var manager = new SnapshotManager(snapshotPath, logPath);
+
+        var cdb = investments.create(2, 500, "CDB");
+        var ana = accounts.create(List.of("ana", "ana@pix"), 10_000);
+        var bia = accounts.create(List.of("bia"), 5_000);
+        accounts.transferMoney("ana", "bia", 1_250);
+        investments.initInvestment(ana, cdb.id());
+        investments.deposit("ana@pix", 700);
+        investments.updateAmount();
+
+        manager.snapshot(accounts, investments, log);
+
+        var lci = investments.create(1, 100, "LCI");
+        var caio = accounts.create(List.of("caio"), 1_000);
+        investments.initInvestment(bia, lci.id());
+        investments.updateAmount();
+        accounts.withdraw("bia", 99);
+        investments.withdraw("ana", investments.findWalletByAccountPix("ana").getFunds());
+        investments.initInvestment(caio, cdb.id());
+        log.close();
+
+        var fromSnapshot = recover(snapshotPath, logPath);
+        var fullLog = recover(dir.resolve("none.snapshot"), logPath);
+
+        var live = state(accounts, investments);
+        assertEquals(live, fromSnapshot);
+        assertEquals(live, fullLog);
+        assertTrue(Files.exists(snapshotPath));
+    }
+
+    /**
+     * Snapshots gravados enquanto outras threads transferem e abrem contas capturam um estado que
+     * corresponde exatamente à posição do log: a recuperação chega ao estado em memória.
+     */
+    @Test
+    void snapshotsDuringConcurrentOperationsRecoverLiveState() throws Exception {
+        var logPath = dir.resolve("bank.wal");
+        var snapshotPath = dir.resolve("bank.snapshot");
+        var log = new WriteAheadLog(logPath, false, 0);
+        var accounts = new AccountRepository(4, log);
+        var investments = new InvestmentRepository(log, accounts.getTransactionEngine());
+        var manager = new SnapshotManager(snapshotPath, logPath);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.create(List.of("pix-" + i), 1_000);
+        }
+
+        var running = new AtomicBoolean(true);
+        var failures = new ArrayList<Throwable>();
+        var threads = new ArrayList<Thread>();
+        for (int t = 0; t < THREADS; t++) {
+            int index = t;
+            var thread = new Thread(() -> {
+                try {
+                    var random = ThreadLocalRandom.current();
+                    for (int i = 0; running.get(); i++) {
+                        int source = random.nextInt(ACCOUNTS);
+                        accounts.tryTransfer("pix-" + source, "pix-" + (source + 1) % ACCOUNTS, 1 + random.nextInt(50));
+                        if (i % 100 == 0) {
+                            accounts.create(List.of("new-" + index + "-" + i), 10);
+                        }
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        var copies = new ArrayList<Path>();
+        for (int i = 0; i < 10; i++) {
+            Thread.sleep(5);
+            manager.snapshot(accounts, investments, log);
+            copies.add(Files.copy(snapshotPath, dir.resolve("bank.snapshot." + i)));
+        }
+        running.set(false);
+        for (var thread : threads) {
+            thread.join();
+        }
+        log.close();
+
+        assertEquals(List.of(), failures);
+        var live = state(accounts, investments);
+        for (var copy : copies) {
+            assertEquals(live, recover(copy, logPath), copy.toString());
+        }
+    }
+
+    private static Map<String, Long> recover(final Path snapshot, final Path log) throws Exception {
+        var accounts = new AccountRepository();
+        var investments = new InvestmentRepository();
+        new SnapshotManager(snapshot, log).recover(accounts, investments);
+        return state(accounts, investments);
+    }
+
+    /**
+     * Saldos de contas e carteiras indexados pela chave, e os tipos de investimento cadastrados.
+     */
+    private static Map<String, Long> state(final AccountRepository accounts, final InvestmentRepository investments) {
+        var state = new TreeMap<String, Long>();
+        for (AccountWallet account : accounts.list()) {
+            state.put("account " + account.getPix(), account.getFunds());
+        }
+        for (InvestmentWallet wallet : investments.listWallets()) {
+            state.put("wallet " + wallet.getAccount().getPix().get(0) + " " + wallet.getInvestment().id(), wallet.getFunds());
+        }
+        investments.list().forEach(type -> state.put("investment " + type.id() + " " + type.nome(), type.tax()));
+        return state;
+    }
+}
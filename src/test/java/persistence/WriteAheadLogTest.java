@@ -0,0 +1,139 @@
+package persistence;
+
+import model.OperationResult;
+import model.OperationResult.Reason;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import repository.AccountRepository;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Testes de gravação e leitura do {@link WriteAheadLog}.
+ */
+class WriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Cada tipo de registro gravado é lido de volta, na mesma ordem e com os mesmos campos.
+     */
+    @Test
+    void recordsRoundTripInOrder() throws Exception {
+        var path = dir.resolve("bank.wal");
+        try (var log = new WriteAheadLog(path)) {
+            log.accountCreated(List.of("ana", "ana@pix"), 1_000);
+            log.deposit("ana", 200);
+            log.withdraw("ana", 50);
+            log.transfer("ana", "bia", 25);
+            log.investmentCreated(1, 10, 100, "CDB;LCI");
+            log.investmentWalletCreated("ana", 1);
+            log.investmentDeposit("ana", 300);
+            log.investmentWithdraw("ana", 100);
+            log.investmentYield("ana", 10, 20);
+            log.movements(List.of(new Movement("ana", false, -7), new Movement("bia", true, 7)));
+        }
+
+        var calls = new Recorder();
+        long end = new LogReader(path).replay(0, calls);
+
+        assertEquals(Files.size(path), end);
+        assertEquals(List.of(
+                "accountCreated [ana, ana@pix] 1000",
+                "deposit ana 200",
+                "withdraw ana 50",
+                "transfer ana bia 25",
+                "investmentCreated 1 10 100 CDB;LCI",
+                "investmentWalletCreated ana 1",
+                "investmentDeposit ana 300",
+                "investmentWithdraw ana 100",
+                "investmentYield ana 10 20",
+                "movements [Movement[pix=ana, investment=false, delta=-7], Movement[pix=bia, investment=true, delta=7]]"),
+                calls.calls);
+    }
+
+    /**
+     * Com o log fechado, a operação é rejeitada antes de alterar o saldo.
+     */
+    @Test
+    void closedLogRejectsOperationsBeforeApplyingThem() throws Exception {
+        var log = new WriteAheadLog(dir.resolve("bank.wal"));
+        var accounts = new AccountRepository(log);
+        var account = accounts.create(List.of("ana"), 1_000);
+        log.close();
+
+        assertThrows(UncheckedIOException.class, () -> accounts.withdraw("ana", 100));
+        assertThrows(UncheckedIOException.class, () -> accounts.deposit("ana", 100));
+        assertThrows(UncheckedIOException.class, () -> accounts.create(List.of("bia"), 100));
+
+        assertEquals(1_000, account.getFunds());
+        assertEquals(1, account.getFinancialTransactions().size());
+        assertEquals(OperationResult.rejected(Reason.ACCOUNT_NOT_FOUND, "bia"), accounts.tryDeposit("bia", 1));
+    }
+
+    /**
+     * Destino que anota as chamadas recebidas da leitura do log.
+     */
+    private static final class Recorder implements TransactionLog {
+
+        private final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void accountCreated(final List<String> pix, final long initialFunds) {
+            calls.add("accountCreated " + pix + " " + initialFunds);
+        }
+
+        @Override
+        public void deposit(final String pix, final long amount) {
+            calls.add("deposit " + pix + " " + amount);
+        }
+
+        @Override
+        public void withdraw(final String pix, final long amount) {
+            calls.add("withdraw " + pix + " " + amount);
+        }
+
+        @Override
+        public void transfer(final String sourcePix, final String targetPix, final long amount) {
+            calls.add("transfer " + sourcePix + " " + targetPix + " " + amount);
+        }
+
+        @Override
+        public void investmentCreated(final long id, final long tax, final long initialFunds, final String nome) {
+            calls.add("investmentCreated " + id + " " + tax + " " + initialFunds + " " + nome);
+        }
+
+        @Override
+        public void investmentWalletCreated(final String pix, final long investmentId) {
+            calls.add("investmentWalletCreated " + pix + " " + investmentId);
+        }
+
+        @Override
+        public void investmentDeposit(final String pix, final long amount) {
+            calls.add("investmentDeposit " + pix + " " + amount);
+        }
+
+        @Override
+        public void investmentWithdraw(final String pix, final long amount) {
+            calls.add("investmentWithdraw " + pix + " " + amount);
+        }
+
+        @Override
+        public void investmentYield(final String pix, final long percent, final long earnings) {
+            calls.add("investmentYield " + pix + " " + percent + " " + earnings);
+        }
+
+        @Override
+        public void movements(final List<Movement> movements) {
+            calls.add("movements " + movements);
+        }
+    }
+}
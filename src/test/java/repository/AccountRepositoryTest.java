@@ -0,0 +1,176 @@
+package repository;
+
+import model.BatchResult;
+import model.OperationResult;
+import model.OperationResult.Reason;
+import model.TransferOrder;
+import org.junit.jupiter.api.Test;
+import persistence.Movement;
+import persistence.TransactionLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Testes das operações concorrentes do {@link AccountRepository}.
+ */
+class AccountRepositoryTest {
+
+    private static final int THREADS = 8;
+
+    private static final int ACCOUNTS = 16;
+
+    /**
+     * Saques concorrentes na mesma conta, disputando com transferências que saem dela,
+     * nunca debitam mais do que o saldo.
+     */
+    @Test
+    void concurrentWithdrawsAndTransfersNeverOverdraw() throws Exception {
+        var accounts = new AccountRepository();
+        var ana = accounts.create(List.of("ana"), 10_000);
+        var bia = accounts.create(List.of("bia"), 1);
+        var debited = new AtomicLong();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < 1_000; i++) {
+                var result = thread % 2 == 0 ? accounts.tryWithdraw("ana", 3) : accounts.tryTransfer("ana", "bia", 3);
+                if (result.isSuccess()) {
+                    debited.addAndGet(3);
+                } else {
+                    assertEquals(OperationResult.rejected(Reason.NO_FUNDS), result);
+                }
+            }
+        });
+
+        assertEquals(9_999, debited.get());
+        assertEquals(1, ana.getFunds());
+        assertEquals(10_000, ana.getFunds() + debited.get());
+        assertEquals(1 + (bia.getFunds() - 1) / 3, bia.getFinancialTransactions().size());
+    }
+
+    /**
+     * Transferências concorrentes em sentidos opostos entre várias contas terminam sem impasse
+     * e conservam o total.
+     */
+    @Test
+    void concurrentTransfersConserveTotal() throws Exception {
+        var accounts = new AccountRepository(4);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.create(List.of("pix-" + i), 1_000);
+        }
+
+        runConcurrently(thread -> {
+            var random = ThreadLocalRandom.current();
+            for (int i = 0; i < 2_000; i++) {
+                int source = random.nextInt(ACCOUNTS);
+                int target = (source + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                accounts.tryTransfer("pix-" + source, "pix-" + target, 1 + random.nextInt(200));
+            }
+        });
+
+        long total = accounts.list().stream().mapToLong(account -> account.getFunds()).sum();
+        assertEquals(ACCOUNTS * 1_000L, total);
+        accounts.list().forEach(account -> assertTrue(account.getFunds() >= 0));
+    }
+
+    /**
+     * Cada transferência do lote é atômica: as rejeitadas não alteram nenhuma das contas,
+     * e as seguintes enxergam o saldo deixado pelas anteriores.
+     */
+    @Test
+    void transferBatchRejectsOrdersWithoutPartialLegs() {
+        var movements = new ArrayList<List<Movement>>();
+        var accounts = new AccountRepository(new TransactionLog() {
+            @Override
+            public void movements(final List<Movement> applied) {
+                movements.add(applied);
+            }
+        });
+        var ana = accounts.create(List.of("ana"), 1_000);
+        var bia = accounts.create(List.of("bia"), 60);
+        var caio = accounts.create(List.of("caio"), 1);
+
+        var result = accounts.transferBatch(List.of(
+                new TransferOrder("ana", "bia", 100),
+                new TransferOrder("bia", "caio", 150),
+                new TransferOrder("caio", "desconhecida", 1),
+                new TransferOrder("ana", "bia", 0),
+                new TransferOrder("ana", "caio", 10_000),
+                new TransferOrder("bia", "ana", 10)));
+
+        assertEquals(new BatchResult(3, List.of(2, 3, 4)), result);
+        assertEquals(910, ana.getFunds());
+        assertEquals(0, bia.getFunds());
+        assertEquals(151, caio.getFunds());
+        assertEquals(3, ana.getFinancialTransactions().size());
+        assertEquals(2, caio.getFinancialTransactions().size());
+        assertEquals(1, movements.size());
+        assertEquals(6, movements.get(0).size());
+        assertEquals(0, movements.get(0).stream().mapToLong(Movement::delta).sum());
+    }
+
+    /**
+     * Lotes concorrentes com transferências em sentidos opostos terminam sem impasse e conservam o total.
+     */
+    @Test
+    void concurrentOpposingBatchesConserveTotal() throws Exception {
+        var accounts = new AccountRepository(4);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.create(List.of("pix-" + i), 1_000);
+        }
+
+        runConcurrently(thread -> {
+            var random = ThreadLocalRandom.current();
+            for (int i = 0; i < 200; i++) {
+                var orders = new ArrayList<TransferOrder>();
+                for (int j = 0; j < 10; j++) {
+                    int source = random.nextInt(ACCOUNTS);
+                    int target = thread % 2 == 0 ? (source + 1) % ACCOUNTS : (source + ACCOUNTS - 1) % ACCOUNTS;
+                    orders.add(new TransferOrder("pix-" + source, "pix-" + target, 1 + random.nextInt(300)));
+                }
+                var result = accounts.transferBatch(orders);
+                assertEquals(orders.size(), result.committed() + result.rejected().size());
+            }
+        });
+
+        long total = accounts.list().stream().mapToLong(account -> account.getFunds()).sum();
+        assertEquals(ACCOUNTS * 1_000L, total);
+        accounts.list().forEach(account -> assertTrue(account.getFunds() >= 0));
+    }
+
+    /**
+     * Executa a tarefa em várias threads, liberadas ao mesmo tempo; cada uma recebe o seu índice.
+     */
+    private static void runConcurrently(final IntConsumer task) throws Exception {
+        var start = new CountDownLatch(1);
+        var threads = new ArrayList<Thread>();
+        var failures = new ArrayList<Throwable>();
+        for (int t = 0; t < THREADS; t++) {
+            int index = t;
+            var thread = new Thread(() -> {
+                try {
+                    start.await();
+                    task.accept(index);
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (var thread : threads) {
+            thread.join();
+        }
+        assertEquals(List.of(), failures);
+    }
+}
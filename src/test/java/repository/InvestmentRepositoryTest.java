@@ -0,0 +1,51 @@
+package repository;
+
+import model.InvestmentWallet;
+import org.junit.jupiter.api.Test;
+import persistence.TransactionLog;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Testes da abertura e do encerramento de carteiras do {@link InvestmentRepository}.
+ */
+class InvestmentRepositoryTest {
+
+    /**
+     * Uma carteira esvaziada por resgate e ainda não retirada do índice por conta não impede
+     * a abertura de uma nova carteira para a mesma conta, nem é retirada no lugar dela.
+     */
+    @Test
+    void walletReopenedBeforeClosedOneIsUnindexedStaysIndexed() {
+        // A espera pela durabilidade do resgate ocorre depois do encerramento e antes da retirada do índice
+        var beforeUnindex = new AtomicReference<Runnable>();
+        var accounts = new AccountRepository(new TransactionLog() {
+            @Override
+            public void awaitDurability() {
+                var action = beforeUnindex.getAndSet(null);
+                if (action != null) {
+                    action.run();
+                }
+            }
+        });
+        var investments = new InvestmentRepository(TransactionLog.NONE, accounts.getTransactionEngine());
+        var ana = accounts.create(List.of("ana"), 10_000);
+        var cdb = investments.create(2, 1_000, "CDB");
+        var first = investments.initInvestment(ana, cdb.id());
+        var reopened = new AtomicReference<InvestmentWallet>();
+        beforeUnindex.set(() -> reopened.set(investments.initInvestment(ana, cdb.id())));
+
+        investments.withdraw("ana", first.getFunds());
+
+        assertTrue(first.isClosed());
+        assertNotNull(reopened.get());
+        assertSame(reopened.get(), investments.findWalletByAccountPix("ana"));
+        assertEquals(List.of(reopened.get()), investments.listWallets());
+    }
+}
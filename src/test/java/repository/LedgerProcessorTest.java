@@ -0,0 +1,107 @@
+package repository;
+
+import org.junit.jupiter.api.Test;
+import persistence.TransactionLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Testes do {@link LedgerProcessor}.
+ */
+class LedgerProcessorTest {
+
+    private static final int PRODUCERS = 4;
+
+    /**
+     * Encerrar o processador enquanto produtores publicam não deixa resultados pendentes:
+     * cada publicação é rejeitada ou aplicada e concluída.
+     */
+    @Test
+    void closeDuringPublishCompletesEveryAcceptedCommand() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            var accounts = new AccountRepository();
+            var ledger = new LedgerProcessor(accounts, new InvestmentRepository(), TransactionLog.NONE, 8);
+            var account = accounts.create(List.of("ana"), 1);
+            var accepted = new ArrayList<CompletableFuture<Void>>();
+            var deposited = new AtomicLong(1);
+            var start = new CountDownLatch(1);
+            var producers = new ArrayList<Thread>();
+            for (int p = 0; p < PRODUCERS; p++) {
+                producers.add(new Thread(() -> {
+                    awaitQuietly(start);
+                    while (true) {
+                        CompletableFuture<Void> completion;
+                        try {
+                            completion = ledger.deposit("ana", 1);
+                        } catch (IllegalStateException e) {
+                            return;
+                        }
+                        deposited.incrementAndGet();
+                        synchronized (accepted) {
+                            accepted.add(completion);
+                        }
+                    }
+                }));
+            }
+            producers.forEach(Thread::start);
+            start.countDown();
+            Thread.sleep(1);
+            ledger.close();
+            for (var producer : producers) {
+                producer.join();
+            }
+
+            CompletableFuture.allOf(accepted.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+            assertEquals(deposited.get(), account.getFunds());
+        }
+    }
+
+    /**
+     * Cadastro de investimento, abertura de carteira e rendimentos também passam pelo buffer.
+     */
+    @Test
+    void investmentCommandsAreAppliedByTheWriter() throws Exception {
+        var accounts = new AccountRepository();
+        var investments = new InvestmentRepository(TransactionLog.NONE, accounts.getTransactionEngine());
+        try (var ledger = new LedgerProcessor(accounts, investments, TransactionLog.NONE)) {
+            ledger.create(List.of("ana"), 10_000).get();
+            var investment = ledger.createInvestment(10, 1_000, "CDB").get();
+            var wallet = ledger.openWallet("ana", investment.id()).get();
+            var summary = ledger.updateYield().get();
+
+            assertEquals(1, summary.wallets());
+            assertEquals(100, summary.totalPaid());
+            assertEquals(1_100, wallet.getFunds());
+            assertEquals(9_000, accounts.findByPix("ana").getFunds());
+        }
+    }
+
+    /**
+     * Depois de encerrado, o processador rejeita novos comandos.
+     */
+    @Test
+    void closedProcessorRejectsCommands() {
+        var accounts = new AccountRepository();
+        var ledger = new LedgerProcessor(accounts, new InvestmentRepository(), TransactionLog.NONE);
+        ledger.close();
+
+        assertThrows(IllegalStateException.class, () -> ledger.deposit("ana", 1));
+        assertThrows(IllegalStateException.class, ledger::updateYield);
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}